@@ -1,15 +1,13 @@
 import core.Game;
+import core.GameContext;
+import core.Tournament;
+import core.WorkerFarm;
 import players.*;
-import players.mcts.MCTSParams;
-import players.mcts.MCTSPlayer;
-import players.rhea.RHEAPlayer;
-import players.rhea.utils.Constants;
-import players.rhea.utils.RHEAParams;
 import utils.*;
 
+import java.io.File;
 import java.util.*;
 
-import static utils.Types.VISUALS;
 
 public class Run {
 
@@ -28,6 +26,13 @@ public class Run {
         System.out.println("\t\t 5 RHEA 200 itereations, shift buffer, pop size 1, random init, length: 12, advanced heuristic");
         System.out.println("\t\t 6 MCTS 200 iterations, length: 12, custom heuristic");
         System.out.println("\t\t 7 MCTS 200 iterations, length: 12, custom heuristic");
+        System.out.println("\t [arg index = 7] (Optional) Engine. 0: reference; 1: bitboard; 2: lockstep (both, " +
+                "reporting the first divergence)");
+        System.out.println("\t [arg index = 8] (Optional) Number of threads playing games in parallel [T]");
+        System.out.println("\t [arg index = 9] (Optional) Number of worker processes playing games in parallel [W], " +
+                "instead of threads");
+        System.out.println("\t [arg index = 10] (Optional) Journal file, to resume the tournament if interrupted " +
+                "(players are then seeded from its name instead of the time)");
     }
 
     public static void main(String[] args) {
@@ -42,10 +47,7 @@ public class Run {
                 11772, 58367, 17546, 75375, 75772, 58237, 30464, 27180, 23643, 67054, 19508};
 
 
-        int RHEA_CUSTOM_HEURISTIC = 0;
-        int RHEA_ADVANCED_HEURISTIC = 1;
-
-        if(args.length != 7) {
+        if(args.length < 7 || args.length > 11) {
             printHelp();
             return;
         }
@@ -58,68 +60,30 @@ public class Run {
 
             // Init game, size and seed.
             long seed = System.currentTimeMillis();
+            File journal = args.length > 10 ? new File(args[10]) : null;
+            if (journal != null)
+                seed = journal.getName().hashCode();  // The same when resuming
             int boardSize = Types.BOARD_SIZE;
 
             Types.GAME_MODE gMode = Types.GAME_MODE.FFA;
             if(Integer.parseInt(args[0]) == 1)
                 gMode = Types.GAME_MODE.TEAM;
 
-            Types.DEFAULT_VISION_RANGE = Integer.parseInt(args[2]);
+            int visionRange = Integer.parseInt(args[2]);
 
             int N = Integer.parseInt(args[1]);
             String[] playerStr = new String[4];
 
+            int[] agentTypes = new int[4];
             for(int i = 3; i <= 6; ++i) {
                 int agentType = Integer.parseInt(args[i]);
-                Player p = null;
-
-                RHEAParams rheaParams = new RHEAParams();
-
-                MCTSParams mctsParams = new MCTSParams();
-                mctsParams.stop_type = mctsParams.STOP_ITERATIONS;
-                mctsParams.rollout_depth = 12;
-
-                switch(agentType) {
-                    case 0:
-                        p = new DoNothingPlayer(playerID++);
-                        playerStr[i-3] = "DoNothing";
-                        break;
-                    case 1:
-                        p = new RandomPlayer(seed, playerID++);
-                        playerStr[i-3] = "Random";
-                        break;
-                    case 2:
-                        p = new OSLAPlayer(seed, playerID++);
-                        playerStr[i-3] = "OSLA";
-                        break;
-                    case 3:
-                        p = new SimplePlayer(seed, playerID++);
-                        playerStr[i-3] = "SimplePlayer";
-                        break;
-                    case 4:
-                        rheaParams.heurisic_type = Constants.CUSTOM_HEURISTIC;
-                        p = new RHEAPlayer(seed, playerID++, rheaParams);
-                        playerStr[i-3] = "RHEA-Custom";
-                        break;
-                    case 5:
-                        rheaParams.heurisic_type = Constants.CUSTOM_HEURISTIC;//Constants.ADVANCED_HEURISTIC;
-                        p = new RHEAPlayer(seed, playerID++, rheaParams);
-                        playerStr[i-3] = "RHEA-Advanced";
-                        break;
-                    case 6:
-                        mctsParams.heuristic_method = mctsParams.CUSTOM_HEURISTIC;
-                        p = new MCTSPlayer(seed, playerID++, mctsParams);
-                        playerStr[i-3] = "MCTS-Custom";
-                        break;
-                    case 7:
-                        mctsParams.heuristic_method = mctsParams.CUSTOM_HEURISTIC;//mctsParams.ADVANCED_HEURISTIC;
-                        p = new MCTSPlayer(seed, playerID++, mctsParams);
-                        playerStr[i-3] = "MCTS-ADVANCED";
-                        break;
-                    default:
-                        System.out.println("WARNING: Invalid agent ID: " + agentType );
+                Player p = PlayerFactory.create(agentType, seed, playerID++);
+                if (p == null) {
+                    System.out.println("WARNING: Invalid agent ID: " + agentType );
+                } else {
+                    playerStr[i-3] = PlayerFactory.name(agentType);
                 }
-
+                agentTypes[i-3] = agentType;
                 players.add(p);
             }
 
@@ -130,11 +94,16 @@ public class Run {
                     gameIdStr+="-";
             }
 
-            Game game = new Game(seeds[0], boardSize, gMode, gameIdStr);
+            GameContext context = new GameContext(Types.getGameConfig(), visionRange, Types.VISUALS);
+            if (args.length > 7)
+                context.setEngine(Types.ENGINE.values()[Integer.parseInt(args[7])]);
+            int threads = args.length > 8 ? Integer.parseInt(args[8]) : Runtime.getRuntime().availableProcessors();
+            int workers = args.length > 9 ? Integer.parseInt(args[9]) : 0;
 
             // Make sure we have exactly NUM_PLAYERS players
             assert players.size() == Types.NUM_PLAYERS;
-            game.setPlayers(players);
+            Tournament tournament = new Tournament(gMode, context, players);
+            tournament.setJournal(journal);
 
             System.out.print(gameIdStr + " [");
             for(int i = 0; i < playerStr.length; ++i) {
@@ -146,7 +115,13 @@ public class Run {
             System.out.println("]");
 
 //            runGame(game, new KeyController(true), new KeyController(false));
-            runGames(game, seeds, N, false);
+            if (workers > 0) {
+                WorkerFarm farm = new WorkerFarm(gMode, context, agentTypes, seed);
+                farm.setJournal(journal);
+                System.out.print(farm.run(seeds, N, workers));
+            } else {
+                System.out.print(tournament.run(seeds, N, threads));
+            }
 
         } catch(Exception e) {
             e.printStackTrace();
@@ -164,7 +139,7 @@ public class Run {
     public static void runGame(Game g, KeyController ki1, KeyController ki2, boolean separateThreads) {
         WindowInput wi = null;
         GUI frame = null;
-        if (VISUALS) {
+        if (g.getContext().isVisuals()) {
             frame = new GUI(g, "Java-Pommerman", ki1, false, true);
             wi = new WindowInput();
             wi.windowClosed = false;
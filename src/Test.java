@@ -20,7 +20,7 @@ public class Test {
         long seed = System.currentTimeMillis();
         int boardSize = Types.BOARD_SIZE;
         Types.GAME_MODE gameMode = Types.GAME_MODE.FFA_TELEPORT;
-        boolean useSeparateThreads = false;                 //true may be unstable, false is recommended.
+        boolean useSeparateThreads = false;                 //true asks agents in parallel, with a deadline to act.
 
         Game game = new Game(seed, boardSize, gameMode, "");
 
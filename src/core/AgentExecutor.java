@@ -0,0 +1,164 @@
+package core;
+
+import players.Player;
+import utils.ElapsedCpuTimer;
+import utils.Types;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the act() calls of the players of a game in parallel, on threads kept from one tick to the next instead of
+ * new threads every tick. An executor can be shared by several games (see Game.setAgentExecutor()).
+ *
+ * Each call has a deadline, and players which don't answer in time play ACTION_STOP. Late calls are not interrupted,
+ * as players don't expect it, but their result is ignored, and the player isn't asked again until its call returns
+ * (it plays ACTION_STOP meanwhile), so that a player never runs two act() calls at the same time.
+ * Players which throw an exception also play ACTION_STOP.
+ */
+public class AgentExecutor implements AutoCloseable {
+
+    // Values of elapsed times for players which weren't asked, and for players which didn't answer in time.
+    public static final long NOT_ASKED = -1;
+    public static final long LATE = -2;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final ExecutorService pool;
+
+    // Calls which may still be running, by player.
+    private final Map<Player, Future<Decision>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an executor running each call in a platform (daemon) thread, reused from call to call.
+     */
+    public AgentExecutor() {
+        this(false);
+    }
+
+    /**
+     * Creates an executor.
+     * @param virtualThreads true to run calls in virtual threads, if the JVM supports them (Java 21 or later).
+     *                       Otherwise, calls run in platform threads. Threads are reused from call to call.
+     */
+    public AgentExecutor(boolean virtualThreads) {
+        ThreadFactory factory = virtualThreads ? virtualThreadFactory() : null;
+        if (factory == null) {
+            factory = r -> {
+                Thread t = new Thread(r, "agent-" + threadCount.incrementAndGet());
+                t.setDaemon(true);  // Players stuck in act() must not keep the program alive
+                return t;
+            };
+        }
+        pool = Executors.newCachedThreadPool(factory);
+    }
+
+    /**
+     * @return a factory of virtual threads, or null if the JVM doesn't support them.
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) builder.getClass().getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Asks the players for their actions, all at the same time.
+     * @param players players of the game, one per avatar.
+     * @param observations game state observed by each player, null for players which aren't playing anymore.
+     * @param deadlineMillis time each player has to answer, in milliseconds.
+     * @return the actions of the players, ACTION_STOP for those which aren't playing, or didn't answer in time.
+     */
+    public Types.ACTIONS[] act(List<Player> players, GameState[] observations, long deadlineMillis) {
+        return act(players, observations, deadlineMillis, ElapsedCpuTimer.TimerType.WALL_TIME,
+                new long[players.size()]);
+    }
+
+    /**
+     * Asks the players for their actions, all at the same time, and times each call.
+     * @param players players of the game, one per avatar.
+     * @param observations game state observed by each player, null for players which aren't playing anymore.
+     * @param deadlineMillis time each player has to answer, in milliseconds of wall-clock time.
+     * @param timer how calls are timed. CPU time is measured in the thread running the call.
+     * @param elapsedNanos receives the time each call took in nanoseconds; NOT_ASKED for players not asked (not
+     *                     playing, or still running a late call), and LATE for players which didn't answer in time.
+     * @return the actions of the players, ACTION_STOP for those which aren't playing, or didn't answer in time.
+     */
+    public Types.ACTIONS[] act(List<Player> players, GameState[] observations, long deadlineMillis,
+                               ElapsedCpuTimer.TimerType timer, long[] elapsedNanos) {
+        int n = players.size();
+        List<Future<Decision>> calls = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Player p = players.get(i);
+            GameState gs = observations[i];
+            Future<Decision> call = null;
+            if (gs != null && !pending.containsKey(p)) {
+                call = pool.submit(() -> {
+                    ElapsedCpuTimer t = new ElapsedCpuTimer(timer);
+                    Types.ACTIONS action = p.act(gs);
+                    return new Decision(action, t.elapsedNanos());
+                });
+                pending.put(p, call);
+            }
+            calls.add(call);
+        }
+
+        long deadline = System.nanoTime() + deadlineMillis * 1_000_000L;
+        Types.ACTIONS[] actions = new Types.ACTIONS[n];
+        for (int i = 0; i < n; i++) {
+            actions[i] = Types.ACTIONS.ACTION_STOP;
+            elapsedNanos[i] = NOT_ASKED;
+            Future<Decision> call = calls.get(i);
+            if (call == null) {
+                continue;
+            }
+            try {
+                Decision decision = call.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                elapsedNanos[i] = decision.elapsedNanos;
+                if (decision.action != null) {
+                    actions[i] = decision.action;
+                }
+            } catch (TimeoutException e) {
+                elapsedNanos[i] = LATE;
+                continue;  // Still running: the call stays pending until it returns
+            } catch (ExecutionException e) {
+                e.getCause().printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                continue;
+            }
+            pending.remove(players.get(i));
+        }
+
+        // Forget late calls which have returned by now
+        pending.values().removeIf(Future::isDone);
+        return actions;
+    }
+
+    /**
+     * Stops the threads of this executor. Calls still running are interrupted.
+     */
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Action returned by a call, and time it took.
+     */
+    private static class Decision {
+        final Types.ACTIONS action;
+        final long elapsedNanos;
+
+        Decision(Types.ACTIONS action, long elapsedNanos) {
+            this.action = action;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import players.Player;
+import players.SimplePlayer;
+import utils.Types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AgentExecutorTest {
+
+    /**
+     * Players answering late play ACTION_STOP, and aren't asked again until they answer. Players which aren't
+     * playing or throw exceptions also play ACTION_STOP.
+     */
+    @Test
+    void latePlayersStop() {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger slowCalls = new AtomicInteger();
+        List<Player> players = Arrays.asList(
+                new FixedPlayer(10, Types.ACTIONS.ACTION_UP, null, null),
+                new FixedPlayer(11, Types.ACTIONS.ACTION_DOWN, release, slowCalls),
+                new FixedPlayer(12, null, null, null),
+                new FixedPlayer(13, Types.ACTIONS.ACTION_BOMB, null, null));
+        GameState gs = new GameState(1, Types.BOARD_SIZE, Types.GAME_MODE.FFA, true);
+        gs.init();
+        GameState[] observations = {gs, gs, gs, null};
+
+        try (AgentExecutor executor = new AgentExecutor()) {
+            Types.ACTIONS[] expected = {Types.ACTIONS.ACTION_UP, Types.ACTIONS.ACTION_STOP,
+                    Types.ACTIONS.ACTION_STOP, Types.ACTIONS.ACTION_STOP};
+            assertArrayEquals(expected, executor.act(players, observations, 50));
+            assertArrayEquals(expected, executor.act(players, observations, 50));
+            assertEquals(1, slowCalls.get());
+
+            // Once the late call returns, the player is asked again
+            release.countDown();
+            assertEquals(Types.ACTIONS.ACTION_DOWN, waitForAction(executor, players, observations));
+            assertEquals(2, slowCalls.get());
+        }
+    }
+
+    /**
+     * Games played in separate threads must play as games played in a single thread, when agents are in time.
+     */
+    @Test
+    void separateThreadsPlaySameGame() {
+        Types.RESULT[][] results = new Types.RESULT[2][];
+        GameState[] states = new GameState[2];
+        for (int t = 0; t < 2; t++) {
+            GameContext context = new GameContext(Types.getGameConfig(), -1, false);
+            context.setActDeadline(10000);
+            Game game = new Game(1357, Types.BOARD_SIZE, Types.GAME_MODE.FFA, "", context);
+            ArrayList<Player> players = new ArrayList<>();
+            for (int i = 0; i < Types.NUM_PLAYERS; i++) {
+                players.add(new SimplePlayer(1357, Types.TILETYPE.AGENT0.getKey() + i));
+            }
+            game.setPlayers(players);
+            results[t] = game.run(t == 1);
+            states[t] = game.getGameState();
+        }
+        assertArrayEquals(results[0], results[1]);
+        assertEquals(states[0], states[1]);
+    }
+
+    private Types.ACTIONS waitForAction(AgentExecutor executor, List<Player> players, GameState[] observations) {
+        for (int i = 0; i < 100; i++) {
+            Types.ACTIONS action = executor.act(players, observations, 50)[1];
+            if (action != Types.ACTIONS.ACTION_STOP) {
+                return action;
+            }
+        }
+        return Types.ACTIONS.ACTION_STOP;
+    }
+
+    /**
+     * Plays always the same action, waiting for a latch first if given one. Throws if it has no action.
+     */
+    private static class FixedPlayer extends Player {
+        private final Types.ACTIONS action;
+        private final CountDownLatch latch;
+        private final AtomicInteger calls;
+
+        FixedPlayer(int id, Types.ACTIONS action, CountDownLatch latch, AtomicInteger calls) {
+            super(0, id);
+            this.action = action;
+            this.latch = latch;
+            this.calls = calls;
+        }
+
+        @Override
+        public Types.ACTIONS act(GameState gs) {
+            if (calls != null) calls.incrementAndGet();
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    return null;
+                }
+            }
+            if (action == null) {
+                throw new IllegalStateException("No action");
+            }
+            return action;
+        }
+
+        @Override
+        public Player copy() {
+            return new FixedPlayer(playerID, action, latch, calls);
+        }
+    }
+}
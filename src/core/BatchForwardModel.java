@@ -0,0 +1,155 @@
+package core;
+
+import java.util.stream.IntStream;
+
+import static utils.Types.MAX_GAME_TICKS;
+import static utils.Types.NUM_PLAYERS;
+
+/**
+ * Batch of independent game states stepped together, i.e. for many rollouts from the same root or for self-play
+ * data generation. Each state is a BitboardForwardModel of its own (primitive arrays, no game objects), and step()
+ * advances all states that haven't ended with a single call, taking the actions of all players of all states from
+ * one int array. States follow the same rules as GameState.next(): the tick counter is increased on every step and
+ * timeouts are resolved when MAX_GAME_TICKS is reached. States which have ended are not advanced anymore.
+ * The batch adds no speed of its own over stepping the models one by one: their data isn't laid out across states,
+ * so no pass runs over the whole batch. It only saves the bookkeeping, and when running in parallel, splits the
+ * states in chunks which are stepped in different threads.
+ */
+public class BatchForwardModel {
+
+    // Minimum number of states stepped by each thread when running in parallel.
+    private static final int CHUNK_SIZE = 16;
+
+    private final BitboardForwardModel[] states;
+    private final int[] ticks;
+    private final int[] numAlive;
+    private final boolean[] ended;
+    private final boolean parallel;
+
+    /**
+     * Creates a batch of n copies of the given game state.
+     * @param root state to copy into all states of the batch.
+     * @param n number of states in the batch.
+     * @param parallel true if states should be stepped in several threads.
+     */
+    public BatchForwardModel(GameState root, int n, boolean parallel) {
+        this.states = new BitboardForwardModel[n];
+        this.ticks = new int[n];
+        this.numAlive = new int[n];
+        this.ended = new boolean[n];
+        this.parallel = parallel;
+
+        BitboardForwardModel model = BitboardForwardModel.fromGameState(root);
+        for (int i = 0; i < n; i++) {
+            states[i] = model.copy();
+        }
+        reset(model, root.getTick());
+    }
+
+    /**
+     * Sets all states of the batch to copies of the given game state, reusing their arrays.
+     * @param root state to copy into all states of the batch.
+     */
+    public void reset(GameState root) {
+        reset(BitboardForwardModel.fromGameState(root), root.getTick());
+    }
+
+    /**
+     * Sets all states of the batch to copies of the given model, reusing their arrays.
+     * @param root model to copy into all states of the batch. Must have the same board size.
+     * @param tick game tick of the root.
+     */
+    public void reset(BitboardForwardModel root, int tick) {
+        for (int i = 0; i < states.length; i++) {
+            reset(i, root, tick);
+        }
+    }
+
+    /**
+     * Sets one state of the batch to a copy of the given model, reusing its arrays.
+     * @param i index of the state.
+     * @param root model to copy. Must have the same board size.
+     * @param tick game tick of the root.
+     */
+    public void reset(int i, BitboardForwardModel root, int tick) {
+        root.copyInto(states[i]);
+        ticks[i] = tick;
+        numAlive[i] = root.getNumAliveAgents();
+        ended[i] = root.isEnded(tick);
+    }
+
+    /**
+     * Advances all states which haven't ended by one tick.
+     * @param actions actions of all players of all states, as indices in Types.ACTIONS.values(). The actions for
+     *                state i are in positions [i * NUM_PLAYERS, (i + 1) * NUM_PLAYERS).
+     */
+    public void step(int[] actions) {
+        if (actions.length < states.length * NUM_PLAYERS) {
+            throw new IllegalArgumentException("Expected " + states.length * NUM_PLAYERS + " actions, received "
+                    + actions.length);
+        }
+
+        int nChunks = (states.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (parallel && nChunks > 1) {
+            IntStream.range(0, nChunks).parallel().forEach(c -> stepChunk(c, actions));
+        } else {
+            for (int c = 0; c < nChunks; c++) {
+                stepChunk(c, actions);
+            }
+        }
+    }
+
+    private void stepChunk(int chunk, int[] actions) {
+        int end = Math.min(states.length, (chunk + 1) * CHUNK_SIZE);
+        for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+            if (ended[i]) {
+                continue;
+            }
+            BitboardForwardModel state = states[i];
+            state.next(actions, i * NUM_PLAYERS);
+            ticks[i]++;
+            if (ticks[i] == MAX_GAME_TICKS) {
+                state.processTimeout();
+            }
+
+            // Results only change when agents die or the game times out, so that's when the game may end
+            if (ticks[i] >= MAX_GAME_TICKS || state.getNumAliveAgents() != numAlive[i]) {
+                numAlive[i] = state.getNumAliveAgents();
+                ended[i] = state.isEnded(ticks[i]);
+            }
+        }
+    }
+
+    /**
+     * @return number of states in the batch.
+     */
+    public int size() {
+        return states.length;
+    }
+
+    /**
+     * @param i index of the state.
+     * @return the model holding state i. Changes made to it affect the batch.
+     */
+    public BitboardForwardModel get(int i) {
+        return states[i];
+    }
+
+    public int getTick(int i) {
+        return ticks[i];
+    }
+
+    public boolean isEnded(int i) {
+        return ended[i];
+    }
+
+    /**
+     * @return true if all states of the batch have ended.
+     */
+    public boolean allEnded() {
+        for (boolean e : ended) {
+            if (!e) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,74 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import utils.Types;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchForwardModelTest {
+
+    /**
+     * Every state of the batch must evolve as a game state receiving the same actions.
+     */
+    @Test
+    void matchesGameStates() {
+        runLockstep(newRoot(), 8, false);
+    }
+
+    @Test
+    void matchesGameStatesInParallel() {
+        runLockstep(newRoot(), 40, true);
+    }
+
+    @Test
+    void matchesGameStatesWithStackedBombs() {
+        GameState root = newRoot();
+        BitboardForwardModelTest.addStackedBombs(root.model);
+        runLockstep(root, 8, false);
+    }
+
+    private GameState newRoot() {
+        GameState root = new GameState(5, Types.BOARD_SIZE, Types.GAME_MODE.FFA, true);
+        root.init();
+        return root;
+    }
+
+    private void runLockstep(GameState root, int n, boolean parallel) {
+        BatchForwardModel batch = new BatchForwardModel(root, n, parallel);
+        GameState[] states = new GameState[n];
+        for (int i = 0; i < n; i++) {
+            states[i] = root.copy();
+        }
+
+        Random rnd = new Random(5);
+        int[] actions = new int[n * Types.NUM_PLAYERS];
+        Types.ACTIONS[] all = Types.ACTIONS.values();
+        for (int t = 0; t < Types.MAX_GAME_TICKS && !batch.allEnded(); t++) {
+            for (int i = 0; i < actions.length; i++) {
+                actions[i] = rnd.nextInt(all.length);
+            }
+            batch.step(actions);
+
+            for (int i = 0; i < n; i++) {
+                if (isEnded(states[i])) {
+                    assertTrue(batch.isEnded(i));
+                    continue;
+                }
+                Types.ACTIONS[] stateActions = new Types.ACTIONS[Types.NUM_PLAYERS];
+                for (int p = 0; p < Types.NUM_PLAYERS; p++) {
+                    stateActions[p] = all[actions[i * Types.NUM_PLAYERS + p]];
+                }
+                states[i].next(stateActions);
+                assertEquals(states[i].getTick(), batch.getTick(i));
+                assertEquals(states[i].model, batch.get(i).toForwardModel());
+                assertEquals(isEnded(states[i]), batch.isEnded(i));
+            }
+        }
+    }
+
+    private boolean isEnded(GameState gs) {
+        return gs.getContext().getGameConfig().isEnded(gs.getTick(), gs.gameMode, gs.getAliveAgents());
+    }
+}
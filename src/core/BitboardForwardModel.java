@@ -0,0 +1,1288 @@
+package core;
+
+import objects.Avatar;
+import objects.Bomb;
+import objects.Flame;
+import objects.GameObject;
+import utils.Types;
+import utils.Vector2d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static utils.Types.*;
+
+/**
+ * Compact alternative to ForwardModel, meant for simulations. The board is stored as one bitboard (array of longs)
+ * per tile type, with a byte mailbox kept in sync for O(1) type lookups. Cells are indexed as y * size + x.
+ * Bombs and flames are kept in parallel primitive arrays, in the same order as the lists of ForwardModel, so that
+ * next() produces exactly the same game states as ForwardModel.next() (use toForwardModel() to compare them).
+ * This model does not keep events statistics. It can advance the true state of a game (Types.ENGINE.BITBOARD), but
+ * the game state it belongs to is then the one reading its observations (see IForwardModel).
+ */
+public class BitboardForwardModel implements IForwardModel {
+
+    private static final Types.TILETYPE[] TILES = Types.TILETYPE.values();
+    private static final Types.ACTIONS[] ACTIONS = Types.ACTIONS.values();
+    private static final byte NO_POWERUP = -1;
+
+    private static final byte PASSAGE_K = (byte) TILETYPE.PASSAGE.getKey();
+    private static final byte RIGID_K = (byte) TILETYPE.RIGID.getKey();
+    private static final byte WOOD_K = (byte) TILETYPE.WOOD.getKey();
+    private static final byte BOMB_K = (byte) TILETYPE.BOMB.getKey();
+    private static final byte FLAMES_K = (byte) TILETYPE.FLAMES.getKey();
+    private static final byte EXTRABOMB_K = (byte) TILETYPE.EXTRABOMB.getKey();
+    private static final byte INCRRANGE_K = (byte) TILETYPE.INCRRANGE.getKey();
+    private static final byte KICK_K = (byte) TILETYPE.KICK.getKey();
+    private static final byte AGENT0_K = (byte) TILETYPE.AGENT0.getKey();
+
+    // Size of the board, number of cells and number of longs per bitboard.
+    private int size;
+    private int nCells;
+    private int words;
+
+    // Game mode being played, and diffusion rule derived from it.
+    private Types.GAME_MODE game_mode;
+    private Types.DIFFUSION_RULE diffusion_rule;
+
+    // Settings and wall clock of the game, owned by this model.
+    private GameContext context;
+
+    // One bitboard per tile type, packed in a single array: bit 'cell' of type 't' is in bits[t * words + cell / 64]
+    private long[] bits;
+
+    // Tile type (key) of each cell, mirrors the bitboards.
+    private byte[] tiles;
+
+    // Hidden power-ups (tile key) of each cell, NO_POWERUP if there's none.
+    private byte[] powerups;
+
+    // Observable bomb grids, indexed by cell.
+    private int[] bombBlastStrength;
+    private int[] bombLife;
+    private int[] bombDiffusionCounter;
+
+    // Agents, indexed by player index. Positions are cells, -1 if unknown.
+    private int[] agentPos;
+    private int[] agentDesired;
+    private int[] agentAmmo;
+    private int[] agentBlast;
+    private int[] agentLife;
+    private boolean[] agentKick;
+    private Types.RESULT[] agentWinner;
+
+    // Indices of the agents alive, in the order they are processed.
+    private int[] alive;
+    private int nAlive;
+
+    // Bombs, in order of creation.
+    private int nBombs;
+    private int[] bPos;
+    private int[] bDesired;
+    private int[] bLife;
+    private int[] bBlast;
+    private int[] bVelX;
+    private int[] bVelY;
+    private int[] bOwner;
+    private int[] bDiffusion;
+
+    // Flames, in order of creation.
+    private int nFlames;
+    private int[] fPos;
+    private int[] fLife;
+    private int[] fOwner;
+
+    // Scratch space, reused on every call to next().
+    private long[] occupancy;
+    private long[] deadCells;
+    private int[] counts;
+    private int[] deadFlames;
+    private boolean[] deadBombs;
+    private int[] deadAgents;
+    private Types.ACTIONS[] actionScratch = new Types.ACTIONS[NUM_PLAYERS];
+
+    private BitboardForwardModel(int size, Types.GAME_MODE game_mode, Types.DIFFUSION_RULE diffusion_rule,
+                                 GameContext context) {
+        this.context = context;
+        this.size = size;
+        this.nCells = size * size;
+        this.words = (nCells + 63) >>> 6;
+        this.game_mode = game_mode;
+        this.diffusion_rule = diffusion_rule;
+
+        bits = new long[TILES.length * words];
+        tiles = new byte[nCells];
+        powerups = new byte[nCells];
+        bombBlastStrength = new int[nCells];
+        bombLife = new int[nCells];
+        bombDiffusionCounter = new int[nCells];
+
+        agentPos = new int[NUM_PLAYERS];
+        agentDesired = new int[NUM_PLAYERS];
+        agentAmmo = new int[NUM_PLAYERS];
+        agentBlast = new int[NUM_PLAYERS];
+        agentLife = new int[NUM_PLAYERS];
+        agentKick = new boolean[NUM_PLAYERS];
+        agentWinner = new Types.RESULT[NUM_PLAYERS];
+        alive = new int[NUM_PLAYERS];
+
+        allocateBombs(8);
+        allocateFlames(32);
+
+        occupancy = new long[words];
+        deadCells = new long[words];
+        counts = new int[nCells];
+        deadAgents = new int[NUM_PLAYERS];
+    }
+
+    /**
+     * Creates a bitboard model with the same state as the given forward model.
+     * @param fm forward model to translate.
+     */
+    BitboardForwardModel(ForwardModel fm) {
+        this(fm.getBoard().length, fm.getGameMode(), fm.getDiffusionRule(), fm.getContext().copy());
+
+        Types.TILETYPE[][] board = fm.getBoard();
+        Types.TILETYPE[][] hidden = fm.getPowerups();
+        int[][] blast = fm.getBombBlastStrength();
+        int[][] life = fm.getBombLife();
+        int[][] diffusion = fm.getBombDiffusionCounter();
+
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int c = y * size + x;
+                Types.TILETYPE t = board[y][x] == null ? TILETYPE.PASSAGE : board[y][x];
+                tiles[c] = (byte) t.getKey();
+                setBit(bits, t.getKey() * words, c);
+
+                powerups[c] = (hidden != null && hidden[y][x] != null) ? (byte) hidden[y][x].getKey() : NO_POWERUP;
+                if (blast != null) bombBlastStrength[c] = blast[y][x];
+                if (life != null) bombLife[c] = life[y][x];
+                if (diffusion != null) bombDiffusionCounter[c] = diffusion[y][x];
+            }
+        }
+
+        GameObject[] agents = fm.getAgents();
+        for (int i = 0; i < NUM_PLAYERS; i++) {
+            Avatar a = (Avatar) agents[i];
+            agentPos[i] = cellOf(a.getPosition());
+            agentDesired[i] = cellOf(a.getDesiredCoordinate());
+            agentAmmo[i] = a.getAmmo();
+            agentBlast[i] = a.getBlastStrength();
+            agentLife[i] = a.getLife();
+            agentKick[i] = a.canKick();
+            agentWinner[i] = a.getWinner();
+        }
+        for (GameObject a : fm.getAliveAgents()) {
+            alive[nAlive++] = a.getType().getKey() - AGENT0_K;
+        }
+
+        ArrayList<GameObject> bombs = fm.getBombs();
+        allocateBombs(Math.max(8, bombs.size()));
+        for (GameObject o : bombs) {
+            Bomb b = (Bomb) o;
+            int i = nBombs++;
+            bPos[i] = cellOf(b.getPosition());
+            bDesired[i] = cellOf(b.getDesiredCoordinate());
+            bLife[i] = b.getLife();
+            bBlast[i] = b.getBlastStrength();
+            bVelX[i] = b.getVelocity().x;
+            bVelY[i] = b.getVelocity().y;
+            bOwner[i] = b.getPlayerIdx();
+            bDiffusion[i] = b.getDiffusionCounter();
+        }
+
+        ArrayList<GameObject> flames = fm.getFlames();
+        allocateFlames(Math.max(32, flames.size()));
+        for (GameObject o : flames) {
+            int i = nFlames++;
+            fPos[i] = cellOf(o.getPosition());
+            fLife[i] = o.getLife();
+            fOwner[i] = ((Flame) o).playerIdx;
+        }
+    }
+
+    /**
+     * Creates a bitboard model with the same state as the forward model of the given game state.
+     * @param gs game state to translate.
+     * @return a new bitboard model.
+     */
+    public static BitboardForwardModel fromGameState(GameState gs) {
+        return new BitboardForwardModel(gs.getModel());
+    }
+
+    /**
+     * Creates a copy of this model
+     * @return a deep copy of this model
+     */
+    public BitboardForwardModel copy() {
+        BitboardForwardModel copy = new BitboardForwardModel(size, game_mode, diffusion_rule, context.copy());
+        copyInto(copy);
+        return copy;
+    }
+
+    /**
+     * Creates a copy of this model, reduced to the observation of a player. Reduced copies are made by the reference
+     * model, so they follow its rules for what players can see.
+     * @param playerIdx index of the player to reduce the state for, -1 for a full copy.
+     * @return a copy of this model.
+     */
+    public BitboardForwardModel copy(int playerIdx) {
+        if (playerIdx == -1) {
+            return copy();
+        }
+        return new BitboardForwardModel(toForwardModel().copy(playerIdx));
+    }
+
+    /**
+     * Copies this model into another one of the same board size, reusing its arrays. The previous contents of the
+     * target are lost.
+     * @param copy model to overwrite.
+     */
+    public void copyInto(BitboardForwardModel copy) {
+        if (copy.size != size) {
+            throw new IllegalArgumentException("Can't copy a model of size " + size + " into one of size " + copy.size);
+        }
+        copy.game_mode = game_mode;
+        copy.diffusion_rule = diffusion_rule;
+        context.copyInto(copy.context);
+        System.arraycopy(bits, 0, copy.bits, 0, bits.length);
+        System.arraycopy(tiles, 0, copy.tiles, 0, nCells);
+        System.arraycopy(powerups, 0, copy.powerups, 0, nCells);
+        System.arraycopy(bombBlastStrength, 0, copy.bombBlastStrength, 0, nCells);
+        System.arraycopy(bombLife, 0, copy.bombLife, 0, nCells);
+        System.arraycopy(bombDiffusionCounter, 0, copy.bombDiffusionCounter, 0, nCells);
+
+        System.arraycopy(agentPos, 0, copy.agentPos, 0, NUM_PLAYERS);
+        System.arraycopy(agentDesired, 0, copy.agentDesired, 0, NUM_PLAYERS);
+        System.arraycopy(agentAmmo, 0, copy.agentAmmo, 0, NUM_PLAYERS);
+        System.arraycopy(agentBlast, 0, copy.agentBlast, 0, NUM_PLAYERS);
+        System.arraycopy(agentLife, 0, copy.agentLife, 0, NUM_PLAYERS);
+        System.arraycopy(agentKick, 0, copy.agentKick, 0, NUM_PLAYERS);
+        System.arraycopy(agentWinner, 0, copy.agentWinner, 0, NUM_PLAYERS);
+        System.arraycopy(alive, 0, copy.alive, 0, NUM_PLAYERS);
+        copy.nAlive = nAlive;
+
+        if (copy.bPos.length < bPos.length) copy.allocateBombs(bPos.length);
+        copy.nBombs = nBombs;
+        System.arraycopy(bPos, 0, copy.bPos, 0, nBombs);
+        System.arraycopy(bDesired, 0, copy.bDesired, 0, nBombs);
+        System.arraycopy(bLife, 0, copy.bLife, 0, nBombs);
+        System.arraycopy(bBlast, 0, copy.bBlast, 0, nBombs);
+        System.arraycopy(bVelX, 0, copy.bVelX, 0, nBombs);
+        System.arraycopy(bVelY, 0, copy.bVelY, 0, nBombs);
+        System.arraycopy(bOwner, 0, copy.bOwner, 0, nBombs);
+        System.arraycopy(bDiffusion, 0, copy.bDiffusion, 0, nBombs);
+
+        if (copy.fPos.length < fPos.length) copy.allocateFlames(fPos.length);
+        copy.nFlames = nFlames;
+        System.arraycopy(fPos, 0, copy.fPos, 0, nFlames);
+        System.arraycopy(fLife, 0, copy.fLife, 0, nFlames);
+        System.arraycopy(fOwner, 0, copy.fOwner, 0, nFlames);
+    }
+
+    /**
+     * Same as next(ACTIONS[]), with the actions of the players given by their index in Types.ACTIONS.values(),
+     * starting at position offset of the array. Used to step many models from a single array of actions.
+     * @param playerActions array containing the actions of all players.
+     * @param offset index of the action of the first player.
+     */
+    public void next(int[] playerActions, int offset) {
+        for (int i = 0; i < NUM_PLAYERS; i++) {
+            actionScratch[i] = ACTIONS[playerActions[offset + i]];
+        }
+        next(actionScratch);
+    }
+
+    /**
+     * ROLLS the MODEL FORWARD, applying the actions received as parameters, and executing all passive events
+     * (i.e. bombs exploding, flames appearing/disappearing). Follows the same steps as ForwardModel.next().
+     * It modifies THIS object to time t+1.
+     * @param playerActions player actions to execute in this game state.
+     */
+    public void next(Types.ACTIONS[] playerActions) {
+
+        // 1. Put actions into effect
+        translatePlayerActions(playerActions);
+
+        // 2. Tick the flames
+        int nDeadFlames = 0;
+        if (deadFlames == null || deadFlames.length < nFlames) {
+            deadFlames = new int[fPos.length];
+        }
+        Arrays.fill(deadCells, 0);
+        for (int i = 0; i < nFlames; i++) {
+            fLife[i]--;
+            if (fLife[i] == 0) {
+                deadFlames[nDeadFlames++] = i;
+                setBit(deadCells, 0, fPos[i]);
+            }
+        }
+
+        // 3. Agents already have desired positions set according to their chosen actions
+        // 4. Tick bombs, they set their desired position as well as their life.
+        for (int b = 0; b < nBombs; b++) {
+            bLife[b]--;
+            int x = bPos[b] % size + bVelX[b];
+            int y = bPos[b] / size + bVelY[b];
+            if (isLegal(x, y, false)) {
+                bDesired[b] = y * size + x;
+            } else {
+                bDesired[b] = bPos[b];
+                bVelX[b] = 0;
+                bVelY[b] = 0;
+            }
+        }
+
+        // 5. Position swap:
+        //      agent <-> agent. Bounce back both.
+        //      bomb <-> bomb. Bounce back both.
+        //      bomb <-> agent. Bomb only bounce back.
+        checkAgentSwaps();
+        checkBombSwaps();
+        checkAgentBombSwaps();
+
+        // 6. If >= 2 agents or >= 2 bombs on same space, bounce both back.
+        checkAgentOverlap();
+        checkBombOverlap();
+
+        // 7. Handle kicks & moving bombs hitting agents that can not kick
+        handleMovingBombs();
+
+        // 8. Late update bomb overlaps. In previous loop it's possible that some bombs ended up overlapping.
+        checkBombOverlap();
+
+        // If bombs were bounced back, then they may overlap players again, bounce players back too if players moved.
+        for (int b = 0; b < nBombs; b++) {
+            for (int p = 0; p < NUM_PLAYERS; p++) {
+                if (agentDesired[p] != agentPos[p] && agentDesired[p] == bDesired[b]) {
+                    revertAgent(p);
+                }
+            }
+            moveBomb(b);
+        }
+
+        // 9. Players pick up power-ups
+        for (int i = 0; i < nAlive; i++) {
+            pickPowerUp(alive[i]);
+        }
+
+        // 10. Explode bombs
+        handleBombExplosions();
+
+        // 11. Resolve flame on death effects
+        for (int i = 0; i < nDeadFlames; i++) {
+            int c = fPos[deadFlames[i]];
+            if (powerups[c] != NO_POWERUP) {
+                setTile(c, powerups[c]);
+                powerups[c] = NO_POWERUP;
+            } else {
+                setTile(c, PASSAGE_K);
+            }
+        }
+        if (nDeadFlames > 0) {
+            removeDeadFlames();
+        }
+
+        // 12. Add flames left alive back into the board if missing.
+        for (int i = 0; i < nFlames; i++) {
+            if (tiles[fPos[i]] != FLAMES_K) {
+                setTile(fPos[i], FLAMES_K);
+            }
+        }
+
+        // 13. Kill agents on flames. Otherwise, update position on board.
+        int nDeadAgents = handleAgentKilling();
+
+        // 14. Check for terminated agents
+        if (nDeadAgents > 0) {
+            processDeadAgents(nDeadAgents);
+        }
+
+        // 15. Update observable board grids of bomb blast strengths, bomb lives and diffusion counters
+        Arrays.fill(bombBlastStrength, 0);
+        Arrays.fill(bombLife, 0);
+        Arrays.fill(bombDiffusionCounter, 0);
+        for (int b = 0; b < nBombs; b++) {
+            bombBlastStrength[bPos[b]] = bBlast[b];
+            bombLife[bPos[b]] = bLife[b];
+            bombDiffusionCounter[bPos[b]] = bDiffusion[b];
+        }
+
+        // add a flame wall every WALL_SPEED ticks.
+        int wallLayer = context.tickWallClock();
+        if (wallLayer > 0)
+        {
+            addWallOfFire(wallLayer);
+        }
+    }
+
+    /**
+     * Inserts player action effects into the game (desired positions, bombs and diffusions).
+     * @param actions - array of actions, one per player.
+     */
+    private void translatePlayerActions(Types.ACTIONS[] actions) {
+        for (int i = 0; i < actions.length; i++) {
+            if (agentWinner[i] != Types.RESULT.INCOMPLETE) {
+                continue;
+            }
+            int pos = agentPos[i];
+            if (pos < 0) {
+                System.out.println("Agent has no position");
+                continue;
+            }
+
+            Types.ACTIONS action = actions[i];
+            if (action == null) {
+                System.out.println("WARNING: " + TILES[AGENT0_K + i] + " sent an action NULL.");
+                action = Types.ACTIONS.ACTION_STOP;
+            }
+
+            Types.DIRECTIONS dir = action.getDirection();
+            int x = pos % size + dir.x();
+            int y = pos / size + dir.y();
+            agentDesired[i] = isLegal(x, y, false) ? y * size + x : pos;
+
+            if (action == Types.ACTIONS.ACTION_BOMB) {
+                if (agentAmmo[i] > 0 && bombBlastStrength[pos] == 0) {
+                    agentAmmo[i]--;
+                    addBomb(pos, agentBlast[i], BOMB_LIFE, i, true);
+                }
+            }
+
+            if (action == Types.ACTIONS.ACTION_DIFFUSE) {
+                int b = checkNeighbourhoodForBomb(pos);
+                if (b >= 0) {
+                    diffuseBomb(b, i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the first bomb in the 3x3 neighbourhood of a cell.
+     * @param cell cell to check around.
+     * @return index of the bomb, -1 if there's none.
+     */
+    private int checkNeighbourhoodForBomb(int cell) {
+        int x = cell % size, y = cell / size;
+        for (int b = 0; b < nBombs; b++) {
+            int dx = bPos[b] % size - x;
+            int dy = bPos[b] / size - y;
+            if (dx >= -1 && dx <= 1 && dy >= -1 && dy <= 1) {
+                return b;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Increases the diffusion counter of a bomb, applying the diffusion rule if the bomb is diffused.
+     * @param b index of the bomb.
+     * @param agent index of the agent diffusing the bomb.
+     */
+    private void diffuseBomb(int b, int agent) {
+        bDiffusion[b]++;
+
+        if (bDiffusion[b] >= BOMB_DIFFUSION_THRESHOLD) {
+            int choice = diffusion_rule.getKey();
+            if (diffusion_rule == Types.DIFFUSION_RULE.RANDOM) {
+                choice = new Random().nextInt(2);
+            }
+
+            int currentPos = bPos[b];
+            int blast = bBlast[b], life = bLife[b], owner = bOwner[b];
+
+            switch (choice) {
+                case 0: //GET_AMMO
+                    agentAmmo[agent]++;
+                    removeBomb(firstEqualBomb(b));
+                    setTile(currentPos, PASSAGE_K);
+                    break;
+
+                case 1: //TELEPORT
+                    Random rand = new Random();
+                    int cx = currentPos % size, cy = currentPos / size;
+                    int x, y;
+                    do {
+                        x = rand.nextInt(size);
+                        y = rand.nextInt(size);
+                    } while (!(tiles[x * size + y] == PASSAGE_K && x != cx && y != cy));
+
+                    removeBomb(firstEqualBomb(b));
+                    setTile(currentPos, PASSAGE_K);
+                    addBomb(y * size + x, blast, life, owner, true);
+            }
+        }
+    }
+
+    /**
+     * Handles bombs bouncing, being kicked or stopped by agents.
+     */
+    private void handleMovingBombs() {
+        for (int b = 0; b < nBombs; b++) {
+            for (int i = 0; i < nAlive; i++) {
+                int p = alive[i];
+                if (bDesired[b] == bPos[b]) {
+                    bVelX[b] = 0;
+                    bVelY[b] = 0;
+                }
+                if (agentDesired[p] == bDesired[b]) {
+                    // Agent tried to move onto bomb OR bomb tried to move onto agent, check if agent can kick
+                    if (agentKick[p]) {
+                        // Player can kick, so set bomb velocity
+                        int vx = agentDesired[p] % size - agentPos[p] % size;
+                        int vy = agentDesired[p] / size - agentPos[p] / size;
+                        bVelX[b] = vx;
+                        bVelY[b] = vy;
+
+                        // First bomb move on the same tick as the kick happened. Do not move into players or walls.
+                        if (vx != 0 || vy != 0) {
+                            int x = bDesired[b] % size + vx;
+                            int y = bDesired[b] / size + vy;
+                            if (isLegal(x, y, true)) {
+                                bDesired[b] = y * size + x;
+                            } else {
+                                bDesired[b] = bPos[b];
+                                bVelX[b] = 0;
+                                bVelY[b] = 0;
+                            }
+                        }
+                    } else {
+                        // Move both back
+                        if (agentDesired[p] != agentPos[p]) {
+                            revertAgent(p);
+                        }
+                        if (bDesired[b] != bPos[b]) {
+                            bDesired[b] = bPos[b];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles bomb explosions, including chain reactions, creating the flames that destroy things.
+     * Leaves the positions of all flames in this tick in the occupancy bitboard.
+     */
+    private void handleBombExplosions() {
+        Arrays.fill(occupancy, 0);
+        for (int i = 0; i < nFlames; i++) {
+            setBit(occupancy, 0, fPos[i]);
+        }
+        if (deadBombs == null || deadBombs.length < nBombs) {
+            deadBombs = new boolean[bPos.length];
+        }
+
+        boolean newExplosions = true;
+        while (newExplosions) {
+            // Use this flag to chain explosions. If new flames are added, then we need to check all bombs again
+            newExplosions = false;
+            int nDead = 0;
+
+            for (int b = 0; b < nBombs; b++) {
+                deadBombs[b] = false;
+
+                // This bomb will explode and create new flames if life reached 0, or forced to explode
+                if (bLife[b] == 0 || testBit(occupancy, 0, bPos[b])) {
+                    int firstFlame = nFlames;
+                    explode(b);
+                    if (nFlames > firstFlame) {
+                        newExplosions = true;
+                        deadBombs[b] = true;
+                        nDead++;
+
+                        // Give the player 1 ammo back for this bomb
+                        if (bOwner[b] >= 0) {
+                            agentAmmo[bOwner[b]]++;
+                        }
+
+                        // Add new flame positions to the map
+                        for (int f = firstFlame; f < nFlames; f++) {
+                            setBit(occupancy, 0, fPos[f]);
+                        }
+                    }
+                }
+            }
+
+            if (nDead > 0) {
+                removeDeadBombs();
+            }
+        }
+    }
+
+    /**
+     * Creates the flames of an exploding bomb, in the same order as Bomb.explode().
+     * @param b index of the bomb.
+     */
+    private void explode(int b) {
+        int x = bPos[b] % size, y = bPos[b] / size;
+        int blast = bBlast[b], owner = bOwner[b];
+
+        // First add the flame at the current position
+        tryToAddFlame(x, y, owner);
+        boolean advanceP = true;
+        boolean advanceM = true;
+        for (int i = 1; i < blast; i++) {
+            if (advanceP) advanceP = tryToAddFlame(x + i, y, owner);
+            if (advanceM) advanceM = tryToAddFlame(x - i, y, owner);
+        }
+        advanceM = true;
+        advanceP = true;
+        for (int i = 1; i < blast; i++) {
+            if (advanceP) advanceP = tryToAddFlame(x, y + i, owner);
+            if (advanceM) advanceM = tryToAddFlame(x, y - i, owner);
+        }
+    }
+
+    /**
+     * Adds a flame at (x, y) unless there is a rigid block or the position is out of the board.
+     * @return true if the blast keeps expanding past this position.
+     */
+    private boolean tryToAddFlame(int x, int y, int owner) {
+        if (x < 0 || y < 0 || x >= size || y >= size) {
+            return false;
+        }
+        int c = y * size + x;
+        byte type = tiles[c];
+        if (type == RIGID_K) {
+            return false;
+        }
+        appendFlame(c, FLAME_LIFE, owner);
+        setTile(c, FLAMES_K);
+        return type != WOOD_K;  // Flames should stop at first wooden block
+    }
+
+    /**
+     * Kills agents on flames and moves the rest.
+     * @return number of agents killed on this tick, stored at the start of deadAgents.
+     */
+    private int handleAgentKilling() {
+        int nDead = 0;
+        for (int i = 0; i < nAlive; i++) {
+            int p = alive[i];
+            int nextPos = agentDesired[p];
+            int currPos = agentPos[p];
+
+            if (testBit(occupancy, 0, nextPos)) {
+                // This agent was killed by a flame
+                agentLife[p] = 0;
+                deadAgents[nDead++] = p;
+
+                if (VERBOSE_FM_DEBUG) {
+                    System.out.println("Agent " + (AGENT0_K + p) + " died.");
+                }
+
+                if (tiles[currPos] != BOMB_K && tiles[currPos] != FLAMES_K) {
+                    setTile(currPos, PASSAGE_K);
+                }
+            } else {
+                moveAgent(p);
+            }
+        }
+        return nDead;
+    }
+
+    /**
+     * Delegates the resolution of winners to the game configuration, through temporary Avatar objects.
+     * @param nDead number of agents killed on this tick.
+     */
+    private void processDeadAgents(int nDead) {
+        GameObject[] agents = toAvatars();
+        ArrayList<GameObject> aliveAgents = aliveAvatars(agents);
+        ArrayList<GameObject> deadAgentsThisTick = new ArrayList<>(nDead);
+        for (int i = 0; i < nDead; i++) {
+            deadAgentsThisTick.add(agents[deadAgents[i]]);
+        }
+
+        context.getGameConfig().processDeadAgents(agents, aliveAgents, deadAgentsThisTick, game_mode);
+        readResults(agents, aliveAgents);
+    }
+
+    /**
+     * Checks if the game has ended, as decided by the game configuration (see Game.isEnded()).
+     * @param tick current game tick.
+     * @return true if the game has ended.
+     */
+    public boolean isEnded(int tick) {
+        return context.getGameConfig().isEnded(tick, game_mode, aliveAvatars(toAvatars()));
+    }
+
+    /**
+     * Resolves the results of a game that reached the maximum number of ticks, as GameState.next() does.
+     */
+    void processTimeout() {
+        GameObject[] agents = toAvatars();
+        ArrayList<GameObject> aliveAgents = aliveAvatars(agents);
+        context.getGameConfig().processTimeout(game_mode, agents, aliveAgents);
+        readResults(agents, aliveAgents);
+    }
+
+    private GameObject[] toAvatars() {
+        GameObject[] agents = new GameObject[NUM_PLAYERS];
+        for (int i = 0; i < NUM_PLAYERS; i++) {
+            agents[i] = toAvatar(i);
+        }
+        return agents;
+    }
+
+    private ArrayList<GameObject> aliveAvatars(GameObject[] agents) {
+        ArrayList<GameObject> aliveAgents = new ArrayList<>(nAlive);
+        for (int i = 0; i < nAlive; i++) {
+            aliveAgents.add(agents[alive[i]]);
+        }
+        return aliveAgents;
+    }
+
+    /**
+     * Reads back the results and alive agents set by the game configuration on temporary Avatar objects.
+     */
+    private void readResults(GameObject[] agents, ArrayList<GameObject> aliveAgents) {
+        for (int i = 0; i < NUM_PLAYERS; i++) {
+            agentWinner[i] = ((Avatar) agents[i]).getWinner();
+        }
+        nAlive = 0;
+        for (GameObject a : aliveAgents) {
+            alive[nAlive++] = a.getType().getKey() - AGENT0_K;
+        }
+    }
+
+    /**
+     * Player p picks up the power-up at its desired position, if any.
+     */
+    private void pickPowerUp(int p) {
+        byte type = tiles[agentDesired[p]];
+        if (type == EXTRABOMB_K) {
+            agentAmmo[p]++;
+        } else if (type == INCRRANGE_K) {
+            agentBlast[p]++;
+        } else if (type == KICK_K) {
+            agentKick[p] = true;
+        }
+    }
+
+    /**
+     * Moves a bomb to its desired position. Bombs don't leave traces behind them, and cover power-ups, which
+     * are put back into the hidden power-ups to be revealed later.
+     * @param b index of the bomb.
+     */
+    private void moveBomb(int b) {
+        int currentPos = bPos[b];
+        int nextPos = bDesired[b];
+
+        if (currentPos != nextPos) {
+            byte nextType = tiles[nextPos];
+            if (nextType != RIGID_K && nextType != WOOD_K) {
+                bPos[b] = nextPos;
+                if (isPowerUp(nextType)) {
+                    powerups[nextPos] = nextType;
+                }
+
+                byte currentType = tiles[currentPos];
+                if (!isPowerUp(currentType) && currentType != FLAMES_K && !isAgent(currentType)) {
+                    revealOrClear(currentPos);
+                }
+            }
+        }
+        setTile(nextPos, BOMB_K);
+    }
+
+    /**
+     * Moves an agent to its desired position. Agents don't remove power-ups, flames, bombs or other agents from
+     * the position they leave.
+     * @param p index of the agent.
+     */
+    private void moveAgent(int p) {
+        int currentPos = agentPos[p];
+        int nextPos = agentDesired[p];
+        byte type = (byte) (AGENT0_K + p);
+
+        if (currentPos != nextPos) {
+            byte nextType = tiles[nextPos];
+            if (nextType != RIGID_K && nextType != WOOD_K) {
+                agentPos[p] = nextPos;
+
+                byte currentType = tiles[currentPos];
+                if (!isPowerUp(currentType) && currentType != FLAMES_K && currentType != BOMB_K &&
+                        (!isAgent(currentType) || currentType == type)) {
+                    revealOrClear(currentPos);
+                }
+            }
+        }
+        setTile(nextPos, type);
+    }
+
+    /**
+     * Replaces the content of a cell with its hidden power-up, or with a passage if there's none.
+     */
+    private void revealOrClear(int c) {
+        if (powerups[c] != NO_POWERUP) {
+            setTile(c, powerups[c]);
+            powerups[c] = NO_POWERUP;
+        } else {
+            setTile(c, PASSAGE_K);
+        }
+    }
+
+    private void revertAgent(int p) {
+        if (agentPos[p] >= 0) {
+            agentDesired[p] = agentPos[p];
+        }
+    }
+
+    // Collision resolution, replicating Utils.checkPositionSwap and Utils.checkPositionOverlap
+
+    private void checkAgentSwaps() {
+        for (int i = 0; i < nAlive; i++) {
+            int a = alive[i];
+            for (int j = 0; j < nAlive; j++) {
+                int b = alive[j];
+                if (a != b && agentDesired[a] != agentPos[a] && agentDesired[b] != agentPos[b] &&
+                        agentDesired[a] == agentPos[b] && agentDesired[b] == agentPos[a]) {
+                    revertAgent(a);
+                    revertAgent(b);
+                }
+            }
+        }
+    }
+
+    private void checkBombSwaps() {
+        for (int a = 0; a < nBombs; a++) {
+            for (int b = 0; b < nBombs; b++) {
+                if (a != b && bDesired[a] != bPos[a] && bDesired[b] != bPos[b] &&
+                        bDesired[a] == bPos[b] && bDesired[b] == bPos[a]) {
+                    bDesired[a] = bPos[a];
+                    bDesired[b] = bPos[b];
+                }
+            }
+        }
+    }
+
+    private void checkAgentBombSwaps() {
+        for (int i = 0; i < nAlive; i++) {
+            int a = alive[i];
+            for (int b = 0; b < nBombs; b++) {
+                if (agentDesired[a] != agentPos[a] && bDesired[b] != bPos[b] &&
+                        agentDesired[a] == bPos[b] && bDesired[b] == agentPos[a]) {
+                    bDesired[b] = bPos[b];
+                }
+            }
+        }
+    }
+
+    private void checkAgentOverlap() {
+        for (int i = 0; i < nAlive; i++) {
+            counts[agentDesired[alive[i]]]++;
+        }
+        for (int i = 0; i < nAlive; i++) {
+            int p = alive[i];
+            if (counts[agentDesired[p]] > 1) {
+                revertAgent(p);
+            }
+        }
+        Arrays.fill(counts, 0);
+    }
+
+    private void checkBombOverlap() {
+        for (int b = 0; b < nBombs; b++) {
+            counts[bDesired[b]]++;
+        }
+        for (int b = 0; b < nBombs; b++) {
+            if (counts[bDesired[b]] > 1) {
+                bDesired[b] = bPos[b];
+            }
+        }
+        Arrays.fill(counts, 0);
+    }
+
+    /**
+     * Checks if an object can take position (x, y): inside the board and not a wall (or an agent, for kicks).
+     */
+    private boolean isLegal(int x, int y, boolean agentsCollide) {
+        if (x < 0 || y < 0 || x >= size || y >= size) {
+            return false;
+        }
+        byte type = tiles[y * size + x];
+        return type != RIGID_K && type != WOOD_K && !(agentsCollide && isAgent(type));
+    }
+
+    private static boolean isPowerUp(byte type) {
+        return type == EXTRABOMB_K || type == INCRRANGE_K || type == KICK_K;
+    }
+
+    private static boolean isAgent(byte type) {
+        return type >= AGENT0_K && type < AGENT0_K + NUM_PLAYERS;
+    }
+
+    // Bombs and flames lists
+
+    private void addBomb(int cell, int blastStrength, int life, int playerIdx, boolean addToBoard) {
+        if (nBombs == bPos.length) {
+            growBombs();
+        }
+        int b = nBombs++;
+        bPos[b] = cell;
+        bDesired[b] = cell;
+        bLife[b] = life;
+        bBlast[b] = blastStrength;
+        bVelX[b] = 0;
+        bVelY[b] = 0;
+        bOwner[b] = playerIdx;
+        bDiffusion[b] = 0;
+        if (addToBoard) {
+            setTile(cell, BOMB_K);
+        }
+    }
+
+    /**
+     * Finds the first bomb in the list which GameObject.equals() would consider equal to bomb b
+     * (same life, position and desired position), replicating ArrayList.remove(Object).
+     */
+    private int firstEqualBomb(int b) {
+        for (int i = 0; i < b; i++) {
+            if (bombsEqual(i, b)) return i;
+        }
+        return b;
+    }
+
+    private boolean bombsEqual(int a, int b) {
+        return bLife[a] == bLife[b] && bPos[a] == bPos[b] && bDesired[a] == bDesired[b];
+    }
+
+    private void removeBomb(int b) {
+        int tail = nBombs - b - 1;
+        System.arraycopy(bPos, b + 1, bPos, b, tail);
+        System.arraycopy(bDesired, b + 1, bDesired, b, tail);
+        System.arraycopy(bLife, b + 1, bLife, b, tail);
+        System.arraycopy(bBlast, b + 1, bBlast, b, tail);
+        System.arraycopy(bVelX, b + 1, bVelX, b, tail);
+        System.arraycopy(bVelY, b + 1, bVelY, b, tail);
+        System.arraycopy(bOwner, b + 1, bOwner, b, tail);
+        System.arraycopy(bDiffusion, b + 1, bDiffusion, b, tail);
+        nBombs--;
+    }
+
+    /**
+     * Removes all bombs marked as dead, and all bombs equal to them (as ArrayList.removeAll() does), keeping order.
+     */
+    private void removeDeadBombs() {
+        // Marks all bombs equal to dead ones first: compacting overwrites the slots they are compared to
+        for (int b = 0; b < nBombs; b++) {
+            for (int d = 0; !deadBombs[b] && d < nBombs; d++) {
+                deadBombs[b] = deadBombs[d] && bombsEqual(b, d);
+            }
+        }
+        int n = 0;
+        for (int b = 0; b < nBombs; b++) {
+            if (!deadBombs[b]) {
+                bPos[n] = bPos[b];
+                bDesired[n] = bDesired[b];
+                bLife[n] = bLife[b];
+                bBlast[n] = bBlast[b];
+                bVelX[n] = bVelX[b];
+                bVelY[n] = bVelY[b];
+                bOwner[n] = bOwner[b];
+                bDiffusion[n] = bDiffusion[b];
+                n++;
+            }
+        }
+        nBombs = n;
+    }
+
+    /**
+     * Removes all flames equal to the flames that died this tick: life 0 at the position of a dead flame.
+     */
+    private void removeDeadFlames() {
+        int n = 0;
+        for (int i = 0; i < nFlames; i++) {
+            if (fLife[i] != 0 || !testBit(deadCells, 0, fPos[i])) {
+                fPos[n] = fPos[i];
+                fLife[n] = fLife[i];
+                fOwner[n] = fOwner[i];
+                n++;
+            }
+        }
+        nFlames = n;
+    }
+
+    private void appendFlame(int cell, int life, int owner) {
+        if (nFlames == fPos.length) {
+            growFlames();
+        }
+        fPos[nFlames] = cell;
+        fLife[nFlames] = life;
+        fOwner[nFlames] = owner;
+        nFlames++;
+    }
+
+    /**
+     * Adds a ring of flames at the given layer of the board, as ForwardModel.addWallOfFire() does.
+     */
+    private void addWallOfFire(int wall_layer) {
+        for (int x = 0; x < Types.BOARD_SIZE; x++) {
+            for (int y = 0; y < BOARD_SIZE; y++) {
+                if (x == wall_layer - 1 || x == (Types.BOARD_SIZE) - wall_layer || y == wall_layer - 1 ||
+                        y == (Types.BOARD_SIZE) - wall_layer) {
+                    // Flames on walls keep the default position of new objects
+                    int c = y * size + x;
+                    appendFlame(isLegal(x, y, false) ? c : 0, Types.WALL_LIFE, 0);
+                    setTile(c, FLAMES_K);
+
+                    // flame life is overwritten here (if there is another flame)
+                    for (int i = 0; i < nFlames; i++) {
+                        if (fPos[i] == c) {
+                            fLife[i] = Types.WALL_LIFE;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void allocateBombs(int capacity) {
+        bPos = new int[capacity];
+        bDesired = new int[capacity];
+        bLife = new int[capacity];
+        bBlast = new int[capacity];
+        bVelX = new int[capacity];
+        bVelY = new int[capacity];
+        bOwner = new int[capacity];
+        bDiffusion = new int[capacity];
+    }
+
+    private void growBombs() {
+        int capacity = bPos.length * 2;
+        bPos = Arrays.copyOf(bPos, capacity);
+        bDesired = Arrays.copyOf(bDesired, capacity);
+        bLife = Arrays.copyOf(bLife, capacity);
+        bBlast = Arrays.copyOf(bBlast, capacity);
+        bVelX = Arrays.copyOf(bVelX, capacity);
+        bVelY = Arrays.copyOf(bVelY, capacity);
+        bOwner = Arrays.copyOf(bOwner, capacity);
+        bDiffusion = Arrays.copyOf(bDiffusion, capacity);
+    }
+
+    private void allocateFlames(int capacity) {
+        fPos = new int[capacity];
+        fLife = new int[capacity];
+        fOwner = new int[capacity];
+    }
+
+    private void growFlames() {
+        int capacity = fPos.length * 2;
+        fPos = Arrays.copyOf(fPos, capacity);
+        fLife = Arrays.copyOf(fLife, capacity);
+        fOwner = Arrays.copyOf(fOwner, capacity);
+    }
+
+    // Bitboard helpers
+
+    private void setTile(int c, byte type) {
+        clearBit(bits, tiles[c] * words, c);
+        setBit(bits, type * words, c);
+        tiles[c] = type;
+    }
+
+    private static void setBit(long[] board, int offset, int c) {
+        board[offset + (c >>> 6)] |= 1L << c;
+    }
+
+    private static void clearBit(long[] board, int offset, int c) {
+        board[offset + (c >>> 6)] &= ~(1L << c);
+    }
+
+    private static boolean testBit(long[] board, int offset, int c) {
+        return (board[offset + (c >>> 6)] & (1L << c)) != 0;
+    }
+
+    private int cellOf(Vector2d v) {
+        return v == null ? -1 : v.y * size + v.x;
+    }
+
+    private Vector2d vectorOf(int c) {
+        return c < 0 ? null : new Vector2d(c % size, c / size);
+    }
+
+    /* ----- Observations ----- */
+
+    /**
+     * @return the size of the board.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the settings and wall clock of the game simulated by this model.
+     */
+    public GameContext getContext() {
+        return context;
+    }
+
+    /**
+     * Sets the settings and wall clock this model uses, i.e. to share those of a game.
+     */
+    public void setContext(GameContext context) {
+        this.context = context;
+    }
+
+    /**
+     * @return the tile type at position (x, y).
+     */
+    public Types.TILETYPE getTile(int x, int y) {
+        return TILES[tiles[y * size + x]];
+    }
+
+    /**
+     * Gives direct access to the bitboard of a tile type. Bit (y * size + x) is set if the tile is at (x, y).
+     * Callers must not modify the array.
+     * @param type tile type requested.
+     * @param out array of at least getWords() longs to copy the bitboard to.
+     */
+    public void getBitboard(Types.TILETYPE type, long[] out) {
+        System.arraycopy(bits, type.getKey() * words, out, 0, words);
+    }
+
+    /**
+     * @return number of longs in each bitboard.
+     */
+    public int getWords() {
+        return words;
+    }
+
+    public Types.TILETYPE[][] getBoard() {
+        Types.TILETYPE[][] board = new Types.TILETYPE[size][size];
+        for (int c = 0; c < nCells; c++) {
+            board[c / size][c % size] = TILES[tiles[c]];
+        }
+        return board;
+    }
+
+    public int[][] getBombBlastStrength() {
+        return toGrid(bombBlastStrength);
+    }
+
+    public int[][] getBombLife() {
+        return toGrid(bombLife);
+    }
+
+    public int[][] getBombDiffusionCounter() {
+        return toGrid(bombDiffusionCounter);
+    }
+
+    /**
+     * @return Avatar objects with the state of the agents, built on every call.
+     */
+    public GameObject[] getAgents() {
+        return toAvatars();
+    }
+
+    /**
+     * @return Avatar objects with the state of the agents still alive, built on every call.
+     */
+    public ArrayList<GameObject> getAliveAgents() {
+        return aliveAvatars(toAvatars());
+    }
+
+    public int getAmmo(int playerIdx) {
+        return agentAmmo[playerIdx];
+    }
+
+    public int getBlastStrength(int playerIdx) {
+        return agentBlast[playerIdx];
+    }
+
+    public boolean canKick(int playerIdx) {
+        return agentKick[playerIdx];
+    }
+
+    public Types.RESULT getWinner(int playerIdx) {
+        return agentWinner[playerIdx];
+    }
+
+    public Vector2d getPosition(int playerIdx) {
+        return vectorOf(agentPos[playerIdx]);
+    }
+
+    /**
+     * @return number of agents still alive.
+     */
+    public int getNumAliveAgents() {
+        return nAlive;
+    }
+
+    private int[][] toGrid(int[] cells) {
+        int[][] grid = new int[size][size];
+        for (int y = 0; y < size; y++) {
+            System.arraycopy(cells, y * size, grid[y], 0, size);
+        }
+        return grid;
+    }
+
+    /**
+     * Builds an Avatar object with the state of agent i.
+     */
+    private Avatar toAvatar(int i) {
+        Avatar a = new Avatar(AGENT0_K + i, game_mode, context.getGameConfig(), context.getVisionRange());
+        a.setPosition(vectorOf(agentPos[i]));
+        a.setDesiredCoordinate(vectorOf(agentDesired[i]));
+        a.setAmmo(agentAmmo[i]);
+        a.setBlastStrength(agentBlast[i]);
+        a.setLife(agentLife[i]);
+        if (agentKick[i]) a.setCanKick();
+        a.setWinner(agentWinner[i]);
+        return a;
+    }
+
+    /**
+     * Translates this model back into a ForwardModel, with all objects in the same order.
+     * @return a new forward model with the same state as this one.
+     */
+    public ForwardModel toForwardModel() {
+        Types.TILETYPE[][] board = getBoard();
+        Types.TILETYPE[][] hidden = new Types.TILETYPE[size][size];
+        for (int c = 0; c < nCells; c++) {
+            if (powerups[c] != NO_POWERUP) {
+                hidden[c / size][c % size] = TILES[powerups[c]];
+            }
+        }
+
+        GameObject[] agents = new GameObject[NUM_PLAYERS];
+        for (int i = 0; i < NUM_PLAYERS; i++) {
+            agents[i] = toAvatar(i);
+        }
+        ArrayList<GameObject> aliveAgents = new ArrayList<>(nAlive);
+        for (int i = 0; i < nAlive; i++) {
+            aliveAgents.add(agents[alive[i]]);
+        }
+
+        ArrayList<GameObject> bombs = new ArrayList<>(nBombs);
+        for (int b = 0; b < nBombs; b++) {
+            Bomb bomb = new Bomb(bBlast[b], bLife[b], bOwner[b]);
+            bomb.setPosition(vectorOf(bPos[b]));
+            bomb.setDesiredCoordinate(vectorOf(bDesired[b]));
+            bomb.setVelocity(new Vector2d(bVelX[b], bVelY[b]));
+            for (int d = 0; d < bDiffusion[b]; d++) {
+                bomb.increaseBombDiffusionTick();
+            }
+            bombs.add(bomb);
+        }
+
+        ArrayList<GameObject> flames = new ArrayList<>(nFlames);
+        for (int i = 0; i < nFlames; i++) {
+            Flame flame = new Flame();
+            flame.setLife(fLife[i]);
+            flame.setPosition(vectorOf(fPos[i]));
+            flame.setDesiredCoordinate(vectorOf(fPos[i]));
+            flame.playerIdx = fOwner[i];
+            flames.add(flame);
+        }
+
+        ForwardModel fm = new ForwardModel(game_mode, board, hidden, getBombBlastStrength(), getBombLife(),
+                getBombDiffusionCounter(), agents, aliveAgents, flames, bombs);
+        fm.setContext(context.copy());
+        return fm;
+    }
+}
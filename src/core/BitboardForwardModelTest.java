@@ -0,0 +1,229 @@
+package core;
+
+import objects.Avatar;
+import objects.Bomb;
+import objects.Flame;
+import objects.GameObject;
+import org.junit.jupiter.api.Test;
+import utils.Types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitboardForwardModelTest {
+
+    private static final int N_TICKS = 400;
+
+    /**
+     * Both models must produce the same states when receiving the same actions.
+     */
+    @Test
+    void matchesForwardModelFFA() {
+        for (long seed = 0; seed < 10; seed++) {
+            runLockstep(seed, Types.GAME_MODE.FFA, false);
+        }
+    }
+
+    @Test
+    void matchesForwardModelTeam() {
+        for (long seed = 0; seed < 10; seed++) {
+            runLockstep(seed, Types.GAME_MODE.TEAM, false);
+        }
+    }
+
+    @Test
+    void matchesForwardModelWithKicks() {
+        for (long seed = 0; seed < 10; seed++) {
+            runLockstep(seed, Types.GAME_MODE.FFA, true);
+        }
+    }
+
+    @Test
+    void matchesForwardModelWithWallOfFire() {
+        int wallSpeed = Types.WALL_SPEED;
+        try {
+            Types.WALL_SPEED = 30;
+            for (long seed = 0; seed < 5; seed++) {
+                runLockstep(seed, Types.GAME_MODE.FFA, false);
+            }
+        } finally {
+            Types.WALL_SPEED = wallSpeed;
+        }
+    }
+
+    @Test
+    void matchesReducedForwardModel() {
+        GameState gs = new GameState(42, Types.BOARD_SIZE, Types.GAME_MODE.FFA, false);
+        gs.init();
+        GameState reduced = gs.copy(0);
+        BitboardForwardModel bb = BitboardForwardModel.fromGameState(reduced);
+        ForwardModel fm = reduced.model;
+
+        Random rnd = new Random(42);
+        for (int t = 0; t < N_TICKS; t++) {
+            stepBoth(fm, bb, randomActions(rnd, true));
+            assertSameState(fm, bb.toForwardModel());
+        }
+    }
+
+    /**
+     * Identical bombs stacked on the same cell must all stay until they explode, even after other bombs before them
+     * in the list explode.
+     */
+    @Test
+    void matchesForwardModelWithStackedBombs() {
+        GameState gs = new GameState(1019, Types.BOARD_SIZE, Types.GAME_MODE.FFA, false);
+        gs.init();
+        ForwardModel fm = gs.model;
+        addStackedBombs(fm);
+        BitboardForwardModel bb = new BitboardForwardModel(fm);
+        assertSameState(fm, bb.toForwardModel());
+
+        Types.ACTIONS[] stop = new Types.ACTIONS[Types.NUM_PLAYERS];
+        Arrays.fill(stop, Types.ACTIONS.ACTION_STOP);
+        for (int t = 0; t < Types.BOMB_LIFE; t++) {
+            stepBoth(fm, bb, stop);
+            assertSameState(fm, bb.toForwardModel());
+        }
+    }
+
+    /**
+     * Adds a bomb about to explode on a free cell, followed by two identical bombs stacked on another free cell away
+     * from its flames, which explode later.
+     */
+    static void addStackedBombs(ForwardModel fm) {
+        Types.TILETYPE[][] board = fm.getBoard();
+        int size = board.length;
+        int first = -1;
+        for (int y = 1; y < size - 1; y++) {
+            for (int x = 1; x < size - 1; x++) {
+                if (board[y][x] != Types.TILETYPE.PASSAGE) {
+                    continue;
+                }
+                if (first < 0) {
+                    fm.addBomb(x, y, 1, 1, -1, true);
+                    first = y * size + x;
+                } else if (Math.abs(y - first / size) + Math.abs(x - first % size) > 2) {
+                    fm.addBomb(x, y, 1, 3, -1, true);
+                    fm.addBomb(x, y, 1, 3, -1, true);
+                    return;
+                }
+            }
+        }
+        fail("No free cells for the bombs");
+    }
+
+    @Test
+    void copyIsIndependent() {
+        GameState gs = new GameState(7, Types.BOARD_SIZE, Types.GAME_MODE.FFA, false);
+        gs.init();
+        BitboardForwardModel bb = BitboardForwardModel.fromGameState(gs);
+        BitboardForwardModel copy = bb.copy();
+
+        Random rnd = new Random(7);
+        for (int t = 0; t < 50; t++) {
+            bb.next(randomActions(rnd, true));
+        }
+
+        assertEquals(gs.getContext().getWallClock(), copy.getContext().getWallClock());
+        assertSameState(gs.model, copy.toForwardModel());
+    }
+
+    private void runLockstep(long seed, Types.GAME_MODE mode, boolean kick) {
+        GameState gs = new GameState(seed, Types.BOARD_SIZE, mode, false);
+        gs.init();
+        ForwardModel fm = gs.model;
+        if (kick) {
+            for (GameObject a : fm.getAgents()) {
+                ((Avatar) a).setCanKick();
+            }
+        }
+        BitboardForwardModel bb = new BitboardForwardModel(fm);
+        assertSameState(fm, bb.toForwardModel());
+
+        // Teleporting bombs is not deterministic, so only diffuse bombs in FFA
+        Random rnd = new Random(seed);
+        for (int t = 0; t < N_TICKS && fm.getAliveAgents().size() > 1; t++) {
+            stepBoth(fm, bb, randomActions(rnd, mode == Types.GAME_MODE.FFA));
+            assertSameState(fm, bb.toForwardModel());
+        }
+    }
+
+    /**
+     * Advances both models, checking their wall clocks stay in sync.
+     */
+    private void stepBoth(ForwardModel fm, BitboardForwardModel bb, Types.ACTIONS[] actions) {
+        fm.next(actions);
+        bb.next(actions);
+        assertEquals(fm.getContext().getWallClock(), bb.getContext().getWallClock());
+        assertEquals(fm.getContext().getWallLayer(), bb.getContext().getWallLayer());
+    }
+
+    private Types.ACTIONS[] randomActions(Random rnd, boolean diffuse) {
+        Types.ACTIONS[] all = Types.ACTIONS.values();
+        Types.ACTIONS[] actions = new Types.ACTIONS[Types.NUM_PLAYERS];
+        for (int i = 0; i < actions.length; i++) {
+            do {
+                actions[i] = all[rnd.nextInt(all.length)];
+            } while (!diffuse && actions[i] == Types.ACTIONS.ACTION_DIFFUSE);
+        }
+        return actions;
+    }
+
+    private void assertSameState(ForwardModel expected, ForwardModel actual) {
+        int size = expected.getBoard().length;
+        for (int y = 0; y < size; y++) {
+            assertArrayEquals(expected.getBoard()[y], actual.getBoard()[y]);
+            assertArrayEquals(expected.getPowerups()[y], actual.getPowerups()[y]);
+            assertArrayEquals(expected.getBombBlastStrength()[y], actual.getBombBlastStrength()[y]);
+            assertArrayEquals(expected.getBombLife()[y], actual.getBombLife()[y]);
+            if (expected.getBombDiffusionCounter() != null) {
+                assertArrayEquals(expected.getBombDiffusionCounter()[y], actual.getBombDiffusionCounter()[y]);
+            }
+        }
+
+        for (int i = 0; i < Types.NUM_PLAYERS; i++) {
+            Avatar e = (Avatar) expected.getAgents()[i];
+            Avatar a = (Avatar) actual.getAgents()[i];
+            assertEquals(e.getPosition(), a.getPosition());
+            assertEquals(e.getDesiredCoordinate(), a.getDesiredCoordinate());
+            assertEquals(e.getAmmo(), a.getAmmo());
+            assertEquals(e.getBlastStrength(), a.getBlastStrength());
+            assertEquals(e.canKick(), a.canKick());
+            assertEquals(e.getLife(), a.getLife());
+            assertEquals(e.getWinner(), a.getWinner());
+        }
+        assertEquals(types(expected.getAliveAgents()), types(actual.getAliveAgents()));
+
+        assertEquals(expected.getBombs().size(), actual.getBombs().size());
+        for (int i = 0; i < expected.getBombs().size(); i++) {
+            Bomb e = (Bomb) expected.getBombs().get(i);
+            Bomb a = (Bomb) actual.getBombs().get(i);
+            assertEquals(e, a);
+            assertEquals(e.getVelocity(), a.getVelocity());
+            assertEquals(e.getBlastStrength(), a.getBlastStrength());
+            assertEquals(e.getPlayerIdx(), a.getPlayerIdx());
+            assertEquals(e.getDiffusionCounter(), a.getDiffusionCounter());
+        }
+
+        assertEquals(expected.getFlames().size(), actual.getFlames().size());
+        for (int i = 0; i < expected.getFlames().size(); i++) {
+            Flame e = (Flame) expected.getFlames().get(i);
+            Flame a = (Flame) actual.getFlames().get(i);
+            assertEquals(e.getLife(), a.getLife());
+            assertEquals(e.getPosition(), a.getPosition());
+            assertEquals(e.playerIdx, a.playerIdx);
+        }
+    }
+
+    private ArrayList<Types.TILETYPE> types(ArrayList<GameObject> objects) {
+        ArrayList<Types.TILETYPE> types = new ArrayList<>();
+        for (GameObject o : objects) {
+            types.add(o.getType());
+        }
+        return types;
+    }
+}
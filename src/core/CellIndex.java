@@ -0,0 +1,109 @@
+package core;
+
+import objects.GameObject;
+import utils.Vector2d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Index of game objects by board cell, so that the objects at a given position are found without scanning the
+ * whole list they belong to. Objects of each cell are chained in a linked list kept in int arrays (first object
+ * of each cell, next object of each entry), which are reused when the index is rebuilt.
+ * Entries are iterated with first(cell) / next(entry), -1 meaning there are no more objects. Entries are numbered
+ * in the order objects were added, so after rebuild() the entry of an object is its index in the list.
+ */
+class CellIndex {
+
+    private int size;
+    private int[] head = new int[0];
+    private int[] next = new int[16];
+    private GameObject[] objects = new GameObject[16];
+    private int n;
+
+    /**
+     * Rebuilds the index from a list of objects.
+     * @param list objects to index.
+     * @param size size of the board.
+     * @param desired true to index objects by their desired coordinate, false to use their position.
+     */
+    void rebuild(ArrayList<GameObject> list, int size, boolean desired) {
+        this.size = size;
+        if (head.length != size * size) {
+            head = new int[size * size];
+        }
+        Arrays.fill(head, -1);
+        Arrays.fill(objects, 0, n, null);
+        n = 0;
+        for (GameObject go : list) {
+            add(go, desired ? go.getDesiredCoordinate() : go.getPosition());
+        }
+    }
+
+    /**
+     * Adds an object at the given position. Objects added to a cell are iterated first.
+     */
+    void add(GameObject go, Vector2d pos) {
+        if (n == objects.length) {
+            objects = Arrays.copyOf(objects, n * 2);
+            next = Arrays.copyOf(next, n * 2);
+        }
+        int cell = cell(pos);
+        objects[n] = go;
+        next[n] = head[cell];
+        head[cell] = n;
+        n++;
+    }
+
+    /**
+     * Removes an object from the given position, if it's there.
+     */
+    void remove(GameObject go, Vector2d pos) {
+        int cell = cell(pos);
+        int prev = -1;
+        for (int e = head[cell]; e != -1; prev = e, e = next[e]) {
+            if (objects[e] == go) {
+                if (prev == -1) head[cell] = next[e];
+                else next[prev] = next[e];
+                objects[e] = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if there is at least one object at the given position.
+     */
+    boolean contains(Vector2d pos) {
+        return head[cell(pos)] != -1;
+    }
+
+    /**
+     * @return first entry of the given position, or -1 if there are no objects there.
+     */
+    int first(Vector2d pos) {
+        return head[cell(pos)];
+    }
+
+    /**
+     * @return first entry of the cell at (x, y), or -1 if there are no objects there.
+     */
+    int first(int x, int y) {
+        return head[y * size + x];
+    }
+
+    /**
+     * @return entry following the given one in the same cell, or -1 if it was the last one.
+     */
+    int next(int entry) {
+        return next[entry];
+    }
+
+    GameObject get(int entry) {
+        return objects[entry];
+    }
+
+    private int cell(Vector2d pos) {
+        return pos.y * size + pos.x;
+    }
+}
@@ -0,0 +1,245 @@
+package core;
+
+import objects.Avatar;
+import objects.GameObject;
+import players.Player;
+import players.SimplePlayer;
+import players.heuristics.*;
+import players.mcts.MCTSParams;
+import players.mcts.MCTSPlayer;
+import players.rhea.RHEAPlayer;
+import players.rhea.utils.Constants;
+import players.rhea.utils.RHEAParams;
+import utils.Benchmark;
+import utils.LevelGenerator;
+import utils.Types;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Benchmarks of the game engine and agents: ForwardModel.next(), GameState.copy(playerIdx), Game.tick(),
+ * LevelGenerator.makeBoard(), the state heuristics and act() of the search agents at fixed iteration budgets.
+ *
+ * Everything is seeded, so runs measure the same work. Engine and agent benchmarks are run on early, mid and late
+ * game states, taken from a game played by SimplePlayers. Results are operations per second and bytes allocated
+ * per operation; see utils.Benchmark.
+ *
+ * Usage: java core.EngineBenchmarks [filter] [warmup iterations] [iterations] [iteration millis]
+ * Only benchmarks whose name contains the filter are run.
+ */
+public class EngineBenchmarks {
+
+    private static final long SEED = 93988;
+    private static final int SIZE = Types.BOARD_SIZE;
+    private static final Types.GAME_MODE MODE = Types.GAME_MODE.FFA;
+    private static final int[] PHASE_TICKS = {10, 150, 400};
+    private static final String[] PHASE_NAMES = {"early", "mid", "late"};
+    private static final int AGENT_ITERATIONS = 200;
+
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0] : "";
+        int warmup = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        long millis = args.length > 3 ? Long.parseLong(args[3]) : 1000;
+
+        ArrayList<Benchmark> benchmarks = new ArrayList<>();
+        benchmarks.add(makeBoard());
+        benchmarks.add(gameTick());
+        GameState[] phases = phaseStates();
+        for (int p = 0; p < phases.length; p++) {
+            String phase = PHASE_NAMES[p];
+            GameState gs = phases[p];
+            int playerIdx = firstAlive(gs);
+            benchmarks.add(forwardModelNext(phase, gs));
+            benchmarks.add(copy(phase, gs, -1));
+            benchmarks.add(copy(phase, gs, playerIdx));
+            GameState obs = gs.copy(playerIdx);
+            benchmarks.add(heuristic(phase, new CustomHeuristic(obs), obs));
+            benchmarks.add(heuristic(phase, new AdvancedHeuristic(obs, new Random(SEED)), obs));
+            benchmarks.add(heuristic(phase, new OurHeuristic(), obs));
+            benchmarks.add(heuristic(phase, new PlayerCountHeuristic(), obs));
+            benchmarks.add(heuristic(phase, new WinScoreHeuristic(), obs));
+            for (Player player : agents(playerIdx)) {
+                benchmarks.add(act(phase, player, gs, playerIdx));
+            }
+        }
+
+        for (Benchmark b : benchmarks) {
+            if (b.getName().contains(filter)) {
+                System.out.println(b.measure(warmup, iterations, millis));
+            }
+        }
+    }
+
+    /**
+     * Plays a game with SimplePlayers and keeps a copy of its state at each of PHASE_TICKS. If the game ends before
+     * the last one, it's played again with the next seed.
+     */
+    static GameState[] phaseStates() {
+        for (long seed = SEED; ; seed++) {
+            Game game = new Game(seed, SIZE, MODE, "");
+            game.setPlayers(simplePlayers(seed));
+            GameState[] phases = new GameState[PHASE_TICKS.length];
+            int p = 0;
+            while (!game.isEnded() && p < phases.length) {
+                if (game.getGameState().getTick() == PHASE_TICKS[p]) {
+                    phases[p++] = game.getGameState().copy();
+                }
+                game.tick(false);
+            }
+            if (p == phases.length) {
+                return phases;
+            }
+        }
+    }
+
+    private static Benchmark makeBoard() {
+        GameObject[] agents = new GameObject[Types.NUM_PLAYERS];
+        for (int i = 0; i < agents.length; i++) {
+            agents[i] = new Avatar(Types.TILETYPE.AGENT0.getKey() + i, MODE);
+        }
+        return new Benchmark("LevelGenerator.makeBoard", 16) {
+            long seed = SEED;
+            @Override
+            protected Object op(int i) {
+                return LevelGenerator.makeBoard(seed++, SIZE, Types.BOARD_NUM_RIGID, Types.BOARD_NUM_WOOD, agents);
+            }
+        };
+    }
+
+    /**
+     * Ticks a game of SimplePlayers, so it includes the cost of the agents' observations and decisions. The game is
+     * restarted on the same board when it ends.
+     */
+    private static Benchmark gameTick() {
+        Game game = new Game(SEED, SIZE, MODE, "");
+        game.setPlayers(simplePlayers(SEED));
+        return new Benchmark("Game.tick", 16) {
+            @Override
+            protected void prepare(int batch) {
+                if (game.getGameState().getTick() > Types.MAX_GAME_TICKS - batch || game.isEnded()) {
+                    game.reset(true);
+                }
+            }
+
+            @Override
+            protected Object op(int i) {
+                game.tick(false);
+                return game;
+            }
+        };
+    }
+
+    /**
+     * Advances copies of the given state with random (seeded) actions, one tick per copy.
+     */
+    private static Benchmark forwardModelNext(String phase, GameState gs) {
+        Random rnd = new Random(SEED);
+        Types.ACTIONS[] all = Types.ACTIONS.values();
+        return new Benchmark("ForwardModel.next " + phase, 64) {
+            ForwardModel[] models = new ForwardModel[0];
+            Types.ACTIONS[][] actions = new Types.ACTIONS[0][];
+            @Override
+            protected void prepare(int batch) {
+                if (models.length != batch) {
+                    models = new ForwardModel[batch];
+                    actions = new Types.ACTIONS[batch][Types.NUM_PLAYERS];
+                    for (int i = 0; i < batch; i++) {
+                        models[i] = gs.model.copy(-1);
+                    }
+                }
+                for (int i = 0; i < batch; i++) {
+                    gs.model.copyInto(models[i], -1);
+                    for (int j = 0; j < Types.NUM_PLAYERS; j++) {
+                        actions[i][j] = all[rnd.nextInt(all.length)];
+                    }
+                }
+            }
+
+            @Override
+            protected Object op(int i) {
+                models[i].next(actions[i]);
+                return models[i];
+            }
+        };
+    }
+
+    private static Benchmark copy(String phase, GameState gs, int playerIdx) {
+        return new Benchmark("GameState.copy(" + playerIdx + ") " + phase, 64) {
+            @Override
+            protected Object op(int i) {
+                return gs.copy(playerIdx);
+            }
+        };
+    }
+
+    private static Benchmark heuristic(String phase, StateHeuristic heuristic, GameState obs) {
+        String name = heuristic.getClass().getSimpleName() + ".evaluateState " + phase;
+        return new Benchmark(name, 64) {
+            @Override
+            protected Object op(int i) {
+                return heuristic.evaluateState(obs);
+            }
+        };
+    }
+
+    /**
+     * Asks an agent for an action on fresh copies of the given state, as observed by the agent.
+     */
+    private static Benchmark act(String phase, Player player, GameState gs, int playerIdx) {
+        return new Benchmark(player.getClass().getSimpleName() + ".act " + phase, 1) {
+            GameState obs;
+            @Override
+            protected void prepare(int batch) {
+                obs = gs.copy(playerIdx);
+            }
+
+            @Override
+            protected Object op(int i) {
+                return player.act(obs);
+            }
+        };
+    }
+
+    /**
+     * @return the search agents to measure, playing as the given player, with fixed iteration budgets.
+     */
+    private static Player[] agents(int playerIdx) {
+        int id = Types.TILETYPE.AGENT0.getKey() + playerIdx;
+
+        MCTSParams mctsParams = new MCTSParams();
+        mctsParams.stop_type = mctsParams.STOP_ITERATIONS;
+        mctsParams.num_iterations = AGENT_ITERATIONS;
+        mctsParams.heuristic_method = mctsParams.CUSTOM_HEURISTIC;
+
+        RHEAParams rheaParams = new RHEAParams();
+        rheaParams.budget_type = Constants.ITERATION_BUDGET;
+        rheaParams.iteration_budget = AGENT_ITERATIONS;
+        rheaParams.heurisic_type = Constants.CUSTOM_HEURISTIC;
+
+        return new Player[]{
+                new MCTSPlayer(SEED, id, mctsParams),
+                new RHEAPlayer(SEED, id, rheaParams),
+                new SimplePlayer(SEED, id)
+        };
+    }
+
+    private static ArrayList<Player> simplePlayers(long seed) {
+        ArrayList<Player> players = new ArrayList<>();
+        for (int i = 0; i < Types.NUM_PLAYERS; i++) {
+            players.add(new SimplePlayer(seed, Types.TILETYPE.AGENT0.getKey() + i));
+        }
+        return players;
+    }
+
+    private static int firstAlive(GameState gs) {
+        GameObject[] agents = gs.getAgents();
+        for (int i = 0; i < agents.length; i++) {
+            if (((Avatar) agents[i]).getWinner() != Types.RESULT.LOSS) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
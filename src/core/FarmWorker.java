@@ -0,0 +1,76 @@
+package core;
+
+import core.gameConfig.IGameConfig;
+import utils.ElapsedCpuTimer;
+import utils.Types;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import static utils.Types.NUM_PLAYERS;
+
+/**
+ * Worker process of a WorkerFarm: connects to the coordinator, sets up the tournament it's sent, and plays the jobs
+ * (games) it's asked for one at a time, sending back their outcomes, until it's sent job -1.
+ * Usage: java core.FarmWorker [coordinator port]
+ */
+public class FarmWorker {
+
+    private Tournament tournament;
+    private long[] seeds;
+    private int repetitions;
+
+    public static void main(String[] args) throws Exception {
+        int port = Integer.parseInt(args[0]);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            FarmWorker worker = new FarmWorker();
+            worker.readSetup(in);
+
+            int job;
+            while ((job = in.readInt()) >= 0) {
+                Tournament.Played played = worker.tournament.play(worker.seeds, worker.repetitions, job);
+                out.writeInt(job);
+                played.writeTo(out);
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * Sets up the tournament sent by WorkerFarm.writeSetup().
+     */
+    void readSetup(DataInputStream in) throws IOException, ReflectiveOperationException {
+        Types.GAME_MODE gameMode = Types.GAME_MODE.valueOf(in.readUTF());
+        IGameConfig gameConfig = (IGameConfig) Class.forName(in.readUTF()).getDeclaredConstructor().newInstance();
+        GameContext context = new GameContext(gameConfig, in.readInt(), false);
+        context.setEngine(Types.ENGINE.valueOf(in.readUTF()));
+        context.setActDeadline(in.readLong());
+        context.setActTimer(ElapsedCpuTimer.TimerType.valueOf(in.readUTF()));
+        context.setOverrunPenalty(Types.OVERRUN_PENALTY.valueOf(in.readUTF()));
+        context.setFastForward(in.readBoolean());
+
+        int[] agentTypes = new int[NUM_PLAYERS];
+        for (int i = 0; i < NUM_PLAYERS; i++) {
+            agentTypes[i] = in.readInt();
+        }
+        long playerSeed = in.readLong();
+        int[][] seatings = new int[in.readInt()][NUM_PLAYERS];
+        for (int[] seating : seatings) {
+            for (int s = 0; s < NUM_PLAYERS; s++) {
+                seating[s] = in.readInt();
+            }
+        }
+        seeds = new long[in.readInt()];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = in.readLong();
+        }
+        repetitions = in.readInt();
+
+        tournament = new Tournament(gameMode, context, WorkerFarm.createPlayers(agentTypes, playerSeed));
+        tournament.setSeatings(seatings);
+        tournament.setLogGames(in.readBoolean());
+    }
+}
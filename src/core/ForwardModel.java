@@ -18,7 +18,7 @@ import java.util.Random;
 import static utils.Types.*;
 import static utils.Utils.*;
 
-public class ForwardModel {
+public class ForwardModel implements IForwardModel {
 
     // Board of the game, with all objects distributed in a 2D array of size 'this.size x this.size'
     private Types.TILETYPE[][] board;
@@ -32,6 +32,14 @@ public class ForwardModel {
     // Diffusion counters of bombs mapped on board structure
     private int[][] bombDiffusionCounter;
 
+    // Cells of the bomb grids written since they were last cleared, so they can be cleared without scanning the
+    // whole grids. -1 if unknown (grids received from outside), in which case the grids are cleared entirely.
+    private int[] bombGridCells = new int[16];
+    private int nBombGridCells = -1;
+
+    // Incremented every time the bomb grids change, so observers can tell if a copy of them is still up to date.
+    private int bombGridVersion;
+
     private Types.DIFFUSION_RULE diffusion_rule;
 
     // Power-ups of the game, hidden. All power-ups are distributed in a 2D array of size 'this.size x this.size'
@@ -47,6 +55,19 @@ public class ForwardModel {
     // Current bombs in the game. They explode!
     private ArrayList<GameObject> bombs;
 
+    // Flames and bombs indexed by cell. Flames are indexed by desired coordinate, which is also their position.
+    // An index is rebuilt from its list when needed if it isn't valid, i.e. after the list changed without it.
+    private final CellIndex flameIndex = new CellIndex();
+    private final CellIndex bombIndex = new CellIndex();
+    private boolean flameIndexValid;
+    private boolean bombIndexValid;
+
+    // Bombs to explode in the current and the next pass of the chain explosion resolver, and bombs exploded on this
+    // tick, by index in the list of bombs.
+    private final BitSet explodeNow = new BitSet();
+    private final BitSet explodeNext = new BitSet();
+    private final BitSet exploded = new BitSet();
+
     // Size of the board.
     private int size;
 
@@ -63,6 +84,25 @@ public class ForwardModel {
     private EventsStatistics es;
     private boolean[] isAgentStuck;
 
+    // Counters of objects per cell, reused by the collision checks of next(). All 0 between uses.
+    private int[] occupancy;
+
+    // Tile types looked up while moving objects, and types kicked bombs can't move into.
+    private static final EnumSet<TILETYPE> POWER_UP_TYPES = EnumSet.copyOf(TILETYPE.getPowerUpTypes());
+    private static final EnumSet<TILETYPE> AGENT_TYPES = EnumSet.copyOf(TILETYPE.getAgentTypes());
+    private static final ArrayList<TILETYPE> KICK_COLLISIONS = new ArrayList<>(Arrays.asList(
+            TILETYPE.RIGID, TILETYPE.WOOD, TILETYPE.AGENT0, TILETYPE.AGENT1, TILETYPE.AGENT2, TILETYPE.AGENT3));
+
+    // Journal of changes to undo with pop(), created on the first call to push().
+    private UndoJournal journal;
+
+    // Settings and wall clock of the game this model belongs to. Copies of the model get a copy of the context.
+    private GameContext context = new GameContext();
+
+    // Zobrist hash of the board and hidden power-ups, kept up to date by setTile() while tileHashValid is true.
+    private long tileHash;
+    private boolean tileHashValid;
+
     /**
      * Creates a forward model object.
      * @param size Size of the board.
@@ -124,6 +164,39 @@ public class ForwardModel {
         init(seed, intBoard.length, game_mode, intBoard, null);
     }
 
+    /**
+     * Forward model constructor which takes ownership of all data structures received. Used to translate other
+     * representations of the game (i.e. BitboardForwardModel) back into this model.
+     * @param game_mode Mode of game
+     * @param board Game board
+     * @param powerups Hidden power-ups
+     * @param bombBlastStrength Bomb blast strength array
+     * @param bombLife Bomb life array
+     * @param bombDiffusionCounter Bomb diffusion counter array
+     * @param agents All agents of the game
+     * @param aliveAgents Agents still alive, in the order they are processed
+     * @param flames Flames in the board
+     * @param bombs Bombs in the board
+     */
+    ForwardModel(Types.GAME_MODE game_mode, Types.TILETYPE[][] board, Types.TILETYPE[][] powerups,
+                 int[][] bombBlastStrength, int[][] bombLife, int[][] bombDiffusionCounter,
+                 GameObject[] agents, ArrayList<GameObject> aliveAgents,
+                 ArrayList<GameObject> flames, ArrayList<GameObject> bombs) {
+        this.size = board.length;
+        this.game_mode = game_mode;
+        this.board = board;
+        this.powerups = powerups;
+        this.bombBlastStrength = bombBlastStrength;
+        this.bombLife = bombLife;
+        this.bombDiffusionCounter = bombDiffusionCounter;
+        this.agents = agents;
+        this.aliveAgents = aliveAgents;
+        this.flames = flames;
+        this.bombs = bombs;
+
+        init_diffusion_rule(game_mode);
+    }
+
     /**
      * Optional forward model constructor, used to parse JSON observations.
      * @param intBoard Game board in int representation
@@ -141,6 +214,7 @@ public class ForwardModel {
         this.bombBlastStrength = bombBlastStrength;
         this.bombLife = bombLife;
         this.bombDiffusionCounter= new int[size][size];
+        this.nBombGridCells = -1;  // Grids received from outside
 
 
         init_diffusion_rule(game_mode);
@@ -191,8 +265,11 @@ public class ForwardModel {
      * Generates the initial board of the game.
      */
     void init(long seed, int size, Types.GAME_MODE gameMode, int[][] intBoard, int[] alive) {
+        tileHashValid = false;
         flames = new ArrayList<>();
         bombs = new ArrayList<>();
+        flameIndexValid = false;
+        bombIndexValid = false;
 
         boolean noBoard = false;
         if (intBoard == null) {
@@ -206,12 +283,16 @@ public class ForwardModel {
         bombBlastStrength = new int[size][size];
         bombLife = new int[size][size];
         bombDiffusionCounter= new int[size][size];
+        nBombGridCells = 0;
+        bombGridVersion++;
 
         HashSet<Types.TILETYPE> agentTypes = Types.TILETYPE.getAgentTypes();
         agents = new GameObject[agentTypes.size()];
         for (Types.TILETYPE type : agentTypes) {
-            agents[type.getKey() - Types.TILETYPE.AGENT0.getKey()] = new Avatar(type.getKey(), gameMode);
+            agents[type.getKey() - Types.TILETYPE.AGENT0.getKey()] = new Avatar(type.getKey(), gameMode,
+                    context.getGameConfig(), context.getVisionRange());
         }
+        context.reset();
 
         if (alive == null) {
             // By default everyone is alive
@@ -237,38 +318,314 @@ public class ForwardModel {
     }
 
     /**
-     * Observation getters, package-level access only.
+     * Observation getters. Only those of IForwardModel are public, the rest have package-level access only.
      */
-    Types.TILETYPE[][] getBoard() {
+    public Types.TILETYPE[][] getBoard() {
         return board;
     }
-    int[][] getBombBlastStrength() {
+    public int[][] getBombBlastStrength() {
         return bombBlastStrength;
     }
-    int[][] getBombLife() {
+    public int[][] getBombLife() {
         return bombLife;
     }
     int[][] getBombDiffusionCounter() {
         return bombDiffusionCounter;
     }
-    GameObject[] getAgents() {
+    public GameObject[] getAgents() {
         return agents;
     }
-    ArrayList<GameObject> getAliveAgents() {
+    public ArrayList<GameObject> getAliveAgents() {
         return aliveAgents;
     }
+    Types.TILETYPE[][] getPowerups() {
+        return powerups;
+    }
+    ArrayList<GameObject> getFlames() {
+        return flames;
+    }
+    ArrayList<GameObject> getBombs() {
+        return bombs;
+    }
+    Types.GAME_MODE getGameMode() {
+        return game_mode;
+    }
+    Types.DIFFUSION_RULE getDiffusionRule() {
+        return diffusion_rule;
+    }
+    public GameContext getContext() {
+        return context;
+    }
+
+    /**
+     * Sets the context of the game this model belongs to. Must be called before init() for the settings of the
+     * context to apply to the agents.
+     * @param context context of the game.
+     */
+    public void setContext(GameContext context) {
+        this.context = context;
+    }
+
+    /**
+     * This is the reference engine, so this model is its own reference state.
+     */
+    public ForwardModel toForwardModel() {
+        return this;
+    }
 
     /**
      * Creates a copy of this model
      * @return a deep copy of this model
      */
-    ForwardModel copy(int playerIdx) {
+    public ForwardModel copy(int playerIdx) {
         ForwardModel copy = new ForwardModel(size, game_mode);
         copy.trueModel = false;  // This is a copy, not the true model
+        context.copyInto(copy.context);
         reduce(copy, playerIdx);
         return copy;
     }
 
+    /**
+     * Copies this model into another one, reusing the target's arrays, lists and objects where possible so that
+     * repeated copies (i.e. one per iteration of a search) don't allocate a new model each time.
+     * The result is the same as copy(playerIdx), and the previous contents of the target are lost.
+     * @param target model to overwrite.
+     * @param playerIdx index of the player to reduce the state for, -1 for a full copy.
+     */
+    void copyInto(ForwardModel target, int playerIdx) {
+        target.size = size;
+        target.game_mode = game_mode;
+        target.diffusion_rule = diffusion_rule;
+        target.trueModel = false;  // This is a copy, not the true model
+        if (target.journal != null) {
+            target.journal.clear();  // Checkpoints of the previous contents can't be restored anymore
+        }
+        context.copyInto(target.context);
+        reduce(target, playerIdx);
+    }
+
+    /**
+     * Opens a checkpoint: all changes made to this model from now on (i.e. by next()) are recorded, so that pop()
+     * can bring the model back to its current state. Checkpoints can be nested. This is meant for searches that
+     * walk down and back up a single model, instead of copying it on every iteration.
+     * @param tick game tick to restore on pop().
+     */
+    void push(int tick) {
+        if (journal == null) {
+            journal = new UndoJournal();
+        }
+        UndoJournal.Checkpoint checkpoint = journal.push();
+        checkpoint.tick = tick;
+        checkpoint.wallClock = context.getWallClock();
+        checkpoint.wallLayer = context.getWallLayer();
+        checkpoint.tileHash = tileHash;
+        checkpoint.tileHashValid = tileHashValid;
+
+        checkpoint.saveBombGridCells(bombGridCells, nBombGridCells);
+
+        checkpoint.agents.save(agents);
+        checkpoint.aliveAgents.save(aliveAgents, false);
+        checkpoint.bombs.save(bombs, true);
+        checkpoint.flames.save(flames, true);
+    }
+
+    /**
+     * Undoes all changes made to this model since the last call to push().
+     * @return game tick saved in the checkpoint.
+     */
+    int pop() {
+        if (journal == null) {
+            throw new IllegalStateException("pop() called without a matching push().");
+        }
+        UndoJournal.Checkpoint checkpoint = journal.pop();
+        context.setWall(checkpoint.wallClock, checkpoint.wallLayer);
+        tileHash = checkpoint.tileHash;
+        tileHashValid = checkpoint.tileHashValid;
+
+        bombGridCells = checkpoint.restoreBombGridCells(bombGridCells);
+        nBombGridCells = checkpoint.nBombGridCells;
+        bombGridVersion++;  // Grid values were restored by the journal
+
+        checkpoint.agents.restoreState();
+        checkpoint.aliveAgents.restore(aliveAgents, false);
+        checkpoint.bombs.restore(bombs, true);
+        checkpoint.flames.restore(flames, true);
+        flameIndexValid = false;
+        bombIndexValid = false;
+        return checkpoint.tick;
+    }
+
+    /**
+     * @return number of open checkpoints (calls to push() without a matching pop()).
+     */
+    int getCheckpointDepth() {
+        return journal == null ? 0 : journal.getDepth();
+    }
+
+    // Counters of objects per cell for the collision checks, allocated once per board size.
+    private int[] occupancy() {
+        if (occupancy == null || occupancy.length != size * size) {
+            occupancy = new int[size * size];
+        }
+        return occupancy;
+    }
+
+    /**
+     * Rewrites the bomb grids (blast strength, life and diffusion counter) from the list of bombs, in place. Only the
+     * cells written last time are cleared, so this takes time proportional to the number of bombs, not to the size
+     * of the board.
+     */
+    private void updateBombGrids() {
+        if (nBombGridCells < 0) {
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    clearBombGrids(x, y);
+                }
+            }
+        } else {
+            for (int i = 0; i < nBombGridCells; i++) {
+                clearBombGrids(bombGridCells[i] % size, bombGridCells[i] / size);
+            }
+        }
+
+        nBombGridCells = 0;
+        for (GameObject bombObject : bombs) {
+            Bomb bomb = (Bomb) bombObject;
+            Vector2d position = bomb.getPosition();
+            setGrid(bombBlastStrength, position.x, position.y, bomb.getBlastStrength());
+            setGrid(bombLife, position.x, position.y, bomb.getLife());
+            setGrid(bombDiffusionCounter, position.x, position.y, bomb.getDiffusionCounter());
+            if (nBombGridCells == bombGridCells.length) {
+                bombGridCells = Arrays.copyOf(bombGridCells, nBombGridCells * 2);
+            }
+            bombGridCells[nBombGridCells++] = position.y * size + position.x;
+        }
+        bombGridVersion++;
+    }
+
+    private void clearBombGrids(int x, int y) {
+        setGrid(bombBlastStrength, x, y, 0);
+        setGrid(bombLife, x, y, 0);
+        setGrid(bombDiffusionCounter, x, y, 0);
+    }
+
+    /**
+     * Sets a cell of a bomb grid, recording its previous value if there's an open checkpoint.
+     */
+    private void setGrid(int[][] grid, int x, int y, int value) {
+        if (grid[y][x] != value) {
+            if (journal != null && journal.isRecording()) {
+                journal.recordGrid(grid[y], x);
+            }
+            grid[y][x] = value;
+        }
+    }
+
+    /**
+     * @return a counter incremented every time the bomb grids are modified. The grids are updated in place, so
+     * observers which keep a copy of them (or data derived from them) can use this to know if it's still valid.
+     */
+    int getBombGridVersion() {
+        return bombGridVersion;
+    }
+
+    /**
+     * Sets a tile of the board (or power-ups array). All changes to tiles go through here so that they are recorded
+     * if there's an open checkpoint, and the hash of the tiles is kept up to date.
+     */
+    private void setTile(Types.TILETYPE[][] array, int x, int y, Types.TILETYPE type) {
+        if (journal != null && journal.isRecording()) {
+            journal.recordTile(array[y], x);
+        }
+        if (tileHashValid) {
+            int cell = y * size + x;
+            if (array == powerups) {
+                tileHash ^= Zobrist.powerup(array[y][x], cell) ^ Zobrist.powerup(type, cell);
+            } else {
+                tileHash ^= Zobrist.board(array[y][x], cell) ^ Zobrist.board(type, cell);
+            }
+        }
+        array[y][x] = type;
+    }
+
+    /**
+     * XORs the keys of all tiles that an exploding bomb may turn into flames into the hash of the tiles. Called before
+     * and after the explosion, this replaces the keys of the old tiles with those of the new ones.
+     */
+    private void hashBlast(Bomb bomb) {
+        if (tileHashValid) {
+            Vector2d pos = bomb.getPosition();
+            tileHash ^= Zobrist.board(board[pos.y][pos.x], pos.y * size + pos.x);
+            for (int i = 1; i < bomb.getBlastStrength(); i++) {
+                if (pos.x + i < size) tileHash ^= Zobrist.board(board[pos.y][pos.x + i], pos.y * size + pos.x + i);
+                if (pos.x - i >= 0) tileHash ^= Zobrist.board(board[pos.y][pos.x - i], pos.y * size + pos.x - i);
+                if (pos.y + i < size) tileHash ^= Zobrist.board(board[pos.y + i][pos.x], (pos.y + i) * size + pos.x);
+                if (pos.y - i >= 0) tileHash ^= Zobrist.board(board[pos.y - i][pos.x], (pos.y - i) * size + pos.x);
+            }
+        }
+    }
+
+    /**
+     * Computes the Zobrist hash of this model: board, hidden power-ups, bombs (position, life, blast strength,
+     * velocity and diffusion counter), flames (position and life) and avatars (position, ammo, blast strength,
+     * kick and result). The hash of the tiles is updated incrementally in next(), so it's only computed from scratch
+     * after the board is replaced (init, partially observable copies). Bombs and flames change their life every tick,
+     * so their keys are summed up on each call, which only takes a pass over the (short) lists of objects.
+     * @return 64-bit hash of the state of the game.
+     */
+    long hash() {
+        if (!tileHashValid) {
+            tileHash = 0;
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    tileHash ^= Zobrist.board(board[y][x], y * size + x);
+                    if (powerups != null) {
+                        tileHash ^= Zobrist.powerup(powerups[y][x], y * size + x);
+                    }
+                }
+            }
+            tileHashValid = true;
+        }
+
+        long h = tileHash;
+        for (GameObject o : bombs) {
+            Bomb b = (Bomb) o;
+            Vector2d velocity = b.getVelocity();
+            h += Zobrist.bomb(cellOf(b.getPosition()), b.getLife(), b.getBlastStrength(),
+                    velocity == null ? 0 : velocity.x, velocity == null ? 0 : velocity.y, b.getDiffusionCounter());
+        }
+        for (GameObject f : flames) {
+            h += Zobrist.flame(cellOf(f.getPosition()), f.getLife());
+        }
+        for (GameObject o : agents) {
+            Avatar a = (Avatar) o;
+            h += Zobrist.avatar(a.getPlayerID(), cellOf(a.getPosition()), a.getAmmo(), a.getBlastStrength(),
+                    a.canKick(), a.getWinner());
+        }
+        return h;
+    }
+
+    private int cellOf(Vector2d position) {
+        return position == null ? -1 : position.y * size + position.x;
+    }
+
+    /**
+     * Records all tiles that an exploding bomb may turn into flames, if there's an open checkpoint.
+     * Bombs modify the board directly when exploding, see Bomb.explode().
+     */
+    private void journalBlast(Bomb bomb) {
+        if (journal != null && journal.isRecording()) {
+            Vector2d pos = bomb.getPosition();
+            journal.recordTile(board[pos.y], pos.x);
+            for (int i = 1; i < bomb.getBlastStrength(); i++) {
+                if (pos.x + i < size) journal.recordTile(board[pos.y], pos.x + i);
+                if (pos.x - i >= 0) journal.recordTile(board[pos.y], pos.x - i);
+                if (pos.y + i < size) journal.recordTile(board[pos.y + i], pos.x);
+                if (pos.y - i >= 0) journal.recordTile(board[pos.y - i], pos.x);
+            }
+        }
+    }
+
     /**
      * ROLLS the MODEL FORWARD, applying the actions received as parameters,
      * and executing all passive events
@@ -276,12 +633,15 @@ public class ForwardModel {
      * It modifies THIS object to time t+1.
      * @param playerActions player actions to execute in this game state.
      */
-    void next(Types.ACTIONS[] playerActions) {
+    public void next(Types.ACTIONS[] playerActions) {
 
         if (VERBOSE_FM_DEBUG && trueModel) {
             System.out.println();
         }
 
+        // Bombs move and explode on this tick
+        bombIndexValid = false;
+
         // 1. Put actions into effect
         translatePlayerActions(playerActions);
 
@@ -312,7 +672,7 @@ public class ForwardModel {
 
             // Wrap around board size, don't let bombs outside of game area, check collisions with walls.
             if (!setDesiredCoordinate(b, b.getDesiredCoordinate(), board))
-                ((Bomb)b).setVelocity(new Vector2d());
+                ((Bomb)b).stop();
         }
 
         // 5. Position swap:
@@ -324,14 +684,14 @@ public class ForwardModel {
         checkPositionSwap(aliveAgents, bombs, board, true, VERBOSE_FM_DEBUG && trueModel);
 
         // 6. If >= 2 agents or >= 2 bombs on same space, bounce both back.
-        checkPositionOverlap(aliveAgents, board, VERBOSE_FM_DEBUG && trueModel);
-        checkPositionOverlap(bombs, board, VERBOSE_FM_DEBUG && trueModel);
+        checkPositionOverlap(aliveAgents, board, VERBOSE_FM_DEBUG && trueModel, occupancy());
+        checkPositionOverlap(bombs, board, VERBOSE_FM_DEBUG && trueModel, occupancy());
 
         // 7. Handle kicks & moving bombs hitting agents that can not kick
         handleMovingBombs();
 
         // 8. Late update bomb overlaps. In previous loop it's possible that some bombs ended up overlapping.
-        checkPositionOverlap(bombs, board, VERBOSE_FM_DEBUG && trueModel);
+        checkPositionOverlap(bombs, board, VERBOSE_FM_DEBUG && trueModel, occupancy());
 
         // If bombs were bounced back, then they may overlap players again, bounce players back too if players moved.
         for (GameObject b: bombs) {
@@ -356,8 +716,8 @@ public class ForwardModel {
             pickPowerUp((Avatar)p, x, y);
         }
 
-        // 10. Explode bombs
-        HashMap<Vector2d, Integer> flameOccupancy = handleBombExplosions();
+        // 10. Explode bombs. This leaves in the flame index all flames on this tick, including the ones that just died.
+        handleBombExplosions();
 
         // 11. Resolve flame on death effects
         for (GameObject f : deadFlames) {
@@ -367,15 +727,16 @@ public class ForwardModel {
 
                 // If there is a power-up at that position, add it to the board
                 if (powerups[y][x] != null) {
-                    board[y][x] = powerups[y][x];
-                    powerups[y][x] = null;
+                    setTile(board, x, y, powerups[y][x]);
+                    setTile(powerups, x, y, null);
                     // If no power-up, add a passage to the board
                 } else {
-                    board[y][x] = Types.TILETYPE.PASSAGE;
+                    setTile(board, x, y, Types.TILETYPE.PASSAGE);
                 }
             }
         }
         flames.removeAll(deadFlames);
+        flameIndexValid = false;  // Still holds the dead flames, which kill agents in step 13
 
         // 12. Add flames left alive back into the board if missing. Multiple flames may share a position, and the board
         // Should contain a flame until all flames are dead.
@@ -384,42 +745,30 @@ public class ForwardModel {
             int y = f.getDesiredCoordinate().y;
             if (board[y][x] != Types.TILETYPE.FLAMES) {
                 f.setPosition(f.getDesiredCoordinate());
-                board[y][x] = f.getType();
+                setTile(board, x, y, f.getType());
             }
         }
 
         // 13. Kill agents on flames. Otherwise, update position on board.
-        ArrayList<GameObject> deadAgentsThisTick = handleAgentKilling(flameOccupancy);
+        ArrayList<GameObject> deadAgentsThisTick = handleAgentKilling();
 
         // 14. Check for terminated agents
         if(deadAgentsThisTick.size() > 0) {
-            Types.getGameConfig().processDeadAgents(agents, aliveAgents, deadAgentsThisTick, game_mode);
+            context.getGameConfig().processDeadAgents(agents, aliveAgents, deadAgentsThisTick, game_mode);
         }
 
         // 15. Update observable board grids of item types, bomb blast strengths, bomb lives
-        bombBlastStrength = new int[size][size];
-        bombLife = new int[size][size];
-        bombDiffusionCounter= new int[size][size];
-
-        for(GameObject bombObject : bombs){
-            Bomb bomb = (Bomb) bombObject;
-            Vector2d position = bomb.getPosition();
-            bombBlastStrength[position.y][position.x] = bomb.getBlastStrength();
-            bombLife[position.y][position.x] = bomb.getLife();
-            bombDiffusionCounter[position.y][position.x] = bomb.getDiffusionCounter();
-        }
+        updateBombGrids();
 
         // add a flame wall every WALL_SPEED ticks.
         // If there is already a flame, the wall won't override its life.
 
         //update the wall clock
         // add a flame wall every WALL_SPEED ticks.
-        WALL_CLOCK++;
-        if (WALL_CLOCK == WALL_SPEED)
+        int wallLayer = context.tickWallClock();
+        if (wallLayer > 0)
         {
-            WALL_LAYER = WALL_LAYER+1;
-            addWallOfFire(WALL_LAYER);
-            WALL_CLOCK = 0;
+            addWallOfFire(wallLayer);
         }
 
         // 16. Logging
@@ -442,6 +791,7 @@ public class ForwardModel {
 
     private void addWallOfFire(int wall_layer)
     {
+        validateFlameIndex();
         for (int x = 0; x < Types.BOARD_SIZE; x++)
         {
             for (int y = 0; y < BOARD_SIZE; y++)
@@ -451,19 +801,30 @@ public class ForwardModel {
                     // flames are added here
                     addFlame(x, y, Types.WALL_LIFE);
                     //flame life is overwritten here (if there is another flame)
-                    for (GameObject flame_obj : flames)
+                    for (int e = flameIndex.first(x, y); e != -1; e = flameIndex.next(e))
                     {
-                        Flame flame = (Flame)flame_obj;
-                        if(flame.getPosition().x == x && flame.getPosition().y == y)
-                        {
-                            flame.setLife(Types.WALL_LIFE);
-                        }
+                        flameIndex.get(e).setLife(Types.WALL_LIFE);
                     }
 
                 }
             }
         }
     }
+    /**
+     * Checks if the tile an object moves away from can be replaced (with a passage or a hidden power-up).
+     * Power-ups, flames and other agents are never removed, and only bombs remove bombs.
+     * @param tile type of the tile the object leaves.
+     * @param mover type of the object.
+     * @return true if the tile can be replaced.
+     */
+    private static boolean canLeave(Types.TILETYPE tile, Types.TILETYPE mover) {
+        if (tile == Types.TILETYPE.BOMB) {
+            return mover == Types.TILETYPE.BOMB;
+        }
+        boolean kept = POWER_UP_TYPES.contains(tile) || tile == Types.TILETYPE.FLAMES || AGENT_TYPES.contains(tile);
+        return !kept || tile == mover;
+    }
+
     /**
      * Handles the movement of bombs, including kicking them if the agent can do so.
      */
@@ -472,23 +833,19 @@ public class ForwardModel {
         for (GameObject b: bombs) {
             for (GameObject p: aliveAgents) {
                 if (b.getDesiredCoordinate().equals(b.getPosition())){
-                    ((Bomb)b).setVelocity(new Vector2d());
+                    ((Bomb)b).stop();
                 }
                 if (p.getDesiredCoordinate().equals(b.getDesiredCoordinate())) {
                     // Agent tried to move onto bomb OR bomb tried to move onto agent, check if agent can kick
                     if (((Avatar)p).canKick()) {
                         // Player can kick, so set bomb velocity
-                        Vector2d velocity = p.getDesiredCoordinate().subtract(p.getPosition());
-                        ((Bomb)b).setVelocity(velocity);
+                        int vx = p.getDesiredCoordinate().x - p.getPosition().x;
+                        int vy = p.getDesiredCoordinate().y - p.getPosition().y;
+                        ((Bomb)b).setVelocity(vx, vy);
 
                         // First bomb move on the same tick as the kick happened. Do not move into players or walls.
                         // If bomb couldn't move, reset its velocity
-                        ArrayList<Types.TILETYPE> collisions = new ArrayList<>();
-                        collisions.add(Types.TILETYPE.RIGID);
-                        collisions.add(Types.TILETYPE.WOOD);
-                        collisions.addAll(Types.TILETYPE.getAgentTypes());
-
-                        if (velocity.mag() == 0) {
+                        if (vx == 0 && vy == 0) {
                             // They can be on same position only if agent just dropped bomb
                             // Move agent back if they moved & the bomb didn't move when the kick was attempted
                             if (!p.getDesiredCoordinate().equals(p.getPosition())) {
@@ -498,8 +855,9 @@ public class ForwardModel {
                                 setDesiredCoordinate(p, p.getPosition(), board);
                             }
                         } else {
-                            if (!setDesiredCoordinate(b, b.getDesiredCoordinate().add(velocity), board, collisions)) {
-                                ((Bomb) b).setVelocity(new Vector2d());
+                            if (!setDesiredCoordinate(b, b.getDesiredCoordinate().x + vx,
+                                    b.getDesiredCoordinate().y + vy, board, KICK_COLLISIONS)) {
+                                ((Bomb) b).stop();
                             }
                         }
                     } else {
@@ -522,96 +880,137 @@ public class ForwardModel {
     }
 
     /**
-     * Handles bomb explosions, creating the flame objects that destroy things.
-     * @return the set of positions occupied by flames.
+     * Handles bomb explosions, creating the flame objects that destroy things. The flame index is rebuilt here and
+     * holds all flames of this tick afterwards.
+     * Chain reactions are resolved with a worklist: bombs are exploded in passes over the list of bombs, a pass
+     * exploding the bombs that have a flame on them, in list order. Bombs reached by the flames of an explosion
+     * explode later in the same pass if they come after the exploding bomb in the list, or in the next pass otherwise.
+     * Only bombs reached by flames are visited, instead of checking all bombs again after every explosion.
      */
-    private HashMap<Vector2d, Integer> handleBombExplosions()
+    private void handleBombExplosions()
     {
-        boolean newExplosions = true;
-
-        // Get positions of flames
-        HashMap<Vector2d, Integer> flameOccupancy = checkOccupancy(flames);
+        // Get positions of flames and bombs. Entries of the bomb index are the indices in the list of bombs.
+        flameIndex.rebuild(flames, size, true);
+        flameIndexValid = true;
+        bombIndex.rebuild(bombs, size, false);
+        bombIndexValid = true;
+
+        // The first pass explodes bombs with no life left and bombs on flames that were already in the board
+        explodeNow.clear();
+        explodeNext.clear();
+        exploded.clear();
+        for (int i = 0; i < bombs.size(); i++) {
+            GameObject b = bombs.get(i);
+            if (b.getLife() == 0 || flameIndex.contains(b.getPosition())) {
+                explodeNow.set(i);
+            }
+        }
 
-        while (newExplosions) {
-            // Use this flag to chain explosions. If new flames are added, then we need to check all bombs again
-            newExplosions = false;
+        ArrayList<GameObject> deadBombs = new ArrayList<>();
+        while (!explodeNow.isEmpty()) {
+            for (int i = explodeNow.nextSetBit(0); i >= 0; i = explodeNow.nextSetBit(i + 1)) {
+                deadBombs.add(explodeBomb(i));
+            }
+            explodeNow.clear();
+            explodeNow.or(explodeNext);
+            explodeNext.clear();
+        }
+        bombs.removeAll(deadBombs);
+    }
 
-            ArrayList<GameObject> deadBombs = new ArrayList<>();
-            for (GameObject b : bombs) {
+    /**
+     * Explodes a bomb, adding its flames to the board and queueing the bombs they reach for explosion.
+     * @param i index of the bomb in the list of bombs and in the bomb index.
+     * @return the bomb exploded.
+     */
+    private Bomb explodeBomb(int i)
+    {
+        Bomb b = (Bomb) bombIndex.get(i);
 
-                // Force this bomb to explode if there is a flame at this position.
-                boolean forceExplosion = false;
-                if (flameOccupancy.get(b.getPosition()) != null) forceExplosion = true;
+        // Force this bomb to explode if there is a flame at this position.
+        boolean forceExplosion = flameIndex.contains(b.getPosition());
 
-                // Find the flame owners who triggered the explosion
-                if(trueModel && LOGGING_STATISTICS) {
-                    if (forceExplosion) {
-                        StringBuilder eventSB = new StringBuilder();
-                        eventSB.append(tick + " | [" + ((Bomb) b).getPlayerIdx() + "]'s bomb exploded at ("
-                                + b.getPosition().x + ", " + b.getPosition().y + ") triggered by ");
-                        Set<Integer> killerIDs = new HashSet<>();
-                        for (GameObject flame : this.flames) {
-                            if (flame.getPosition().equals(b.getPosition()))
-                                killerIDs.add(((Flame) flame).playerIdx);
-                        }
-                        for (Integer id : killerIDs) {
-                            eventSB.append("[" + id + "]");
-                            es.bombsTriggered[id]++;
-                        }
-                        eventSB.append("\n");
-                        es.events.add(eventSB.toString());
-                    }
-                    else if(b.getLife() == 0){
-                        String eventString = tick + " | [" + ((Bomb) b).getPlayerIdx() + "]'s bomb exploded at ("
-                                + b.getPosition().x + ", " + b.getPosition().y + ")\n";
-                        es.events.add(eventString);
+        // Find the flame owners who triggered the explosion
+        if(trueModel && LOGGING_STATISTICS) {
+            if (forceExplosion) {
+                StringBuilder eventSB = new StringBuilder();
+                eventSB.append(tick + " | [" + b.getPlayerIdx() + "]'s bomb exploded at ("
+                        + b.getPosition().x + ", " + b.getPosition().y + ") triggered by ");
+                int killerIDs = flameOwners(b.getPosition(), false);
+                for (int id = -1; id < agents.length; id++) {
+                    if ((killerIDs & (1 << (id + 1))) != 0) {
+                        eventSB.append("[" + id + "]");
+                        es.bombsTriggered[id]++;
                     }
                 }
+                eventSB.append("\n");
+                es.events.add(eventSB.toString());
+            }
+            else {
+                String eventString = tick + " | [" + b.getPlayerIdx() + "]'s bomb exploded at ("
+                        + b.getPosition().x + ", " + b.getPosition().y + ")\n";
+                es.events.add(eventString);
+            }
+        }
 
-                // TODO: Wood removals happen here, but within Bomb class, what's the best way of doing this? (to count them)
-
-                // This bomb will explode and create new flames if life reached 0, or forced to explode
-                ArrayList<GameObject> newFlames = ((Bomb) b).explode(forceExplosion, board, powerups);
-                if (newFlames != null && newFlames.size() > 0) {
-
-                    flames.addAll(newFlames);
-                    newExplosions = true;
+        // TODO: Wood removals happen here, but within Bomb class, what's the best way of doing this? (to count them)
 
-                    // Remove this bomb from the list of bombs
-                    deadBombs.add(b);
+        journalBlast(b);
+        hashBlast(b);  // Hash out the tiles the blast may overwrite...
+        ArrayList<GameObject> newFlames = b.explode(forceExplosion, board, powerups);
+        hashBlast(b);  // ... and hash in their new values
+        flames.addAll(newFlames);
+        exploded.set(i);
+        bombIndex.remove(b, b.getPosition());
 
-                    // Give the player 1 ammo back for this bomb
-                    int pIdx = ((Bomb) b).getPlayerIdx();
-                    if (pIdx >= 0) {
-                        ((Avatar)agents[pIdx]).addAmmo();
-                    }
+        // Give the player 1 ammo back for this bomb
+        int pIdx = b.getPlayerIdx();
+        if (pIdx >= 0) {
+            ((Avatar)agents[pIdx]).addAmmo();
+        }
 
-                    // Add new flame positions to the map
-                    HashMap<Vector2d, Integer> newOccupancy = checkOccupancy(newFlames);
-                    for (Map.Entry<Vector2d, Integer> e : newOccupancy.entrySet()) {
-                        flameOccupancy.merge(e.getKey(), e.getValue(), (a, b1) -> b1 + a);
-                    }
+        // Add new flame positions to the index, and chain the explosion to the bombs they reach
+        for (GameObject f : newFlames) {
+            flameIndex.add(f, f.getDesiredCoordinate());
+            for (int e = bombIndex.first(f.getDesiredCoordinate()); e != -1; e = bombIndex.next(e)) {
+                if (!exploded.get(e)) {
+                    if (e > i) explodeNow.set(e);
+                    else explodeNext.set(e);
                 }
             }
-            bombs.removeAll(deadBombs);
         }
+        return b;
+    }
 
-        return flameOccupancy;
+    /**
+     * Finds the owners of the flames at a position, using the flame index.
+     * @param pos position to check.
+     * @param aliveOnly true to ignore flames that died on this tick.
+     * @return bit mask with bit (playerIdx + 1) set for each owner.
+     */
+    private int flameOwners(Vector2d pos, boolean aliveOnly) {
+        int owners = 0;
+        for (int e = flameIndex.first(pos); e != -1; e = flameIndex.next(e)) {
+            Flame flame = (Flame) flameIndex.get(e);
+            if (!aliveOnly || flame.getLife() > 0) {
+                owners |= 1 << (flame.playerIdx + 1);
+            }
+        }
+        return owners;
     }
 
     /**
-     * Handles killing agents with flames in the board.
-     * @param flameOccupancy location of the flames on this tick.
+     * Handles killing agents with flames in the board, i.e. the flames in the flame index.
      * @return list of agents killed on this tick
      */
-    private ArrayList<GameObject> handleAgentKilling(HashMap<Vector2d, Integer> flameOccupancy)
+    private ArrayList<GameObject> handleAgentKilling()
     {
         ArrayList<GameObject> deadAgentsThisTick = new ArrayList<>();
         for (GameObject p : aliveAgents) {
             Vector2d nextPos = p.getDesiredCoordinate();
             Vector2d currPos = p.getPosition();
 
-            if (flameOccupancy.containsKey(nextPos)) {
+            if (flameIndex.contains(nextPos)) {
                 // This agent was killed by a flame, remove from list
                 p.setLife(0);
                 deadAgentsThisTick.add(p);
@@ -621,13 +1020,11 @@ public class ForwardModel {
                     eventSB.append(tick + " | [" + (((Avatar) p).getPlayerID() - 10) + "] died at ("
                             + nextPos.x + ", " + nextPos.y + ") by ");
 
-                    Set<Integer> killerIDs = new HashSet<>();
-                    for (GameObject flame : this.flames) {
-                        if (flame.getPosition().equals(nextPos))
-                            killerIDs.add(((Flame) flame).playerIdx);
-                    }
-                    for (Integer id : killerIDs) {
-                        eventSB.append("[" + id + "]");
+                    int killerIDs = flameOwners(nextPos, true);
+                    for (int id = -1; id < agents.length; id++) {
+                        if ((killerIDs & (1 << (id + 1))) != 0) {
+                            eventSB.append("[" + id + "]");
+                        }
                     }
                     eventSB.append("'s flame(s)");
 
@@ -645,7 +1042,7 @@ public class ForwardModel {
 
                 if (board[currPos.y][currPos.x] != Types.TILETYPE.BOMB
                         && board[currPos.y][currPos.x] != Types.TILETYPE.FLAMES) {
-                    board[currPos.y][currPos.x] = Types.TILETYPE.PASSAGE;
+                    setTile(board, currPos.x, currPos.y, Types.TILETYPE.PASSAGE);
                 }
             } else {
                 move(p);
@@ -670,44 +1067,33 @@ public class ForwardModel {
                 if (trueModel && VERBOSE_FM_DEBUG) {
                     System.out.println("Moving " + o.getType() + ": " + currentPos + " -> " + nextPos);
                 }
-                o.setPosition(nextPos.copy());
-
-                HashSet<Types.TILETYPE> powerUpTypes = Types.TILETYPE.getPowerUpTypes();
-                HashSet<Types.TILETYPE> agentTypes = TILETYPE.getAgentTypes();
-
-                // Set up sprites that cannot be replaced with a passage when current sprite moves from its square.
-                HashSet<Types.TILETYPE> illegalOverwriteTypes = new HashSet<>(powerUpTypes);
-                illegalOverwriteTypes.add(Types.TILETYPE.FLAMES);  // We don't remove flames
-                illegalOverwriteTypes.addAll(agentTypes);  // We don't remove other agents...
-                illegalOverwriteTypes.remove(o.getType()); // Unless this agent is the current object
+                o.setPosition(nextPos);
 
                 // Bombs don't leave traces of bombs behind them, and other sprites do not remove bombs from the board
-                if (o.getType() != Types.TILETYPE.BOMB) {
-                    illegalOverwriteTypes.add(Types.TILETYPE.BOMB);
-                } else {
+                if (o.getType() == Types.TILETYPE.BOMB) {
                     // Check if next is a powerup, we should put it back in the powerup array before removing it from
                     // the board (unless it's an avatar collecting it).
-                    if (!agentTypes.contains(o.getType()) && powerUpTypes.contains(nextType)) {
-                        powerups[nextPos.y][nextPos.x] = board[nextPos.y][nextPos.x];
+                    if (POWER_UP_TYPES.contains(nextType)) {
+                        setTile(powerups, nextPos.x, nextPos.y, board[nextPos.y][nextPos.x]);
                     }
                 }
 
                 // Update current position
                 // Only update current position if the object there can be overwritten
                 // Replace with passage if there isn't a power-up there that should be added back in
-                if (canOverwrite(currentPos, board, illegalOverwriteTypes)) {
+                if (canLeave(board[currentPos.y][currentPos.x], o.getType())) {
                     if (powerups[currentPos.y][currentPos.x] != null) {
-                        board[currentPos.y][currentPos.x] = powerups[currentPos.y][currentPos.x];
-                        powerups[currentPos.y][currentPos.x] = null;
+                        setTile(board, currentPos.x, currentPos.y, powerups[currentPos.y][currentPos.x]);
+                        setTile(powerups, currentPos.x, currentPos.y, null);
                     } else {
-                        board[currentPos.y][currentPos.x] = Types.TILETYPE.PASSAGE;
+                        setTile(board, currentPos.x, currentPos.y, Types.TILETYPE.PASSAGE);
                     }
                 }
             }
         }
 
         // Update next position. The order is bombs, avatars, so avatars would overwrite bombs.
-        board[nextPos.y][nextPos.x] = o.getType();
+        setTile(board, nextPos.x, nextPos.y, o.getType());
     }
 
     /**
@@ -735,7 +1121,8 @@ public class ForwardModel {
                 action = Types.ACTIONS.ACTION_STOP;
             }
 
-            boolean successful = setDesiredCoordinate(agent, pos.add(action.getDirection().toVec()), board);
+            Types.DIRECTIONS direction = action.getDirection();
+            boolean successful = setDesiredCoordinate(agent, pos.x + direction.x(), pos.y + direction.y(), board);
 
             if (action == Types.ACTIONS.ACTION_BOMB) {
                 if (agent.getAmmo() > 0 && bombBlastStrength[pos.y][pos.x] == 0) {
@@ -907,8 +1294,11 @@ public class ForwardModel {
         bomb.setPosition(new Vector2d(x, y));
         setDesiredCoordinate(bomb, new Vector2d(x, y), board);
         bombs.add(bomb);
+        if (bombIndexValid) {
+            bombIndex.add(bomb, bomb.getPosition());
+        }
         if (addToBoard) {
-            board[y][x] = Types.TILETYPE.BOMB;
+            setTile(board, x, y, Types.TILETYPE.BOMB);
         }
     }
 
@@ -949,6 +1339,7 @@ public class ForwardModel {
                 case 0: //GET_AMMO
                     agent.addAmmo();
                     bombs.remove(bomb);
+                    bombIndexValid = false;
                     removeObject(currentPos.x,currentPos.y, TILETYPE.BOMB,true);
                     break;
 
@@ -963,6 +1354,7 @@ public class ForwardModel {
                     }while( !(board[x][y] == TILETYPE.PASSAGE && x!=currentPos.x && y!=currentPos.y) );
 
                     bombs.remove(bomb);
+                    bombIndexValid = false;
                     removeObject(currentPos.x,currentPos.y, TILETYPE.BOMB,true);
                     addBomb(x,y,bomb.getBlastStrength(),bomb.getLife(),bomb.getPlayerIdx(),true);
             }
@@ -974,7 +1366,10 @@ public class ForwardModel {
         setDesiredCoordinate(flame, new Vector2d(x, y), board);
         flame.setPosition(flame.getDesiredCoordinate());
         flames.add(flame);
-        board[y][x] = Types.TILETYPE.FLAMES;
+        if (flameIndexValid) {
+            flameIndex.add(flame, flame.getPosition());
+        }
+        setTile(board, x, y, Types.TILETYPE.FLAMES);
     }
 
 
@@ -997,7 +1392,7 @@ public class ForwardModel {
         ((Avatar)agent).setWinner(Types.RESULT.INCOMPLETE);
         agent.setPosition(new Vector2d(x, y));
         setDesiredCoordinate(agent, new Vector2d(x, y), board);
-        board[y][x] = agent.getType();
+        setTile(board, x, y, agent.getType());
     }
 
     void removePowerUp(int x, int y, Types.TILETYPE type) {
@@ -1012,32 +1407,39 @@ public class ForwardModel {
         GameObject object = new GameObject(type);
         object.setPosition(new Vector2d(x, y));
         setDesiredCoordinate(object, new Vector2d(x, y), targetArray);
-        targetArray[y][x] = type;
+        setTile(targetArray, x, y, type);
     }
 
     private void removeObject(int x, int y, Types.TILETYPE type, Types.TILETYPE[][] targetArray, boolean onlyBoard) {
         Vector2d pos = new Vector2d(x, y);
-        targetArray[y][x] = TILETYPE.PASSAGE;
+        setTile(targetArray, x, y, TILETYPE.PASSAGE);
 
         if (!onlyBoard) {
             if (type == TILETYPE.BOMB) {
-                ArrayList<GameObject> gos = findObjectInList(pos, bombs);
-                for (GameObject go: gos) {
+                validateBombIndex();
+                for (int e = bombIndex.first(pos); e != -1; ) {
+                    GameObject go = bombIndex.get(e);
+                    e = bombIndex.next(e);
                     bombs.remove(go);
+                    bombIndex.remove(go, pos);
                 }
-                bombLife[y][x] = 0;
-                bombBlastStrength[y][x] = 0;
+                setGrid(bombLife, x, y, 0);
+                setGrid(bombBlastStrength, x, y, 0);
+                bombGridVersion++;
             } else if (type == TILETYPE.FLAMES) {
-                ArrayList<GameObject> gos = findObjectInList(pos, flames);
-                for (GameObject go: gos) {
+                validateFlameIndex();
+                for (int e = flameIndex.first(pos); e != -1; ) {
+                    GameObject go = flameIndex.get(e);
+                    e = flameIndex.next(e);
                     flames.remove(go);
+                    flameIndex.remove(go, pos);
                 }
             } else if (TILETYPE.getAgentTypes().contains(type)) {
                 GameObject ob = agents[type.getKey() - 10];
                 ((Avatar)ob).setWinner(RESULT.LOSS);
                 aliveAgents.remove(ob);
             } else if (TILETYPE.getPowerUpTypes().contains(type)) {
-                powerups[y][x] = null;
+                setTile(powerups, x, y, null);
             }
         }
     }
@@ -1054,20 +1456,36 @@ public class ForwardModel {
     // Sets properties of bomb, identified by position
     void setBomb(int x, int y, int playerIdx, Vector2d velocity) {
         Vector2d pos = new Vector2d(x, y);
-        ArrayList<GameObject> gos = findObjectInList(pos, bombs);
-        for (GameObject go: gos) {
-            Bomb bomb = (Bomb)go;
+        validateBombIndex();
+        for (int e = bombIndex.first(pos); e != -1; e = bombIndex.next(e)) {
+            Bomb bomb = (Bomb)bombIndex.get(e);
             bomb.setPlayerIdx(playerIdx);
-            bomb.setVelocity(velocity);
+            bomb.setVelocity(velocity == null ? null : velocity.copy());  // Not shared, as bombs stop in place
         }
     }
 
     // Sets properties of flame, identified by position
     void setFlame(int x, int y, int life) {
         Vector2d pos = new Vector2d(x, y);
-        ArrayList<GameObject> flame = findObjectInList(pos, flames);
-        for (GameObject f : flame) {
-            f.setLife(life);
+        validateFlameIndex();
+        for (int e = flameIndex.first(pos); e != -1; e = flameIndex.next(e)) {
+            flameIndex.get(e).setLife(life);
+        }
+    }
+
+    // Rebuilds the bomb index from the list of bombs, if needed. Bombs are indexed by position.
+    private void validateBombIndex() {
+        if (!bombIndexValid) {
+            bombIndex.rebuild(bombs, size, false);
+            bombIndexValid = true;
+        }
+    }
+
+    // Rebuilds the flame index from the list of flames, if needed.
+    private void validateFlameIndex() {
+        if (!flameIndexValid) {
+            flameIndex.rebuild(flames, size, true);
+            flameIndexValid = true;
         }
     }
 
@@ -1148,16 +1566,31 @@ public class ForwardModel {
             range = avatar.getVisionRange();
         }
 
-        // Init new power-up and board arrays
-        copy.powerups = new Types.TILETYPE[size][size];
-        copy.board = new Types.TILETYPE[size][size];
+        // Init new power-up and board arrays, unless the copy already has some we can overwrite
+        if (copy.board == null || copy.board.length != size || copy.bombDiffusionCounter == null) {
+            copy.powerups = new Types.TILETYPE[size][size];
+            copy.board = new Types.TILETYPE[size][size];
+            copy.bombBlastStrength = new int[size][size];
+            copy.bombLife = new int[size][size];
+            copy.bombDiffusionCounter = new int[size][size];
+            copy.nBombGridCells = 0;
+        }
 
         // Init new flames and bomb arrays
-        copy.flames = new ArrayList<>();
-        copy.bombs = new ArrayList<>();
+        if (copy.flames == null) copy.flames = new ArrayList<>();
+        if (copy.bombs == null) copy.bombs = new ArrayList<>();
+        copy.flameIndexValid = false;
+        copy.bombIndexValid = false;
+        if (copy.aliveAgents == null) copy.aliveAgents = new ArrayList<>();
 
         // Agents and aliveAgents do not get reduced. But their position is removed if we don't know where they are.
-        copy.agents = deepCopy(agents);
+        if (copy.agents == null || copy.agents.length != agents.length) {
+            copy.agents = deepCopy(agents);
+        } else {
+            for (int i = 0; i < agents.length; i++) {
+                agents[i].copyInto(copy.agents[i]);
+            }
+        }
         for (GameObject a: copy.agents) {
             if (range != -1 && a.getPosition() != null && a.getPosition().custom_dist(avatarPosition) > range) {
                 // This agent's position is not observed
@@ -1168,15 +1601,32 @@ public class ForwardModel {
             //((Avatar)a).reset();
         }
 
+        // Full copies keep the hash of the tiles, reduced ones have to compute it again
+        copy.tileHash = tileHash;
+        copy.tileHashValid = tileHashValid && range == -1;
+
+        // Cells in vision range form a square around the avatar, as the distance is the largest of both axes
+        int minX = 0, maxX = size - 1, minY = 0, maxY = size - 1;
+        if (range != -1) {
+            if (avatarPosition == null) {
+                maxX = -1;  // Nothing visible
+            } else {
+                minX = avatarPosition.x - range;
+                maxX = avatarPosition.x + range;
+                minY = avatarPosition.y - range;
+                maxY = avatarPosition.y + range;
+            }
+        }
+
         // Reduce power-ups and board arrays
         for (int x = 0; x < size; x++) {
             for (int y = 0; y < size; y++) {
-                if (range == -1 || avatarPosition != null && avatarPosition.custom_dist(x, y) <= range) {
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
                     copy.board[y][x] = board[y][x];
-                    if (range == -1)
-                        copy.powerups[y][x] = powerups[y][x];
+                    copy.powerups[y][x] = (range == -1) ? powerups[y][x] : null;
                 } else {
                     copy.board[y][x] = Types.TILETYPE.FOG;
+                    copy.powerups[y][x] = null;
                 }
             }
         }
@@ -1185,18 +1635,10 @@ public class ForwardModel {
         // Reset flames life if playerIdx > -1, players don't know this information
         _reduceHiddenList(flames, copy.flames, avatarPosition, range);
         _reduceHiddenList(bombs, copy.bombs, avatarPosition, range);
-        copy.aliveAgents = findAliveAgents(copy.agents);
+        findAliveAgents(copy.agents, copy.aliveAgents);
 
         // Finally construct the main components of observations
-        copy.bombBlastStrength = new int[size][size];
-        copy.bombLife = new int[size][size];
-
-        for(GameObject bombObject : copy.bombs){
-            Bomb bomb = (Bomb) bombObject;
-            Vector2d position = bomb.getPosition();
-            copy.bombBlastStrength[position.y][position.x] = bomb.getBlastStrength();
-            copy.bombLife[position.y][position.x] = bomb.getLife();
-        }
+        copy.updateBombGrids();
     }
 
     @Override
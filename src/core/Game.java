@@ -4,6 +4,8 @@ import objects.Avatar;
 import objects.GameObject;
 import players.Player;
 import players.SimonSaysPlayer;
+import utils.DecisionStats;
+import utils.ElapsedCpuTimer;
 import utils.GUI;
 import utils.GameLog;
 import utils.Types;
@@ -12,7 +14,6 @@ import utils.WindowInput;
 import java.util.*;
 
 import static utils.Types.*;
-import static utils.Types.VISUALS;
 
 @SuppressWarnings("FieldCanBeLocal")
 public class Game {
@@ -26,6 +27,10 @@ public class Game {
     // GameState objects for players to make decisions
     private GameState[] gameStateObservations;
 
+    // Whether the observation of each player at this tick was given out (to the player, or read by others). Those
+    // which weren't can't be read anymore once the game advances (see GameState.dropView()).
+    private boolean[] observed = new boolean[NUM_PLAYERS];
+
     // List of players of the game
     private ArrayList<Player> players;
 
@@ -41,13 +46,28 @@ public class Game {
     // String that identifies this game (for logging purposes)
     private String gameIdStr;
 
+    // Settings and wall clock of this game, shared with the true model of the game.
+    private GameContext context;
+
     // Log flags
     public static boolean LOG_GAME = false;
     public static boolean LOG_GAME_JSON = true; // If the game is being logged, should it be saved to json
 
-    // Variables for multi-threaded run
-    private Actor[] actors = new Actor[NUM_PLAYERS];
-    private Thread[] threads = new Thread[NUM_PLAYERS];
+    // True to log this game in memory only (see getGameLog()), i.e. when several games are played at once.
+    private boolean keepLog;
+
+    // False if this game ignores LOG_GAME, i.e. games ticked from outside (see VecEnv), logged only if keepLog.
+    private boolean globalLog = true;
+
+    // Executor asking players for actions in multi-threaded runs, and whether this game created it (and closes it).
+    private AgentExecutor agentExecutor;
+    private boolean ownExecutor;
+
+    // Timing of the decisions of each player in the last game run, and players skipping their next decision or
+    // disqualified for overrunning the decision deadline (see GameContext.getOverrunPenalty()).
+    private DecisionStats[] decisionStats = newDecisionStats();
+    private boolean[] skipping = new boolean[NUM_PLAYERS];
+    private boolean[] disqualified = new boolean[NUM_PLAYERS];
 
     /**
      * Constructor of the game
@@ -56,10 +76,22 @@ public class Game {
      * @param gameMode Mode of this game.
      */
     public Game(long seed, int size, Types.GAME_MODE gameMode, String gameIdStr) {
+        this(seed, size, gameMode, gameIdStr, new GameContext());
+    }
+
+    /**
+     * Constructor of the game with its own settings, instead of the defaults in Types.
+     * @param seed Seed for the game (used only for board generation)
+     * @param size Size of the board.
+     * @param gameMode Mode of this game.
+     * @param context Settings of this game.
+     */
+    public Game(long seed, int size, Types.GAME_MODE gameMode, String gameIdStr, GameContext context) {
         this.gameMode = gameMode;
         this.seed = seed;
         this.size = size;
         this.gameIdStr = gameIdStr;
+        this.context = context;
         reset(seed);
     }
 
@@ -74,6 +106,7 @@ public class Game {
         this.seed = seed;
         this.gs = state.copy();
         this.gs.model.setTrueModel();
+        this.context = gs.getContext();
         this.size = state.model.getBoard().length;
         updateAssignedGameStates();
     }
@@ -90,6 +123,7 @@ public class Game {
         this.size = model.getBoard().length;
         this.gs = new GameState(seed, model, gameMode);
         this.gs.model.setTrueModel();
+        this.context = gs.getContext();
         updateAssignedGameStates();
     }
 
@@ -103,6 +137,7 @@ public class Game {
         this.seed = gs.getSeed();
         this.size = gs.model.getBoard().length;
         this.gs.model.setTrueModel();
+        this.context = this.gs.getContext();
         updateAssignedGameStates();
     }
 
@@ -115,6 +150,7 @@ public class Game {
         this.seed = seed;
         this.gs = new GameState(seed, size, gameMode, true);
         this.gs.model.setTrueModel();
+        this.gs.model.setContext(context);
         this.gs.init();
         updateAssignedGameStates();
     }
@@ -130,6 +166,7 @@ public class Game {
         }
         this.gs = new GameState(seed, size, gameMode, true);
         this.gs.model.setTrueModel();
+        this.gs.model.setContext(context);
         this.gs.init();
         updateAssignedGameStates();
     }
@@ -154,6 +191,15 @@ public class Game {
         return copy;
     }
 
+    /**
+     * Selects the engine that advances the true state of this game, from its current state and after resets.
+     * @param engine engine to use.
+     */
+    public void setEngine(Types.ENGINE engine) {
+        context.setEngine(engine);
+        gs.startEngine();
+    }
+
     /**
      * Sets the players of the game and initializes the array to hold their game states.
      * @param players Players of the game.
@@ -173,11 +219,21 @@ public class Game {
     /**
      * Returns the game state as seen for the player with the index playerIdx. This game staet
      * includes only the observations that are visible if partial observability is enabled.
+     * The state is a view, which only copies the game state if the player reads or changes it.
      * @param playerIdx index of the player for which the game state is generated.
      * @return the game state.
      */
     private GameState getGameState(int playerIdx) {
-        return gs.copy(playerIdx);
+        return gs.view(playerIdx);
+    }
+
+    /**
+     * @param playerIdx index of the player.
+     * @return the game state the player observes, as given to it to act (see getGameState(int)).
+     */
+    GameState getObservation(int playerIdx) {
+        observed[playerIdx] = true;
+        return gameStateObservations[playerIdx];
     }
 
     /**
@@ -198,35 +254,37 @@ public class Game {
     public Types.RESULT[] run(GUI frame, WindowInput wi, boolean separateThreads)
     {
         if (frame == null || wi == null)
-            VISUALS = false;
+            context.setVisuals(false);
 
         boolean firstEnd = true;
         Types.RESULT[] results = null;
-        if (LOG_GAME)
+        decisionStats = newDecisionStats();
+        Arrays.fill(skipping, false);
+        Arrays.fill(disqualified, false);
+        if (isLogging())
             gameLog = new GameLog(seed, size, gameMode);
 
-        if (separateThreads) {
-            createActors();
-        }
-
-        while(!isEnded() || VISUALS && wi != null && !wi.windowClosed && !isEnded()) {
+        while(!isEnded() || context.isVisuals() && wi != null && !wi.windowClosed && !isEnded()) {
             // Loop while window is still open, even if the game ended.
             // If not playing with visuals, loop while the game's not ended.
             tick(separateThreads);
+            if (context.isFastForward() && !context.isVisuals() && !isEnded() && isQuiescent()) {
+                fastForward();
+            }
 
             // Check end of game
             if (firstEnd && isEnded()) {
                 firstEnd = false;
                 results = terminate();
 
-                if (!VISUALS) {
+                if (!context.isVisuals()) {
                     // The game has ended, end the loop if we're running without visuals.
                     break;
                 }
             }
 
             // Paint game state
-            if (VISUALS && frame != null) {
+            if (context.isVisuals() && frame != null) {
                 frame.paint();
                 try {
                     Thread.sleep(FRAME_DELAY);
@@ -242,7 +300,7 @@ public class Game {
         }
 
         // Save logged game
-        if (LOG_GAME) {
+        if (LOG_GAME && globalLog) {
             if (LOG_GAME_JSON) {
                 gameLog.serializeJSON(gameIdStr);
             } else {
@@ -250,13 +308,11 @@ public class Game {
             }
         }
 
-        // Collect and kill all threads
-        if (separateThreads) {
-            try {
-                killThreads();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+        // Stop the threads of the players, unless they're shared with other games
+        if (ownExecutor) {
+            agentExecutor.close();
+            agentExecutor = null;
+            ownExecutor = false;
         }
 
         return results;
@@ -274,21 +330,27 @@ public class Game {
         // Retrieve agent actions
         Types.ACTIONS[] actions = null;
         if (separateThreads) {
-            try {
-                actions = getAvatarActionsInSeparateThreads();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+            actions = getAvatarActionsInSeparateThreads();
         } else {
             actions = getAvatarActions();
         }
 
+        tick(actions);
+    }
+
+    /**
+     * Ticks the game forward with the given actions, instead of asking the players (i.e. when actions come from
+     * outside, see VecEnv).
+     * @param actions actions of all players, by player index.
+     */
+    void tick(Types.ACTIONS[] actions) {
         // Log actions
-        if (LOG_GAME) {
-            gameLog.addActions(actions);
+        if (isLogging()) {
+            logActions(actions);
         }
 
         // Advance the game state
+        dropUnobservedViews();
         gs.next(actions);
         updateAssignedGameStates();
 
@@ -298,7 +360,49 @@ public class Game {
     }
 
     /**
-     * Get player actions, 1 for each avatar still in the game. Called at every frame.
+     * Checks if the outcome of the game can only change by timeout: all players still playing are passive (or
+     * disqualified) and the state is quiet, i.e. there are no bombs or flames (see GameState.isQuiet()).
+     * @return true if the game is quiescent.
+     */
+    private boolean isQuiescent() {
+        if (LOGGING_STATISTICS) {
+            return false;  // Statistics are gathered every tick
+        }
+        for (int i = 0; i < NUM_PLAYERS; i++) {
+            if (gameStateObservations[i].winner() == Types.RESULT.INCOMPLETE && !players.get(i).isPassive()
+                    && !disqualified[i]) {
+                return false;
+            }
+        }
+        return gs.isQuiet();
+    }
+
+    /**
+     * Advances a quiescent game to its end in one step, with the same outcome and log as if all players had been
+     * asked for actions (and stopped) tick by tick.
+     */
+    private void fastForward() {
+        // Alive agents don't change until the end, so neither does the game configuration's end condition
+        int ticks = 1;
+        while (gs.getTick() + ticks < MAX_GAME_TICKS &&
+                !context.getGameConfig().isEnded(gs.getTick() + ticks, gameMode, gs.getAliveAgents())) {
+            ticks++;
+        }
+        if (isLogging()) {
+            for (int t = 0; t < ticks; t++) {
+                Types.ACTIONS[] actions = new Types.ACTIONS[NUM_PLAYERS];
+                Arrays.fill(actions, Types.ACTIONS.ACTION_STOP);
+                logActions(actions);
+            }
+        }
+        dropUnobservedViews();
+        gs.skipQuietTicks(ticks);
+        updateAssignedGameStates();
+    }
+
+    /**
+     * Get player actions, 1 for each avatar still in the game. Each decision is timed, and overruns of the deadline
+     * are penalized once the player returns (see GameContext.getOverrunPenalty()). Called at every frame.
      */
     private Types.ACTIONS[] getAvatarActions() {
         // Get player actions, 1 for each avatar still in the game
@@ -307,10 +411,14 @@ public class Game {
             Player p = players.get(i);
 
             // Check if this player is still playing
-            if (gameStateObservations[i].winner() == Types.RESULT.INCOMPLETE) {
-                actions[i] = p.act(gameStateObservations[i]);
+            if (gameStateObservations[i].winner() == Types.RESULT.INCOMPLETE && !benched(i)) {
+                ElapsedCpuTimer timer = new ElapsedCpuTimer(context.getActTimer());
+                // Passive players don't read their observation, which isn't kept once the game advances
+                Types.ACTIONS action = p.act(p.isPassive() ? gameStateObservations[i] : getObservation(i));
+                long elapsed = timer.elapsedNanos();
+                actions[i] = decided(i, action, elapsed, elapsed > context.getActDeadline() * 1000000L);
             } else {
-                // This player is dead and action will be ignored
+                // This player is dead (or benched) and action will be ignored
                 actions[i] = Types.ACTIONS.ACTION_STOP;
             }
         }
@@ -318,53 +426,104 @@ public class Game {
     }
 
     /**
-     * Get player actions, 1 for each avatar still in the game, using separate threads. Called at every frame.
+     * Get player actions, 1 for each avatar still in the game, asking all players at the same time in separate
+     * threads. Players have context.getActDeadline() milliseconds to answer, or play ACTION_STOP; answers within
+     * the deadline in wall-clock time may still overrun it in CPU time. Called at every frame.
      */
-    private Types.ACTIONS[] getAvatarActionsInSeparateThreads() throws InterruptedException {
-        //
-        Types.ACTIONS[] actions = new Types.ACTIONS[NUM_PLAYERS];
+    private Types.ACTIONS[] getAvatarActionsInSeparateThreads() {
+        if (agentExecutor == null) {
+            agentExecutor = new AgentExecutor();
+            ownExecutor = true;
+        }
+        GameState[] observations = new GameState[NUM_PLAYERS];
         for (int i = 0; i < NUM_PLAYERS; i++) {
-            Player p = players.get(i);
-
-            // Check if this player is still playing
-            if (gameStateObservations[i].winner() == Types.RESULT.INCOMPLETE) {
-                actors[i].player = p;
-                threads[i] = new Thread(actors[i]);
-                threads[i].start();
-            } else {
-                threads[i] = null;
-                // This player is dead and action will be ignored
-                actions[i] = Types.ACTIONS.ACTION_STOP;
+            // Players no longer playing aren't asked, their action will be ignored
+            if (gameStateObservations[i].winner() == Types.RESULT.INCOMPLETE && !benched(i)) {
+                observations[i] = gameStateObservations[i];
             }
         }
-
-        killThreads();
-
+        long deadline = context.getActDeadline() * 1000000L;
+        long[] elapsed = new long[NUM_PLAYERS];
+        Types.ACTIONS[] actions = agentExecutor.act(players, observations, context.getActDeadline(),
+                context.getActTimer(), elapsed);
         for (int i = 0; i < NUM_PLAYERS; i++) {
-            if (threads[i] != null)
-                actions[i] = actors[i].getValue();
+            observed[i] |= elapsed[i] != AgentExecutor.NOT_ASKED && !players.get(i).isPassive();
+            if (elapsed[i] == AgentExecutor.LATE) {
+                // The call is still running: it's counted as lasting the deadline
+                actions[i] = decided(i, actions[i], deadline, true);
+            } else if (elapsed[i] != AgentExecutor.NOT_ASKED) {
+                actions[i] = decided(i, actions[i], elapsed[i], elapsed[i] > deadline);
+            }
         }
-
         return actions;
     }
 
     /**
-     * Creates actor objects for the players.
+     * Checks whether a player sits out this decision, as a penalty for overrunning the deadline before.
+     * @param playerIdx index of the player.
+     * @return true if the player is disqualified, or skips this decision.
      */
-    public void createActors() {
-        for (int i = 0; i < NUM_PLAYERS; i++)
-            actors[i] = new Actor();
+    private boolean benched(int playerIdx) {
+        if (skipping[playerIdx]) {
+            skipping[playerIdx] = false;
+            return true;
+        }
+        return disqualified[playerIdx];
+    }
+
+    /**
+     * Records a decision of a player, and penalizes it if it overran the deadline.
+     * @param playerIdx index of the player.
+     * @param action action returned by the player.
+     * @param nanos time the decision took, in nanoseconds.
+     * @param overrun true if the decision overran the deadline.
+     * @return the action the player plays.
+     */
+    private Types.ACTIONS decided(int playerIdx, Types.ACTIONS action, long nanos, boolean overrun) {
+        decisionStats[playerIdx].add(nanos, overrun);
+        if (!overrun) {
+            return action;
+        }
+        switch (context.getOverrunPenalty()) {
+            case NONE:
+                return action;
+            case SKIP:
+                skipping[playerIdx] = true;
+                break;
+            case DISQUALIFY:
+                disqualified[playerIdx] = true;
+                break;
+        }
+        return Types.ACTIONS.ACTION_STOP;
     }
 
     /**
-     * Kills all threads.
-     * @throws InterruptedException if threads could not be killed
+     * @return timing of the decisions of each player (indexed as the players) in the game being run, or the last
+     * game run, including overruns of the deadline.
      */
-    private void killThreads() throws InterruptedException {
+    public DecisionStats[] getDecisionStats() {
+        return decisionStats;
+    }
+
+    private static DecisionStats[] newDecisionStats() {
+        DecisionStats[] stats = new DecisionStats[NUM_PLAYERS];
         for (int i = 0; i < NUM_PLAYERS; i++) {
-            if (threads[i] != null && threads[i].isAlive())
-                threads[i].join();
+            stats[i] = new DecisionStats();
         }
+        return stats;
+    }
+
+    /**
+     * Sets the executor asking players for actions in multi-threaded runs, i.e. to share it between games. The game
+     * doesn't close it. If none is set, the game creates its own for each run.
+     * @param agentExecutor executor to use.
+     */
+    public void setAgentExecutor(AgentExecutor agentExecutor) {
+        if (ownExecutor) {
+            this.agentExecutor.close();
+        }
+        this.agentExecutor = agentExecutor;
+        this.ownExecutor = false;
     }
 
     /**
@@ -377,6 +536,22 @@ public class Game {
         for (int i = 0; i < NUM_PLAYERS; i++) {
             gameStateObservations[i] = getGameState(i);
         }
+        Arrays.fill(observed, false);
+    }
+
+    /**
+     * Drops the observations of this tick that weren't given out (i.e. those of dead players), or only to passive
+     * players, so that advancing the game state doesn't snapshot its model for them.
+     */
+    private void dropUnobservedViews() {
+        if (gameStateObservations == null) {
+            return;
+        }
+        for (int i = 0; i < NUM_PLAYERS; i++) {
+            if (!observed[i] && gameStateObservations[i] != null) {
+                gs.dropView(gameStateObservations[i]);
+            }
+        }
     }
 
     /**
@@ -388,7 +563,7 @@ public class Game {
      */
     boolean isEnded() {
         //Delegate to our game config
-        return getGameConfig().isEnded(gs.getTick(), gameMode, gs.getAliveAgents());
+        return context.getGameConfig().isEnded(gs.getTick(), gameMode, gs.getAliveAgents());
     }
 
     /**
@@ -397,16 +572,10 @@ public class Game {
      */
     @SuppressWarnings("UnusedReturnValue")
     private Types.RESULT[] terminate() {
-        //Build the results array
-        GameObject[] agents = gs.getAgents();
-        Types.RESULT[] results = new Types.RESULT[NUM_PLAYERS];
-        for (int i = 0; i < NUM_PLAYERS; i++) {
-            Avatar av = (Avatar) agents[i];
-            results[i] = av.getWinner();
-        }
+        Types.RESULT[] results = getResults();
 
         // Call all agents' end-of-game method for post-processing. Agents receive their final reward.
-        double[] finalRewards = getGameConfig().getRewards(getTick(), results);
+        double[] finalRewards = context.getGameConfig().getRewards(getTick(), results);
         for (int i = 0; i < NUM_PLAYERS; i++) {
             Player p = players.get(i);
             p.result(finalRewards[i]);
@@ -422,6 +591,19 @@ public class Game {
         return results;
     }
 
+    /**
+     * @return the result of each player so far, INCOMPLETE for players still playing a game not ended.
+     */
+    Types.RESULT[] getResults() {
+        GameObject[] agents = gs.getAgents();
+        Types.RESULT[] results = new Types.RESULT[NUM_PLAYERS];
+        for (int i = 0; i < NUM_PLAYERS; i++) {
+            Avatar av = (Avatar) agents[i];
+            results[i] = disqualified[i] ? Types.RESULT.LOSS : av.getWinner();
+        }
+        return results;
+    }
+
     /**
      * Prints the board to console.
      */
@@ -438,7 +620,7 @@ public class Game {
      */
     public Types.TILETYPE[][] getBoard(int pIdx) {
         if (pIdx >= 0 && gameStateObservations[pIdx] != null) {
-            return gameStateObservations[pIdx].getBoard();
+            return getObservation(pIdx).getBoard();
         }
         return gs.getBoard();
     }
@@ -458,7 +640,7 @@ public class Game {
      */
     public ArrayList<GameObject> getAliveAvatars(int pIdx) {
         if (pIdx >= 0 && gameStateObservations[pIdx] != null) {
-            return gameStateObservations[pIdx].model.getAliveAgents();
+            return getObservation(pIdx).getAliveAgents();
         }
         return gs.model.getAliveAgents();
     }
@@ -486,7 +668,7 @@ public class Game {
      */
     public GameObject[] getAvatars(int pIdx) {
         if (pIdx >= 0 && gameStateObservations[pIdx] != null) {
-            return gameStateObservations[pIdx].model.getAgents();
+            return getObservation(pIdx).getAgents();
         }
         return gs.model.getAgents();
     }
@@ -498,6 +680,13 @@ public class Game {
         return gs;
     }
 
+    /**
+     * @return the settings and wall clock of this game.
+     */
+    public GameContext getContext() {
+        return context;
+    }
+
     /**
      * Set up logging for the game.
      * @param b - if the game should be logged or not.
@@ -509,6 +698,39 @@ public class Game {
         LOG_GAME = b;
     }
 
+    /**
+     * Logs the games run from now on in memory, without saving them (see getGameLog()), independently of other games.
+     * @param keepLog - true if games should be logged.
+     */
+    public void setKeepLog(boolean keepLog) {
+        this.keepLog = keepLog;
+    }
+
+    /**
+     * Makes this game follow LOG_GAME or not. Games that don't are logged only if kept in memory (see setKeepLog()).
+     * @param globalLog - false for this game to ignore LOG_GAME.
+     */
+    void setGlobalLog(boolean globalLog) {
+        this.globalLog = globalLog;
+    }
+
+    /**
+     * @return true if the actions played in this game are logged, globally or in memory.
+     */
+    private boolean isLogging() {
+        return LOG_GAME && globalLog || keepLog;
+    }
+
+    /**
+     * Adds the actions of a tick to the log, starting it if the game wasn't logged when it started.
+     */
+    private void logActions(Types.ACTIONS[] actions) {
+        if (gameLog == null) {
+            gameLog = new GameLog(seed, size, gameMode);
+        }
+        gameLog.addActions(actions);
+    }
+
     /**
      * @return true if this game is being logged, false otherwise.
      */
@@ -571,28 +793,4 @@ public class Game {
     public GameLog getGameLog() {
         return gameLog;
     }
-
-    /**
-     * Actor class for running multi-threaded games. Each player is an Actor.
-     */
-    public class Actor implements Runnable {
-
-        private volatile  Types.ACTIONS action;
-        public Player player;
-        public GameState gamestate;
-
-        Actor() {
-//            this.player = player;
-//            this.gamestate = gamestate;
-        }
-
-        @Override
-        public void run() {
-            action = player.act(this.gamestate);
-        }
-
-        public Types.ACTIONS getValue() {
-            return action;
-        }
-    }
 }
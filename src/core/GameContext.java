@@ -0,0 +1,171 @@
+package core;
+
+import core.gameConfig.IGameConfig;
+import utils.ElapsedCpuTimer;
+import utils.Types;
+
+/**
+ * Settings and mutable global state of a single game: game configuration (victory conditions), vision range of the
+ * agents, whether the game is displayed, and the clock of the wall of fire. Each game (and each copy of its state)
+ * carries its own context, so several games can run in the same process without interfering with each other.
+ * Defaults for new contexts are taken from Types.
+ */
+public class GameContext {
+
+    // Game configuration, which determines teams and victory conditions.
+    private IGameConfig gameConfig;
+
+    // Vision range of the agents: -1 for full observability, >1 for PO.
+    private int visionRange;
+
+    // Indicates if the game should be displayed for humans to see.
+    private boolean visuals;
+
+    // Engine that advances the true state of the game.
+    private Types.ENGINE engine = Types.DEFAULT_ENGINE;
+
+    // Time, in milliseconds, agents have to return an action, how it's measured, and the penalty for overrunning it.
+    // Agents playing in separate threads are never waited for longer than the deadline, in wall-clock time.
+    private long actDeadline = Types.DEFAULT_ACT_DEADLINE;
+    private ElapsedCpuTimer.TimerType actTimer = Types.DEFAULT_ACT_TIMER;
+    private Types.OVERRUN_PENALTY overrunPenalty = Types.DEFAULT_OVERRUN_PENALTY;
+
+    // Whether games left to passive agents, with nothing else going on, are fast-forwarded to their end.
+    private boolean fastForward = Types.DEFAULT_FAST_FORWARD;
+
+    // Ticks since the last layer of the wall of fire was added, and number of layers added so far.
+    private int wallClock;
+    private int wallLayer;
+
+    /**
+     * Creates a context with the default settings in Types.
+     */
+    public GameContext() {
+        this(Types.getGameConfig(), Types.DEFAULT_VISION_RANGE, Types.VISUALS);
+    }
+
+    /**
+     * Creates a context with the given settings.
+     * @param gameConfig game configuration, which determines victory conditions.
+     * @param visionRange vision range of the agents, -1 for full observability.
+     * @param visuals true if the game should be displayed.
+     */
+    public GameContext(IGameConfig gameConfig, int visionRange, boolean visuals) {
+        this.gameConfig = gameConfig;
+        this.visionRange = visionRange;
+        this.visuals = visuals;
+    }
+
+    /**
+     * Creates a copy of this context. Settings are shared, the wall clock is copied.
+     * @return a copy of this context.
+     */
+    public GameContext copy() {
+        GameContext copy = new GameContext(gameConfig, visionRange, visuals);
+        copy.engine = engine;
+        copy.actDeadline = actDeadline;
+        copy.actTimer = actTimer;
+        copy.overrunPenalty = overrunPenalty;
+        copy.fastForward = fastForward;
+        copy.wallClock = wallClock;
+        copy.wallLayer = wallLayer;
+        return copy;
+    }
+
+    /**
+     * Copies this context into another one, which ends up equal to copy().
+     * @param target context to overwrite.
+     */
+    public void copyInto(GameContext target) {
+        target.gameConfig = gameConfig;
+        target.visionRange = visionRange;
+        target.visuals = visuals;
+        target.engine = engine;
+        target.actDeadline = actDeadline;
+        target.actTimer = actTimer;
+        target.overrunPenalty = overrunPenalty;
+        target.fastForward = fastForward;
+        target.wallClock = wallClock;
+        target.wallLayer = wallLayer;
+    }
+
+    /**
+     * Advances the clock of the wall of fire by one tick.
+     * @return the layer of the wall to add this tick, or 0 if no layer is due.
+     */
+    int tickWallClock() {
+        wallClock++;
+        if (wallClock == Types.WALL_SPEED) {
+            wallLayer++;
+            wallClock = 0;
+            return wallLayer;
+        }
+        return 0;
+    }
+
+    /**
+     * Sets the state of the wall of fire, i.e. when restoring a checkpoint.
+     * @param wallClock ticks since the last layer was added.
+     * @param wallLayer number of layers added so far.
+     */
+    void setWall(int wallClock, int wallLayer) {
+        this.wallClock = wallClock;
+        this.wallLayer = wallLayer;
+    }
+
+    /**
+     * Resets the mutable state of this context for a new game.
+     */
+    void reset() {
+        setWall(0, 0);
+    }
+
+    public IGameConfig getGameConfig() {
+        return gameConfig;
+    }
+    public int getVisionRange() {
+        return visionRange;
+    }
+    public boolean isVisuals() {
+        return visuals;
+    }
+    public void setVisuals(boolean visuals) {
+        this.visuals = visuals;
+    }
+    public Types.ENGINE getEngine() {
+        return engine;
+    }
+    public void setEngine(Types.ENGINE engine) {
+        this.engine = engine;
+    }
+    public long getActDeadline() {
+        return actDeadline;
+    }
+    public void setActDeadline(long actDeadline) {
+        this.actDeadline = actDeadline;
+    }
+    public ElapsedCpuTimer.TimerType getActTimer() {
+        return actTimer;
+    }
+    public void setActTimer(ElapsedCpuTimer.TimerType actTimer) {
+        this.actTimer = actTimer;
+    }
+    public Types.OVERRUN_PENALTY getOverrunPenalty() {
+        return overrunPenalty;
+    }
+    public void setOverrunPenalty(Types.OVERRUN_PENALTY overrunPenalty) {
+        this.overrunPenalty = overrunPenalty;
+    }
+    public boolean isFastForward() {
+        return fastForward;
+    }
+    public void setFastForward(boolean fastForward) {
+        this.fastForward = fastForward;
+    }
+    public int getWallClock() {
+        return wallClock;
+    }
+    public int getWallLayer() {
+        return wallLayer;
+    }
+}
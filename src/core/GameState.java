@@ -11,7 +11,6 @@ import java.util.Arrays;
 import java.util.List;
 
 import static utils.Types.NUM_ACTIONS;
-import static utils.Types.WALL_CLOCK;
 
 @SuppressWarnings("unused")
 public class GameState {
@@ -40,6 +39,25 @@ public class GameState {
     // Game mode being played
     Types.GAME_MODE gameMode;
 
+    // If this state is a view (see view()), the model it reads from until it needs a model of its own. Null otherwise.
+    private ForwardModel viewOf;
+
+    // Index of the player the view is reduced for.
+    private int viewReduceIdx;
+
+    // Views of this state that may still read from its model.
+    private ArrayList<GameState> views;
+
+    // Engine that advances this state on next(), if it's not the forward model itself (see IForwardModel and
+    // GameContext.getEngine()). Null otherwise.
+    private IForwardModel engine;
+
+    // True if the engine is ahead of the forward model, which has to be brought up to date before it's used.
+    private boolean modelStale;
+
+    // True if the forward model was changed by other means than the engine, which has to start again from it.
+    private boolean engineStale;
+
     /**
      * Constructor, first thing to call. Creates a GameState object with some information.
      * @param seed - random seed to be used in generating the board.
@@ -87,10 +105,36 @@ public class GameState {
      * Board is only generated when this initialization method is called.
      */
     void init() {
+        beforeChange();
         if (model == null) {
             model = new ForwardModel(size, gameMode);
         }
         this.model.init(seed, size, gameMode, null, null);
+        startEngine();
+    }
+
+    /**
+     * Starts advancing this state with the engine selected in its context, from the current state. If the forward
+     * model is the one selected, it advances the state itself.
+     */
+    void startEngine() {
+        materialize();
+        Types.ENGINE type = model.getContext().getEngine();
+        if (type == Types.ENGINE.REFERENCE) {
+            engine = null;
+        } else {
+            engine = IForwardModel.create(type, model, tick);
+            engine.setContext(model.getContext());
+        }
+        modelStale = false;
+        engineStale = false;
+    }
+
+    /**
+     * @return the engine advancing this state, which is its forward model unless another one was selected.
+     */
+    IForwardModel getEngine() {
+        return engine != null ? engine : getModel();
     }
 
     /**
@@ -98,6 +142,7 @@ public class GameState {
      * @return the agents of the game
      */
     GameObject[] getAgents() {
+        materialize();
         return model.getAgents();
     }
 
@@ -106,6 +151,7 @@ public class GameState {
      * @return the alive agents of the game
      */
     ArrayList<GameObject> getAliveAgents() {
+        materialize();
         return model.getAliveAgents();
     }
 
@@ -133,14 +179,29 @@ public class GameState {
      * @return true if the game could be advanced. False if it couldn't because ticks reached the game ticks limit.
      */
     public boolean next(Types.ACTIONS[] actions) {
+        if (engine == null) {
+            beforeChange();
+        } else {
+            detachViews();  // Views always read an up to date model, see view()
+        }
 
         if (tick < Types.MAX_GAME_TICKS)
         {
-            model.next(actions);
+            if (engine == null) {
+                model.next(actions);
+            } else {
+                if (engineStale) {
+                    startEngine();
+                }
+                engine.next(actions);
+                modelStale = true;
+            }
             tick++;
 
-            if (tick == Types.MAX_GAME_TICKS)
-                Types.getGameConfig().processTimeout(gameMode, getAgents(), getAliveAgents());
+            if (tick == Types.MAX_GAME_TICKS) {
+                beforeChange();
+                model.getContext().getGameConfig().processTimeout(gameMode, getAgents(), getAliveAgents());
+            }
             return true;
 
         }
@@ -148,6 +209,72 @@ public class GameState {
         return false;
     }
 
+    /**
+     * Checks if this state is quiet: there are no bombs or flames, and no layer of the wall of fire is due before the
+     * end of the game. If all agents stop in a quiet state, nothing changes in the next ticks but the clocks.
+     * @return true if the state is quiet.
+     */
+    boolean isQuiet() {
+        materialize();
+        GameContext context = model.getContext();
+        return model.getBombs().isEmpty() && model.getFlames().isEmpty()
+                && context.getWallClock() + (Types.MAX_GAME_TICKS - tick) < Types.WALL_SPEED;
+    }
+
+    /**
+     * Advances a quiet state (see isQuiet()) by several ticks in one step, as next() would with all agents stopping.
+     * @param ticks number of ticks to advance, up to the end of the game.
+     */
+    void skipQuietTicks(int ticks) {
+        beforeChange();
+        ticks = Math.min(ticks, Types.MAX_GAME_TICKS - tick);
+        GameContext context = model.getContext();
+        context.setWall(context.getWallClock() + ticks, context.getWallLayer());
+        tick += ticks;
+        if (tick == Types.MAX_GAME_TICKS) {
+            context.getGameConfig().processTimeout(gameMode, getAgents(), getAliveAgents());
+        }
+    }
+
+    /**
+     * Saves a checkpoint of this game state. All calls to next() from now on can be undone with pop(), which is
+     * cheaper than copying the state when a search needs to come back to the same state many times.
+     * Checkpoints can be nested, each pop() undoes the changes made since the matching push().
+     */
+    public void push() {
+        beforeChange();
+        engine = null;  // Checkpoints are kept by the forward model, so it advances this state from now on
+        model.push(tick);
+    }
+
+    /**
+     * Brings this game state back to the last checkpoint saved with push().
+     */
+    public void pop() {
+        beforeChange();
+        tick = model.pop();
+    }
+
+    /**
+     * @return the context (configuration, vision range, wall clock) of the game this state belongs to.
+     */
+    public GameContext getContext() {
+        materialize();
+        return model.getContext();
+    }
+
+    /**
+     * Returns a 64-bit Zobrist hash of the board, hidden power-ups, bombs, flames and avatars of this state, which
+     * is much cheaper than equals() to identify states (i.e. for transposition tables or evaluation caches).
+     * The game tick is not included. States with the same contents have the same hash, and different states
+     * have different hashes with a very high probability.
+     * @return the hash of this game state.
+     */
+    public long hash() {
+        materialize();
+        return model.hash();
+    }
+
     /**
      * Creates a deep copy of this game state, given player index. Sets up the game state so that it contains
      * only information available to the given player. If -1, state contains all information.
@@ -164,42 +291,212 @@ public class GameState {
         }
 
         GameState copy = new GameState(seed, size, gameMode, false);
-        copy.model = model.copy(playerIdx);  // Use given playerIdx to reduce state (-1 in copies of copies)
-        copy.tick = tick;
+        copyInto(copy, playerIdx);
+        return copy;
+    }
+
+    public GameState copy() {
+        return copy(-1);  // No reduction happening if no index specified
+    }
+
+    /**
+     * Creates a view of this game state for a player: a state that behaves as copy(playerIdx), but only makes its
+     * reduced copy of the model the first time it's needed (reading the board or any other part of the model makes
+     * the whole reduced copy, as copy(playerIdx) does). Until then it reads from the model of this state, and only
+     * holds a copy of the player's avatar. If this state changes first (i.e. on next()), views still waiting are
+     * given a snapshot of the model to copy from, a full copy shared by all of them (see detachViews()): agents that
+     * only check their own avatar (position, ammo, etc.) save their reduced copy, but not that snapshot, unless their
+     * view is dropped before (see dropView()).
+     * @param playerIdx index of the player to reduce the state for.
+     * @return a view of this state.
+     */
+    GameState view(int playerIdx) {
+        materialize();
+        GameState view = new GameState(seed, size, gameMode, false);
+        view.nActions = nActions;
+        view.tick = tick;
+        view.playerIdx = playerIdx != -1 ? playerIdx : this.playerIdx;
+        if (view.playerIdx >= 0) {
+            view.avatar = (Avatar) model.getAgents()[view.playerIdx].copy();
+        }
+        view.viewOf = model;
+        view.viewReduceIdx = playerIdx;
+        if (views == null) {
+            views = new ArrayList<>();
+        }
+        views.add(view);
+        return view;
+    }
+
+    /**
+     * Makes the model of this state if it's a view, or brings it up to date if another engine is ahead of it, so it
+     * can be read or changed.
+     */
+    private void materialize() {
+        if (viewOf != null) {
+            materializeView();
+        } else if (modelStale) {
+            GameContext context = model.getContext();
+            model = engine.toForwardModel();  // Not copied, as copies don't keep all hidden information
+            model.setContext(context);
+            modelStale = false;
+            if (playerIdx >= 0) {
+                avatar = (Avatar) model.getAgents()[playerIdx];
+            }
+        }
+    }
+
+    /**
+     * Makes the model of this view. Players acting in separate threads may do it while the state viewed detaches its
+     * views (see detachViews()), so both lock the view: the model viewed is never copied while it changes.
+     */
+    private synchronized void materializeView() {
+        if (viewOf != null) {
+            model = viewOf.copy(viewReduceIdx);
+            viewOf = null;
+            if (playerIdx >= 0) {
+                avatar = (Avatar) model.getAgents()[playerIdx];
+            }
+        }
+    }
+
+    /**
+     * Gives the views which haven't made their model yet a snapshot of the model of this state, which is about to
+     * change. All of them share the same snapshot, which still copies the whole model on every change as long as one
+     * view given out wasn't read (i.e. the view of a player only checking its own avatar). Views that won't be read
+     * anymore should be dropped first (see dropView()).
+     */
+    private void detachViews() {
+        if (views == null || views.isEmpty()) {
+            return;
+        }
+        ForwardModel snapshot = null;
+        for (GameState view : views) {
+            synchronized (view) {
+                if (view.viewOf == model) {
+                    if (snapshot == null) {
+                        snapshot = model.copy(-1);
+                    }
+                    view.viewOf = snapshot;
+                }
+            }
+        }
+        views.clear();
+    }
+
+    /**
+     * Forgets a view of this state which won't be read anymore, so that it isn't given a snapshot of the model when
+     * this state changes. The view must not be read afterwards, as it would read the model changed.
+     * @param view view of this state, given by view().
+     */
+    void dropView(GameState view) {
+        if (views != null) {
+            views.remove(view);
+        }
+    }
+
+    /**
+     * Called before the model of this state is changed by other means than the engine.
+     */
+    private void beforeChange() {
+        materialize();
+        detachViews();
+        engineStale = engine != null;
+    }
+
+    /**
+     * @return the forward model of this state, made first if this state is a view.
+     */
+    ForwardModel getModel() {
+        materialize();
+        return model;
+    }
+
+    /**
+     * Copies this game state into another one, as copy(playerIdx) would do, but reusing the target's forward model
+     * (arrays, lists and game objects) instead of allocating a new one. The previous contents of target are lost.
+     * @param target game state to overwrite. Must not be this state.
+     * @param playerIdx index of the player to reduce the state for, -1 for no reduction.
+     */
+    protected void copyInto(GameState target, int playerIdx) {
+        if (target == this) {
+            throw new IllegalArgumentException("Can't copy a game state into itself.");
+        }
+        materialize();
+        target.viewOf = null;
+        target.detachViews();
+        target.engine = null;  // Copies are advanced by their forward model
+        target.modelStale = false;
+        target.engineStale = false;
+
+        // Determine this copy's player idx. If either received playerIdx or this.playerIdx is >= 0, keep that one.
+        // Otherwise, keep original playerIdx
+        int copyIdx = this.playerIdx;
+        if (playerIdx != -1) {
+            copyIdx = playerIdx;
+        }
+
+        target.seed = seed;
+        target.size = size;
+        target.gameMode = gameMode;
+        target.nActions = nActions;
+        if (target.model == null || target.model == model) {
+            target.model = model.copy(playerIdx);  // Use given playerIdx to reduce state (-1 in copies of copies)
+        } else {
+            model.copyInto(target.model, playerIdx);
+        }
+        target.tick = tick;
 
         // Use this copy's player idx as determined earlier to update copy playerIdx and its assigned avatar.
-        copy.playerIdx = copyIdx;
+        target.playerIdx = copyIdx;
         if (copyIdx >= 0) {
-            copy.avatar = (Avatar) copy.model.getAgents()[copyIdx];
+            target.avatar = (Avatar) target.model.getAgents()[copyIdx];
         } else {
-            copy.avatar = null;
+            target.avatar = null;
         }
-        return copy;
     }
 
-    public GameState copy() {
-        return copy(-1);  // No reduction happening if no index specified
+    /**
+     * Copies all information of this game state into another one, reusing its data structures.
+     * @param target game state to overwrite.
+     */
+    public void copyInto(GameState target) {
+        copyInto(target, -1);  // No reduction happening if no index specified
     }
 
     /** GETTERS AND SETTERES **/
 
 
     public Types.TILETYPE[][] getBoard() {
+        materialize();
         return model.getBoard();
     }
 
     public int[][] getBombBlastStrength() {
+        materialize();
         return model.getBombBlastStrength();
     }
 
     public int[][] getBombLife() {
+        materialize();
         return model.getBombLife();
     }
 
     public int[][] getBombDiffusionCounter() {
+        materialize();
         return model.getBombDiffusionCounter();
     }
 
+    /**
+     * The bomb grids (blast strength, life, diffusion counter) are updated in place by next(). Observers keeping a
+     * copy of them can compare this counter to know if the copy is still up to date.
+     * @return a counter incremented every time the bomb grids are modified.
+     */
+    public int getBombGridVersion() {
+        materialize();
+        return model.getBombGridVersion();
+    }
+
     public int getTeam(){ return avatar.getTeam(); }
 
     public Types.TILETYPE[] getTeammates(){ return avatar.getTeammates(); }
@@ -318,42 +615,52 @@ public class GameState {
     /* ----- Methods to insert or remove observations into the game model ----- */
 
     public void addBomb(int x, int y, int blastStrength, int bombLife, int playerIdx, boolean addToBoard) {
+        beforeChange();
         model.addBomb(x, y, blastStrength, bombLife, playerIdx, addToBoard);
     }
 
     public void addFlame(int x, int y, int life) {
+        beforeChange();
         model.addFlame(x, y, life);
     }
 
     public void addPowerUp(int x, int y, Types.TILETYPE type, boolean visible) {
+        beforeChange();
         model.addPowerUp(x, y, type, visible);
     }
 
     public void addObject(int x, int y, Types.TILETYPE type) {
+        beforeChange();
         model.addObject(x, y, type);
     }
 
     public void removeObject(int x, int y, Types.TILETYPE type, boolean onlyBoard) {
+        beforeChange();
         model.removeObject(x, y, type, onlyBoard);
     }
 
     public void removePowerUp(int x, int y, Types.TILETYPE type) {
+        beforeChange();
         model.removePowerUp(x, y, type);
     }
 
     public void addAgent(int x, int y, int idx) {
+        beforeChange();
         model.addAgent(x, y, idx);
     }
 
     public void setAgent(int playerIdx, int x, int y, boolean canKick, int ammo, int blastStrength) {
+        beforeChange();
         model.setAgent(playerIdx, x, y, canKick, ammo, blastStrength);
     }
 
     public void setBomb(int x, int y, int playerIdx, Vector2d velocity) {
+        beforeChange();
         model.setBomb(x, y, playerIdx, velocity);
     }
 
     public void setFlame(int x, int y, int life) {
+        beforeChange();
         model.setFlame(x, y, life);
     }
 
@@ -361,6 +668,7 @@ public class GameState {
 
         @Override
     public String toString() {
+        materialize();
         return model.toString();
     }
 
@@ -377,6 +685,8 @@ public class GameState {
             return false;
         if (size != gs.size)
             return false;
+        materialize();
+        gs.materialize();
         if (!model.equals(gs.model))
             return false;
         if (!gameMode.equals(gs.gameMode))
@@ -464,13 +774,14 @@ public class GameState {
      * @return a Json string representing the current game state
      */
     public String toJson(){
+        materialize();
         SerializableGameState serialisableGameState = new SerializableGameState(
                 getAliveAgentIDs(),
                 model.getBoard(),
                 model.getBombBlastStrength(),
                 model.getBombLife(),
                 gameMode,
-                Types.getGameConfig().getEnvironmentName(),
+                model.getContext().getGameConfig().getEnvironmentName(),
                 avatar.getPosition(),
                 avatar.getBlastStrength(),
                 avatar.canKick(),
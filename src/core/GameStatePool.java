@@ -0,0 +1,43 @@
+package core;
+
+import java.util.ArrayDeque;
+
+/**
+ * Per-thread pool of game states, for searches which copy a root state on every iteration (MCTS, RHEA).
+ * Copies are made with GameState.copyInto() over states released in previous iterations, so after a few
+ * iterations no new forward models, boards or game objects are allocated. Each thread has its own pool,
+ * so no synchronization is needed, but states must be released by the same thread that obtained them.
+ */
+public class GameStatePool {
+
+    // Maximum number of free states kept per thread.
+    private static final int MAX_POOLED = 16;
+
+    private static final ThreadLocal<ArrayDeque<GameState>> pool = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * Gets a copy of the given game state, reusing a pooled state if there is one.
+     * @param gs game state to copy.
+     * @return a state equal to gs.copy(). Should be given back with release() once it's not needed anymore.
+     */
+    public static GameState copy(GameState gs) {
+        GameState copy = pool.get().pollLast();
+        if (copy == null) {
+            return gs.copy();
+        }
+        gs.copyInto(copy);
+        return copy;
+    }
+
+    /**
+     * Returns a state to the pool of this thread. The state must not be used after this call, as it will be
+     * overwritten by a later copy.
+     * @param gs game state to release.
+     */
+    public static void release(GameState gs) {
+        ArrayDeque<GameState> free = pool.get();
+        if (gs != null && free.size() < MAX_POOLED) {
+            free.addLast(gs);
+        }
+    }
+}
@@ -1,6 +1,14 @@
 package core;
 
+import org.junit.jupiter.api.Test;
 import utils.Types;
+import utils.Vector2d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class GameStateTest {
 
@@ -10,4 +18,234 @@ class GameStateTest {
         gs.init();
         System.out.println(gs.model);
     }
-}
\ No newline at end of file
+
+    /**
+     * Copying into a reused game state must give the same state as a fresh copy, for full and reduced copies.
+     */
+    @Test
+    void copyIntoMatchesCopy() {
+        GameState gs = new GameState(1234, 11, Types.GAME_MODE.FFA, true);
+        gs.init();
+        GameState[] targets = new GameState[Types.NUM_PLAYERS + 1];
+        Random rnd = new Random(1234);
+        Types.ACTIONS[] all = Types.ACTIONS.values();
+
+        for (int t = 0; t < 100 && !gs.isTerminal(); t++) {
+            for (int i = -1; i < Types.NUM_PLAYERS; i++) {
+                if (targets[i + 1] == null) {
+                    targets[i + 1] = gs.copy(i);
+                } else {
+                    // Dirty the target before reusing it, as a search would do
+                    targets[i + 1].next(randomActions(rnd, all));
+                    gs.copyInto(targets[i + 1], i);
+                }
+                assertEquals(gs.copy(i), targets[i + 1]);
+            }
+            gs.next(randomActions(rnd, all));
+        }
+    }
+
+    @Test
+    void poolReusesStates() {
+        GameState gs = new GameState(99, 11, Types.GAME_MODE.TEAM, true);
+        gs.init();
+        GameState first = GameStatePool.copy(gs);
+        GameStatePool.release(first);
+        GameState second = GameStatePool.copy(gs);
+        assertSame(first, second);
+        assertEquals(gs.copy(), second);
+        assertThrows(IllegalArgumentException.class, () -> gs.copyInto(gs));
+    }
+
+    /**
+     * Popping a checkpoint must leave the state as it was when pushed, also with nested checkpoints.
+     * States are compared against states replayed from the start, as copies reset some hidden information.
+     */
+    @Test
+    void pushPopRestoresState() {
+        long seed = 4321;
+        GameState gs = new GameState(seed, 11, Types.GAME_MODE.FFA, true);
+        gs.init();
+        Random rnd = new Random(seed);
+        Types.ACTIONS[] all = Types.ACTIONS.values();
+        ArrayList<Types.ACTIONS[]> trunk = new ArrayList<>();
+
+        for (int t = 0; t < 40 && !gs.isTerminal(); t++) {
+            gs.push();
+            ArrayList<Types.ACTIONS[]> branch = new ArrayList<>(trunk);
+            for (int i = 0; i < 5; i++) {
+                Types.ACTIONS[] actions = randomActions(rnd, all);
+                branch.add(actions);
+                gs.next(actions);
+            }
+            gs.push();
+            for (int i = 0; i < 10; i++) {
+                gs.next(randomActions(rnd, all));
+            }
+            gs.pop();
+            assertEquals(replay(seed, branch), gs);
+            gs.pop();
+            assertEquals(replay(seed, trunk), gs);
+
+            Types.ACTIONS[] actions = randomActions(rnd, all);
+            trunk.add(actions);
+            gs.next(actions);
+        }
+        assertThrows(IllegalStateException.class, gs::pop);
+    }
+
+    /**
+     * Each state carries its own wall clock, which isn't affected by other states (copies or other games).
+     */
+    @Test
+    void wallClockIsPerState() {
+        GameState gs = new GameState(11, 11, Types.GAME_MODE.FFA, true);
+        gs.init();
+        GameState other = new GameState(12, 11, Types.GAME_MODE.FFA, true);
+        other.init();
+        Random rnd = new Random(11);
+        Types.ACTIONS[] all = Types.ACTIONS.values();
+
+        for (int t = 0; t < 10; t++) {
+            gs.next(randomActions(rnd, all));
+        }
+        GameState copy = gs.copy();
+        for (int t = 0; t < 5; t++) {
+            gs.next(randomActions(rnd, all));
+        }
+
+        assertEquals(15, gs.getContext().getWallClock());
+        assertEquals(10, copy.getContext().getWallClock());
+        assertEquals(0, other.getContext().getWallClock());
+    }
+
+    /**
+     * The hash updated incrementally on every tick must match the hash computed from scratch for the same state,
+     * and survive push() and pop().
+     */
+    @Test
+    void hashMatchesRecomputedHash() {
+        long seed = 2468;
+        GameState gs = new GameState(seed, 11, Types.GAME_MODE.FFA, true);
+        gs.init();
+        Random rnd = new Random(seed);
+        Types.ACTIONS[] all = Types.ACTIONS.values();
+        ArrayList<Types.ACTIONS[]> played = new ArrayList<>();
+
+        for (int t = 0; t < 120 && !gs.isTerminal(); t++) {
+            long before = gs.hash();
+            gs.push();
+            gs.next(randomActions(rnd, all));
+            gs.pop();
+            assertEquals(before, gs.hash());
+
+            Types.ACTIONS[] actions = randomActions(rnd, all);
+            played.add(actions);
+            gs.next(actions);
+            if (t % 20 == 19) {
+                assertEquals(replay(seed, played).hash(), gs.hash());
+            }
+        }
+    }
+
+    /**
+     * Bomb grids are updated in place, and their version changes when they do.
+     */
+    @Test
+    void bombGridsUpdatedInPlace() {
+        GameState gs = new GameState(8, 11, Types.GAME_MODE.FFA, true);
+        gs.init();
+        int[][] bombLife = gs.getBombLife();
+        int version = gs.getBombGridVersion();
+        Types.ACTIONS[] actions = new Types.ACTIONS[Types.NUM_PLAYERS];
+        Arrays.fill(actions, Types.ACTIONS.ACTION_BOMB);
+        gs.next(actions);
+
+        assertSame(bombLife, gs.getBombLife());
+        assertNotEquals(version, gs.getBombGridVersion());
+        int bombs = 0;
+        for (int[] row : bombLife) {
+            for (int life : row) {
+                if (life > 0) bombs++;
+            }
+        }
+        assertEquals(Types.NUM_PLAYERS, bombs);
+    }
+
+    /**
+     * Objects looked up by position must be found after they moved or were added, as the cell index is kept in sync.
+     */
+    @Test
+    void objectsFoundByPosition() {
+        GameState gs = new GameState(8, 11, Types.GAME_MODE.FFA, true);
+        gs.init();
+        Types.ACTIONS[] actions = new Types.ACTIONS[Types.NUM_PLAYERS];
+        Arrays.fill(actions, Types.ACTIONS.ACTION_BOMB);
+        gs.next(actions);
+
+        // Remove the bomb of agent 0, then add one in a free cell and remove it too
+        Vector2d pos = gs.getAgents()[0].getPosition();
+        gs.removeObject(pos.x, pos.y, Types.TILETYPE.BOMB, false);
+        gs.addBomb(5, 5, 2, 10, -1, true);
+        gs.removeObject(5, 5, Types.TILETYPE.BOMB, false);
+        gs.addFlame(5, 6, 1);
+        gs.setFlame(5, 6, 3);
+
+        Arrays.fill(actions, Types.ACTIONS.ACTION_STOP);
+        gs.next(actions);
+        int bombs = 0;
+        for (int[] row : gs.getBombLife()) {
+            for (int life : row) {
+                if (life > 0) bombs++;
+            }
+        }
+        assertEquals(Types.NUM_PLAYERS - 1, bombs);
+        assertEquals(0, gs.getBombLife()[pos.y][pos.x]);
+        assertEquals(Types.TILETYPE.FLAMES, gs.getBoard()[6][5]);
+    }
+
+    /**
+     * A view must equal the reduced copy made at the same time, whether it's read before or after the state changes.
+     */
+    @Test
+    void viewsMatchReducedCopies() {
+        GameState gs = new GameState(321, 11, Types.GAME_MODE.FFA, true);
+        gs.model.setContext(new GameContext(gs.getContext().getGameConfig(), 2, false));
+        gs.init();
+        Random rnd = new Random(321);
+        Types.ACTIONS[] all = Types.ACTIONS.values();
+
+        for (int t = 0; t < 30 && !gs.isTerminal(); t++) {
+            GameState[] copies = new GameState[Types.NUM_PLAYERS];
+            GameState[] views = new GameState[Types.NUM_PLAYERS];
+            for (int i = 0; i < Types.NUM_PLAYERS; i++) {
+                copies[i] = gs.copy(i);
+                views[i] = gs.view(i);
+                assertEquals(copies[i].getPosition(), views[i].getPosition());
+            }
+            assertEquals(copies[0], views[0]);  // Read before the state changes
+
+            gs.next(randomActions(rnd, all));
+            for (int i = 1; i < Types.NUM_PLAYERS; i++) {
+                assertEquals(copies[i], views[i]);  // Read from the snapshot
+            }
+        }
+    }
+
+    private GameState replay(long seed, ArrayList<Types.ACTIONS[]> actions) {
+        GameState gs = new GameState(seed, 11, Types.GAME_MODE.FFA, true);
+        gs.init();
+        for (Types.ACTIONS[] a : actions) {
+            gs.next(a);
+        }
+        return gs;
+    }
+
+    private Types.ACTIONS[] randomActions(Random rnd, Types.ACTIONS[] all) {
+        Types.ACTIONS[] actions = new Types.ACTIONS[Types.NUM_PLAYERS];
+        for (int i = 0; i < actions.length; i++) {
+            actions[i] = all[rnd.nextInt(all.length)];
+        }
+        return actions;
+    }
+}
@@ -12,6 +12,7 @@ import players.rhea.utils.RHEAParams;
 import utils.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
@@ -26,6 +27,127 @@ class GameTest {
         System.out.println(replay.getGameState());
     }
 
+    /**
+     * Games advanced by the bitboard engine, or by both engines in lockstep, must play exactly as with the reference
+     * engine, and the lockstep engine must not find any divergence.
+     */
+    @Test
+    void enginesPlaySameGame() {
+        Types.RESULT[] expectedResults = null;
+        GameState expectedState = null;
+        for (Types.ENGINE engine : Types.ENGINE.values()) {
+            GameContext context = new GameContext(Types.getGameConfig(), 2, false);
+            context.setEngine(engine);
+            Game game = new Game(2468, Types.BOARD_SIZE, Types.GAME_MODE.FFA, "", context);
+            ArrayList<Player> players = new ArrayList<>();
+            for (int i = 0; i < Types.NUM_PLAYERS; i++) {
+                players.add(new SimplePlayer(2468, Types.TILETYPE.AGENT0.getKey() + i));
+            }
+            game.setPlayers(players);
+            Types.RESULT[] results = game.run(false);
+
+            if (engine == Types.ENGINE.REFERENCE) {
+                expectedResults = results;
+                expectedState = game.getGameState();
+            } else {
+                assertArrayEquals(expectedResults, results);
+                assertEquals(expectedState, game.getGameState());
+            }
+            if (engine == Types.ENGINE.LOCKSTEP) {
+                assertNull(((LockstepForwardModel) game.getGameState().getEngine()).getDivergence());
+            }
+        }
+    }
+
+    /**
+     * The lockstep engine must find no divergence when identical bombs are stacked on the same cell.
+     */
+    @Test
+    void lockstepEngineWithStackedBombs() {
+        GameState gs = new GameState(1019, Types.BOARD_SIZE, Types.GAME_MODE.FFA, false);
+        gs.init();
+        BitboardForwardModelTest.addStackedBombs(gs.model);
+        LockstepForwardModel engine = new LockstepForwardModel(gs.model, gs.getTick());
+
+        Types.ACTIONS[] actions = new Types.ACTIONS[Types.NUM_PLAYERS];
+        Arrays.fill(actions, Types.ACTIONS.ACTION_STOP);
+        for (int t = 0; t < Types.BOMB_LIFE; t++) {
+            engine.next(actions);
+        }
+        assertNull(engine.getDivergence());
+    }
+
+    /**
+     * Games fast-forwarded once only passive players are left (here, once the random player is dead) must end as
+     * games played tick by tick, with the same log, while asking players for fewer actions.
+     */
+    @Test
+    void fastForwardPlaysSameGame() {
+        for (long seed : new long[]{2468, 93988}) {
+            Types.RESULT[][] results = new Types.RESULT[2][];
+            GameState[] states = new GameState[2];
+            GameLog[] logs = new GameLog[2];
+            int[] decisions = new int[2];
+            for (int f = 0; f < 2; f++) {
+                GameContext context = new GameContext(Types.getGameConfig(), -1, false);
+                context.setFastForward(f == 1);
+                Game game = new Game(seed, Types.BOARD_SIZE, Types.GAME_MODE.FFA, "", context);
+                ArrayList<Player> players = new ArrayList<>();
+                for (int i = 0; i < Types.NUM_PLAYERS; i++) {
+                    int id = Types.TILETYPE.AGENT0.getKey() + i;
+                    players.add(i == 0 ? new RandomPlayer(seed, id) : new DoNothingPlayer(id));
+                }
+                game.setPlayers(players);
+                game.setKeepLog(true);
+                results[f] = game.run(false);
+                states[f] = game.getGameState();
+                logs[f] = game.getGameLog();
+                for (int i = 1; i < Types.NUM_PLAYERS; i++) {
+                    decisions[f] += game.getDecisionStats()[i].getDecisions();
+                }
+            }
+            assertArrayEquals(results[0], results[1]);
+            assertEquals(states[0], states[1]);
+            assertEquals(states[0].getTick(), states[1].getTick());
+            assertEquals(states[0].getContext().getWallClock(), states[1].getContext().getWallClock());
+            assertEquals(logs[0], logs[1]);
+            assertTrue(decisions[1] < decisions[0]);
+        }
+    }
+
+    /**
+     * A player overrunning the decision deadline is disqualified: it isn't asked again, and loses the game.
+     * Overruns are counted in the decision stats of the game.
+     */
+    @Test
+    void overrunningPlayerIsDisqualified() {
+        GameContext context = new GameContext(Types.getGameConfig(), -1, false);
+        context.setActDeadline(5);
+        context.setOverrunPenalty(Types.OVERRUN_PENALTY.DISQUALIFY);
+        Game game = new Game(2468, Types.BOARD_SIZE, Types.GAME_MODE.FFA, "", context);
+        ArrayList<Player> players = new ArrayList<>();
+        players.add(new SimplePlayer(2468, Types.TILETYPE.AGENT0.getKey()) {
+            @Override
+            public Types.ACTIONS act(GameState gs) {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException ignored) {
+                }
+                return super.act(gs);
+            }
+        });
+        for (int i = 1; i < Types.NUM_PLAYERS; i++) {
+            players.add(new SimplePlayer(2468, Types.TILETYPE.AGENT0.getKey() + i));
+        }
+        game.setPlayers(players);
+        Types.RESULT[] results = game.run(false);
+
+        assertEquals(Types.RESULT.LOSS, results[0]);
+        assertEquals(1, game.getDecisionStats()[0].getDecisions());
+        assertEquals(1, game.getDecisionStats()[0].getOverruns());
+        assertTrue(game.getDecisionStats()[0].percentileMillis(50) >= 20);
+    }
+
     /**
      * This method tests whether (in PO games) the players only have access to the restricted info
      * about the game they are playing.
@@ -0,0 +1,76 @@
+package core;
+
+import objects.GameObject;
+import utils.Types;
+
+import java.util.ArrayList;
+
+/**
+ * Engine that advances the state of a game. ForwardModel is the reference engine, which defines the rules of the
+ * game; other engines must produce the same observations for the same actions.
+ * A GameState always keeps its state in a ForwardModel, and may delegate next() to another engine (see
+ * GameContext.setEngine()). In that case, its ForwardModel is only brought up to date from the engine, through
+ * toForwardModel(), when the state is read or changed by other means than next().
+ */
+public interface IForwardModel {
+
+    /**
+     * Creates an engine of the given type, starting from the state of a forward model.
+     * @param engine type of the engine.
+     * @param initial state to start from. Not modified; the engine keeps no reference to it.
+     * @param tick game tick of the initial state.
+     * @return a new engine.
+     */
+    static IForwardModel create(Types.ENGINE engine, ForwardModel initial, int tick) {
+        switch (engine) {
+            case BITBOARD:
+                return new BitboardForwardModel(initial);
+            case LOCKSTEP:
+                return new LockstepForwardModel(initial.copy(-1), tick);
+            default:
+                return initial.copy(-1);
+        }
+    }
+
+    /**
+     * Advances the state one tick, applying the actions of the players and all passive events.
+     * @param playerActions actions of all players.
+     */
+    void next(Types.ACTIONS[] playerActions);
+
+    /**
+     * Creates a copy of this engine, reduced to the observation of a player.
+     * @param playerIdx index of the player to reduce the state for, -1 for a full copy.
+     * @return a copy of this engine.
+     */
+    IForwardModel copy(int playerIdx);
+
+    /**
+     * @return the state of this engine as a reference forward model. May be the engine itself, so callers which
+     * modify it must copy it first.
+     */
+    ForwardModel toForwardModel();
+
+    /**
+     * @return the settings and wall clock of the game.
+     */
+    GameContext getContext();
+
+    /**
+     * Sets the settings and wall clock the engine uses, i.e. to share those of a game.
+     * @param context context of the game.
+     */
+    void setContext(GameContext context);
+
+    /* ----- Observations ----- */
+
+    Types.TILETYPE[][] getBoard();
+
+    int[][] getBombBlastStrength();
+
+    int[][] getBombLife();
+
+    GameObject[] getAgents();
+
+    ArrayList<GameObject> getAliveAgents();
+}
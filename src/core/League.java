@@ -0,0 +1,312 @@
+package core;
+
+import players.Player;
+import players.PlayerFactory;
+import utils.Types;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static utils.Types.NUM_PLAYERS;
+
+/**
+ * Ranks any number of player configurations (candidates) with a budget of games, spending most of it on the best
+ * ones, by sequential halving: the budget is split evenly among ceil(log2(n)) rounds, every candidate still in the
+ * league plays the games of a round (NUM_PLAYERS per game, in groups which change every round, seated differently
+ * in every game), and only the best half of the candidates, by rating, play the next round. Clear losers are thus
+ * dropped after a few games, and close contenders play more and more games against each other.
+ *
+ * Candidates are rated with Elo, a game between NUM_PLAYERS candidates counting as a match between every pair of
+ * them: a win against a player who didn't win scores 1, and two players with the same result draw. Rating changes
+ * of a game are divided by the number of opponents. As in Tournament, games are played in parallel by copies of
+ * the candidates seeded from the game, and ratings are updated in game order, so standings don't depend on the
+ * number of threads.
+ */
+public class League {
+
+    private static final double INITIAL_RATING = 1500;
+    private static final double K = 32;
+
+    private final Types.GAME_MODE gameMode;
+    private final GameContext context;
+    private final List<Player> candidates;
+    private final List<String> names;
+
+    /**
+     * Creates a league.
+     * @param gameMode mode of the games.
+     * @param context settings of the games, copied for each worker.
+     * @param candidates players to rank, which are copied (not used) to play the games.
+     * @param names name of each candidate, to tell apart configurations of the same player.
+     */
+    public League(Types.GAME_MODE gameMode, GameContext context, List<Player> candidates, List<String> names) {
+        if (candidates.size() < 2 || candidates.size() != names.size()) {
+            throw new IllegalArgumentException("A league needs at least 2 named candidates");
+        }
+        this.gameMode = gameMode;
+        this.context = context;
+        this.candidates = new ArrayList<>(candidates);
+        this.names = new ArrayList<>(names);
+    }
+
+    /**
+     * Runs the league.
+     * @param seeds seeds of the boards, used in turn by the games.
+     * @param budget maximum number of games to play. Each round plays at least one game per NUM_PLAYERS candidates.
+     * @param threads number of threads playing games.
+     * @return standings of the candidates.
+     */
+    public Standings run(long[] seeds, int budget, int threads) {
+        int n = candidates.size();
+        double[] ratings = new double[n];
+        int[] games = new int[n];
+        int[] rounds = new int[n];
+        Arrays.fill(ratings, INITIAL_RATING);
+
+        ArrayList<Integer> alive = new ArrayList<>();
+        for (int c = 0; c < n; c++) {
+            alive.add(c);
+        }
+        int numRounds = 32 - Integer.numberOfLeadingZeros(n - 1);  // ceil(log2(n))
+        int played = 0;
+
+        ThreadLocal<Game> workerGames = new ThreadLocal<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; alive.size() > 1; round++) {
+                int m = alive.size();
+                int roundGames = Math.max((budget - played) / (numRounds - round), (m + NUM_PLAYERS - 1) / NUM_PLAYERS);
+
+                // Groups change every round
+                int[][] groups = groups(alive, roundGames, new Random(seeds[0] + round));
+
+                ArrayList<Future<Types.RESULT[]>> jobs = new ArrayList<>(roundGames);
+                for (int g = 0; g < roundGames; g++) {
+                    int[] group = groups[g];
+                    int job = played + g;
+                    long seed = seeds[job % seeds.length];
+                    jobs.add(pool.submit(() -> play(workerGames, group, seed, job)));
+                }
+                for (int g = 0; g < roundGames; g++) {
+                    rate(ratings, groups[g], jobs.get(g).get());
+                    for (int s = 0; s < NUM_PLAYERS; s++) {
+                        if (s == 0 || !contains(groups[g], s, groups[g][s]))
+                            games[groups[g][s]]++;
+                    }
+                }
+                played += roundGames;
+
+                // The best half goes on to the next round
+                for (int c : alive) {
+                    rounds[c] = round + 1;
+                }
+                alive.sort(Comparator.comparingDouble((Integer c) -> -ratings[c]));
+                alive = new ArrayList<>(alive.subList(0, (m + 1) / 2));
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("League game failed", e);
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Standings(names, ratings, games, rounds, played);
+    }
+
+    /**
+     * Makes the groups of the games of a round, seating the candidates differently in every game. Games take the
+     * candidates in turn, so that with fewer candidates than seats, the extra seats go to each candidate in turn too.
+     * @param alive candidates playing the round.
+     * @param numGames number of games of the round.
+     * @param rnd random generator of the round.
+     * @return candidate playing in each seat of each game.
+     */
+    int[][] groups(List<Integer> alive, int numGames, Random rnd) {
+        ArrayList<Integer> order = new ArrayList<>(alive);
+        Collections.shuffle(order, rnd);
+        int[][] groups = new int[numGames][NUM_PLAYERS];
+        for (int g = 0; g < numGames; g++) {
+            for (int s = 0; s < NUM_PLAYERS; s++) {
+                groups[g][s] = order.get((g * NUM_PLAYERS + s) % order.size());
+            }
+            seat(groups[g], rnd);
+        }
+        return groups;
+    }
+
+    /**
+     * Shuffles the seats of a group. In team modes, a candidate with two seats plays them in the same team (seats s
+     * and s + NUM_PLAYERS / 2), instead of against itself.
+     */
+    private void seat(int[] group, Random rnd) {
+        for (int s = NUM_PLAYERS - 1; s > 0; s--) {
+            swap(group, s, rnd.nextInt(s + 1));
+        }
+        if (gameMode == Types.GAME_MODE.FFA)
+            return;
+        for (int s = 0; s < NUM_PLAYERS; s++) {
+            int teammate = (s + NUM_PLAYERS / 2) % NUM_PLAYERS;
+            for (int t = s + 1; t < NUM_PLAYERS; t++) {
+                if (group[t] == group[s] && t != teammate) {
+                    swap(group, t, teammate);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static void swap(int[] group, int a, int b) {
+        int c = group[a];
+        group[a] = group[b];
+        group[b] = c;
+    }
+
+    /**
+     * @return true if the candidate plays in one of the seats before the given one.
+     */
+    private static boolean contains(int[] group, int seats, int candidate) {
+        for (int s = 0; s < seats; s++) {
+            if (group[s] == candidate)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Plays one game of the league in the calling thread's game.
+     * @param group candidate playing in each seat.
+     * @return results of the game, by seat.
+     */
+    private Types.RESULT[] play(ThreadLocal<Game> workerGames, int[] group, long seed, int job) {
+        Game game = workerGames.get();
+        if (game == null) {
+            game = new Game(seed, Types.BOARD_SIZE, gameMode, "", context.copy());
+            workerGames.set(game);
+        } else {
+            game.reset(seed);
+        }
+        ArrayList<Player> seated = new ArrayList<>(NUM_PLAYERS);
+        for (int s = 0; s < NUM_PLAYERS; s++) {
+            Player p = candidates.get(group[s]);
+            seated.add(p.copy(Tournament.playerSeed(p.getSeed(), seed, job, s), Types.TILETYPE.AGENT0.getKey() + s));
+        }
+        game.setPlayers(seated);
+        return game.run(false);
+    }
+
+    /**
+     * Updates the ratings of the candidates of a game, with every pair of different candidates as a match.
+     */
+    private static void rate(double[] ratings, int[] group, Types.RESULT[] results) {
+        double[] delta = new double[NUM_PLAYERS];
+        for (int a = 0; a < NUM_PLAYERS; a++) {
+            for (int b = 0; b < NUM_PLAYERS; b++) {
+                if (group[a] == group[b])
+                    continue;
+                double score = 0.5;
+                if (results[a] == Types.RESULT.WIN && results[b] != Types.RESULT.WIN)
+                    score = 1;
+                else if (results[b] == Types.RESULT.WIN && results[a] != Types.RESULT.WIN)
+                    score = 0;
+                double expected = 1 / (1 + Math.pow(10, (ratings[group[b]] - ratings[group[a]]) / 400));
+                delta[a] += K * (score - expected) / (NUM_PLAYERS - 1);
+            }
+        }
+        for (int s = 0; s < NUM_PLAYERS; s++) {
+            ratings[group[s]] += delta[s];
+        }
+    }
+
+    /**
+     * Standings of a league: candidates sorted by the last round they played, and then by rating.
+     */
+    public static class Standings {
+        private final List<String> names;
+        private final double[] ratings;
+        private final int[] games;
+        private final int[] rounds;
+        private final int played;
+        private final Integer[] ranking;
+
+        Standings(List<String> names, double[] ratings, int[] games, int[] rounds, int played) {
+            this.names = names;
+            this.ratings = ratings;
+            this.games = games;
+            this.rounds = rounds;
+            this.played = played;
+            ranking = new Integer[names.size()];
+            for (int c = 0; c < ranking.length; c++) {
+                ranking[c] = c;
+            }
+            Arrays.sort(ranking, Comparator.comparingInt((Integer c) -> -rounds[c])
+                    .thenComparingDouble(c -> -ratings[c]));
+        }
+
+        /**
+         * @return index of the candidate at the given rank, 0 being the best.
+         */
+        public int getCandidate(int rank) {
+            return ranking[rank];
+        }
+
+        public double getRating(int candidate) {
+            return ratings[candidate];
+        }
+
+        /**
+         * @return number of games the candidate played.
+         */
+        public int getGames(int candidate) {
+            return games[candidate];
+        }
+
+        /**
+         * @return number of rounds the candidate played.
+         */
+        public int getRounds(int candidate) {
+            return rounds[candidate];
+        }
+
+        /**
+         * @return number of games played in the league.
+         */
+        public int getGamesPlayed() {
+            return played;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("Rank \tElo \tGames \tRounds \tPlayer\n");
+            for (int r = 0; r < ranking.length; r++) {
+                int c = ranking[r];
+                sb.append(r + 1).append("\t").append(Math.round(ratings[c])).append("\t").append(games[c])
+                        .append("\t").append(rounds[c]).append("\t").append(names.get(c)).append("\n");
+            }
+            sb.append(played).append(" games\n");
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Runs a league between agents available from the command line (see players.PlayerFactory), in FFA games.
+     * Usage: java core.League [budget] [agent type] [agent type] ...
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: java core.League [budget] [agent type] [agent type] ...");
+            return;
+        }
+        long[] seeds = new long[] {93988, 19067, 64416, 83884, 55636, 27599, 44350, 87872, 40815,
+                11772, 58367, 17546, 75375, 75772, 58237, 30464, 27180, 23643, 67054, 19508};
+        int budget = Integer.parseInt(args[0]);
+        ArrayList<Player> candidates = new ArrayList<>();
+        ArrayList<String> names = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            int type = Integer.parseInt(args[i]);
+            candidates.add(PlayerFactory.create(type, seeds[0] + i, Types.TILETYPE.AGENT0.getKey()));
+            names.add((i - 1) + " " + PlayerFactory.name(type));
+        }
+        League league = new League(Types.GAME_MODE.FFA, new GameContext(), candidates, names);
+        System.out.print(league.run(seeds, budget, Runtime.getRuntime().availableProcessors()));
+    }
+}
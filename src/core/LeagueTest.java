@@ -0,0 +1,88 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import players.DoNothingPlayer;
+import players.Player;
+import players.RandomPlayer;
+import players.SimplePlayer;
+import utils.Types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeagueTest {
+
+    /**
+     * The best candidate must come first, having played more games than those dropped after the first round, and
+     * standings must not depend on the number of threads.
+     */
+    @Test
+    void losersDropOut() {
+        ArrayList<Player> candidates = new ArrayList<>();
+        ArrayList<String> names = new ArrayList<>();
+        int id = Types.TILETYPE.AGENT0.getKey();
+        for (int i = 0; i < 2; i++) {
+            candidates.add(new DoNothingPlayer(id));
+            candidates.add(new RandomPlayer(i, id));
+            candidates.add(new SimplePlayer(i, id));
+            names.add("DoNothing " + i);
+            names.add("Random " + i);
+            names.add("Simple " + i);
+        }
+        League league = new League(Types.GAME_MODE.FFA, new GameContext(), candidates, names);
+        long[] seeds = {93988, 19067, 64416, 83884};
+
+        League.Standings sequential = league.run(seeds, 30, 1);
+        League.Standings parallel = league.run(seeds, 30, 3);
+
+        assertTrue(sequential.getGamesPlayed() <= 30);
+        assertTrue(candidates.get(sequential.getCandidate(0)) instanceof SimplePlayer);
+        for (int c = 0; c < candidates.size(); c++) {
+            assertEquals(sequential.getRating(c), parallel.getRating(c));
+            assertEquals(sequential.getCandidate(c), parallel.getCandidate(c));
+        }
+        int last = sequential.getCandidate(candidates.size() - 1);
+        assertEquals(1, sequential.getRounds(last));
+        assertTrue(sequential.getGames(last) < sequential.getGames(sequential.getCandidate(0)));
+    }
+
+    /**
+     * With fewer candidates than seats, the extra seats must go to every candidate in turn, in changing seats, and
+     * in team modes a candidate's two seats must be in the same team.
+     */
+    @Test
+    void threeCandidatesShareExtraSeats() {
+        int id = Types.TILETYPE.AGENT0.getKey();
+        List<Player> candidates = Arrays.asList(new DoNothingPlayer(id), new RandomPlayer(0, id),
+                new SimplePlayer(0, id));
+        List<String> names = Arrays.asList("DoNothing", "Random", "Simple");
+        for (Types.GAME_MODE mode : new Types.GAME_MODE[]{Types.GAME_MODE.FFA, Types.GAME_MODE.TEAM}) {
+            League league = new League(mode, new GameContext(), candidates, names);
+            int[][] groups = league.groups(Arrays.asList(0, 1, 2), 30, new Random(1));
+
+            int[] seats = new int[3];
+            int[][] seatsBySeat = new int[3][Types.NUM_PLAYERS];
+            for (int[] group : groups) {
+                for (int s = 0; s < Types.NUM_PLAYERS; s++) {
+                    seats[group[s]]++;
+                    seatsBySeat[group[s]][s]++;
+                    if (mode != Types.GAME_MODE.FFA) {
+                        for (int t = s + 1; t < Types.NUM_PLAYERS; t++) {
+                            assertFalse(group[t] == group[s] && t != s + Types.NUM_PLAYERS / 2);
+                        }
+                    }
+                }
+            }
+            for (int c = 0; c < 3; c++) {
+                assertEquals(40, seats[c]);
+                for (int s = 0; s < Types.NUM_PLAYERS; s++) {
+                    assertTrue(seatsBySeat[c][s] > 0);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package core;
+
+import objects.Avatar;
+import objects.GameObject;
+import utils.Types;
+
+import java.util.ArrayList;
+
+/**
+ * Verification engine: advances the reference ForwardModel and a BitboardForwardModel in lockstep, with the same
+ * actions, and compares them after every tick. The first divergence found (tick and what differs) is printed and
+ * kept, see getDivergence(); later ticks are not compared anymore. The game itself follows the reference model,
+ * whose observations are the ones returned by this engine.
+ */
+public class LockstepForwardModel implements IForwardModel {
+
+    private final ForwardModel reference;
+    private final BitboardForwardModel candidate;
+
+    // Game tick the models are at.
+    private int tick;
+
+    // Description of the first divergence found, null if the models agree so far.
+    private String divergence;
+
+    /**
+     * Creates a lockstep engine starting from the given state.
+     * @param reference reference model, owned by this engine from now on.
+     * @param tick game tick of the given state.
+     */
+    LockstepForwardModel(ForwardModel reference, int tick) {
+        this.reference = reference;
+        this.candidate = new BitboardForwardModel(reference);
+        this.tick = tick;
+    }
+
+    @Override
+    public void next(Types.ACTIONS[] playerActions) {
+        reference.next(playerActions);
+        candidate.next(playerActions);
+        tick++;
+        if (divergence == null) {
+            String difference = compare();
+            if (difference != null) {
+                divergence = "tick " + tick + ": " + difference;
+                System.out.println("Engines diverged at " + divergence);
+            }
+        }
+    }
+
+    @Override
+    public LockstepForwardModel copy(int playerIdx) {
+        LockstepForwardModel copy = new LockstepForwardModel(reference.copy(playerIdx), tick);
+        copy.divergence = divergence;
+        return copy;
+    }
+
+    /**
+     * @return description of the first divergence between the engines (tick and what differs), or null if none
+     * was found.
+     */
+    public String getDivergence() {
+        return divergence;
+    }
+
+    /**
+     * Compares the models: observations first, so that differences are described precisely, and then the whole
+     * state, including what players can't see.
+     * @return description of the first difference found, null if there are none.
+     */
+    private String compare() {
+        GameContext rc = reference.getContext(), cc = candidate.getContext();
+        if (rc.getWallClock() != cc.getWallClock() || rc.getWallLayer() != cc.getWallLayer()) {
+            return "wall clock " + rc.getWallClock() + "/" + rc.getWallLayer() + " vs "
+                    + cc.getWallClock() + "/" + cc.getWallLayer();
+        }
+
+        String difference = compareGrids("board", reference.getBoard(), candidate.getBoard());
+        if (difference == null)
+            difference = compareGrids("bomb blast strength", reference.getBombBlastStrength(),
+                    candidate.getBombBlastStrength());
+        if (difference == null)
+            difference = compareGrids("bomb life", reference.getBombLife(), candidate.getBombLife());
+        if (difference != null)
+            return difference;
+
+        GameObject[] agents = reference.getAgents();
+        for (int i = 0; i < agents.length; i++) {
+            Avatar r = (Avatar) agents[i];
+            String c = "position " + candidate.getPosition(i) + ", ammo " + candidate.getAmmo(i)
+                    + ", blast " + candidate.getBlastStrength(i) + ", kick " + candidate.canKick(i)
+                    + ", result " + candidate.getWinner(i);
+            String e = "position " + r.getPosition() + ", ammo " + r.getAmmo()
+                    + ", blast " + r.getBlastStrength() + ", kick " + r.canKick()
+                    + ", result " + r.getWinner();
+            if (!e.equals(c)) {
+                return "agent " + i + " " + e + " vs " + c;
+            }
+        }
+        if (reference.getAliveAgents().size() != candidate.getNumAliveAgents()) {
+            return "alive agents " + reference.getAliveAgents().size() + " vs " + candidate.getNumAliveAgents();
+        }
+
+        if (!reference.equals(candidate.toForwardModel())) {
+            return "hidden state (power-ups, bombs or flames)";
+        }
+        return null;
+    }
+
+    private String compareGrids(String name, Types.TILETYPE[][] expected, Types.TILETYPE[][] actual) {
+        for (int y = 0; y < expected.length; y++) {
+            for (int x = 0; x < expected[y].length; x++) {
+                if (expected[y][x] != actual[y][x])
+                    return name + " at (" + x + ", " + y + "): " + expected[y][x] + " vs " + actual[y][x];
+            }
+        }
+        return null;
+    }
+
+    private String compareGrids(String name, int[][] expected, int[][] actual) {
+        for (int y = 0; y < expected.length; y++) {
+            for (int x = 0; x < expected[y].length; x++) {
+                if (expected[y][x] != actual[y][x])
+                    return name + " at (" + x + ", " + y + "): " + expected[y][x] + " vs " + actual[y][x];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public ForwardModel toForwardModel() {
+        return reference;
+    }
+
+    @Override
+    public GameContext getContext() {
+        return reference.getContext();
+    }
+
+    /**
+     * The reference model takes the given context, and the bitboard model a copy of it, as both tick the wall clock.
+     */
+    @Override
+    public void setContext(GameContext context) {
+        reference.setContext(context);
+        candidate.setContext(context.copy());
+    }
+
+    /* ----- Observations, all from the reference model ----- */
+
+    @Override
+    public Types.TILETYPE[][] getBoard() {
+        return reference.getBoard();
+    }
+
+    @Override
+    public int[][] getBombBlastStrength() {
+        return reference.getBombBlastStrength();
+    }
+
+    @Override
+    public int[][] getBombLife() {
+        return reference.getBombLife();
+    }
+
+    @Override
+    public GameObject[] getAgents() {
+        return reference.getAgents();
+    }
+
+    @Override
+    public ArrayList<GameObject> getAliveAgents() {
+        return reference.getAliveAgents();
+    }
+}
@@ -0,0 +1,163 @@
+package core;
+
+import objects.Avatar;
+import objects.GameObject;
+import utils.Types;
+import utils.Vector2d;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+import static utils.Types.NUM_PLAYERS;
+
+/**
+ * Encodes the observation of a player as a tensor of fixed layout, written straight into a ByteBuffer (direct, or
+ * mapped to a file shared with another process) without allocating, so that learners don't need to parse JSON
+ * (see GameState.toJson()) or rebuild features from the board.
+ *
+ * An observation is observationSize() 32-bit floats, in the byte order of the buffer (little-endian for buffers made
+ * by allocate() and map()). It's made of NUM_PLANES planes of size x size floats, indexed [plane][y][x], followed by
+ * NUM_SCALARS floats:
+ *   - planes 0 to 13: one-hot tiles of the board, one plane per Types.TILETYPE in order (PASSAGE, RIGID, WOOD, BOMB,
+ *     FLAMES, FOG, EXTRABOMB, INCRRANGE, KICK, AGENTDUMMY, AGENT0 to AGENT3). Plane 5 (FOG) is the mask of the tiles
+ *     the player can't see.
+ *   - plane 14: ticks left before the bombs explode.
+ *   - plane 15: blast strength of the bombs.
+ *   - plane 16: ticks left before the flames go out.
+ *   - scalars: game tick, ammo, blast strength, 1 if the player can kick, x and y of the player, then 1 for each
+ *     of the NUM_PLAYERS agents still alive (as far as the player knows), 0 otherwise.
+ *
+ * From Python, a file of n observations written with map() can be read with
+ * numpy.memmap(path, dtype='&lt;f4', mode='r', shape=(n, observationSize())).
+ */
+public class ObservationEncoder {
+
+    // Planes and scalars of each observation.
+    public static final int NUM_TILE_PLANES = Types.TILETYPE.values().length;
+    public static final int NUM_PLANES = NUM_TILE_PLANES + 3;
+    public static final int NUM_SCALARS = 6 + NUM_PLAYERS;
+
+    private static final int BOMB_LIFE_PLANE = NUM_TILE_PLANES;
+    private static final int BOMB_BLAST_PLANE = NUM_TILE_PLANES + 1;
+    private static final int FLAME_LIFE_PLANE = NUM_TILE_PLANES + 2;
+
+    private final int size;
+    private final int planeSize;
+
+    /**
+     * @param size size of the board of the states encoded.
+     */
+    public ObservationEncoder(int size) {
+        this.size = size;
+        this.planeSize = size * size;
+    }
+
+    /**
+     * @return number of floats of an observation.
+     */
+    public int observationSize() {
+        return NUM_PLANES * planeSize + NUM_SCALARS;
+    }
+
+    /**
+     * @return number of bytes of an observation.
+     */
+    public int observationBytes() {
+        return observationSize() * Float.BYTES;
+    }
+
+    /**
+     * Allocates a direct buffer for a number of observations, in little-endian order.
+     * @param count number of observations.
+     * @return the buffer.
+     */
+    public ByteBuffer allocate(int count) {
+        return ByteBuffer.allocateDirect(count * observationBytes()).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Maps a file holding a number of observations to a buffer, in little-endian order, so that other processes can
+     * read the observations written to it. The file is created, or resized, as needed.
+     * @param file file to map.
+     * @param count number of observations.
+     * @return the buffer.
+     */
+    public MappedByteBuffer map(File file, int count) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long bytes = (long) count * observationBytes();
+            raf.setLength(bytes);
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    /**
+     * Encodes the observation of a player.
+     * @param gs game state to encode: the view of the player, or the true state for full observability.
+     * @param playerIdx index of the player.
+     * @param buffer buffer to write to. Its position isn't changed.
+     * @param offset index in the buffer, in bytes, where the observation starts.
+     */
+    public void encode(GameState gs, int playerIdx, ByteBuffer buffer, int offset) {
+        if (offset < 0 || buffer.limit() - offset < observationBytes()) {
+            throw new IndexOutOfBoundsException("No room for an observation of " + observationBytes()
+                    + " bytes at " + offset + " in a buffer of " + buffer.limit());
+        }
+        Types.TILETYPE[][] board = gs.getBoard();
+        int[][] bombLife = gs.getBombLife();
+        int[][] bombBlastStrength = gs.getBombBlastStrength();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int cell = y * size + x;
+                int tile = board[y][x].ordinal();
+                for (int t = 0; t < NUM_TILE_PLANES; t++) {
+                    putFloat(buffer, offset, t * planeSize + cell, t == tile ? 1 : 0);
+                }
+                putFloat(buffer, offset, BOMB_LIFE_PLANE * planeSize + cell, bombLife[y][x]);
+                putFloat(buffer, offset, BOMB_BLAST_PLANE * planeSize + cell, bombBlastStrength[y][x]);
+                putFloat(buffer, offset, FLAME_LIFE_PLANE * planeSize + cell, 0);
+            }
+        }
+
+        ForwardModel model = gs.getModel();
+        ArrayList<GameObject> flames = model.getFlames();
+        for (int i = 0; i < flames.size(); i++) {
+            GameObject flame = flames.get(i);
+            Vector2d position = flame.getPosition();
+            int index = FLAME_LIFE_PLANE * planeSize + position.y * size + position.x;
+            // Overlapping flames burn until the last one goes out
+            float life = Math.max(buffer.getFloat(offset + index * Float.BYTES), flame.getLife());
+            putFloat(buffer, offset, index, life);
+        }
+
+        int scalars = NUM_PLANES * planeSize;
+        GameObject[] agents = model.getAgents();
+        Avatar avatar = (Avatar) agents[playerIdx];
+        Vector2d position = avatar.getPosition();
+        putFloat(buffer, offset, scalars, gs.getTick());
+        putFloat(buffer, offset, scalars + 1, avatar.getAmmo());
+        putFloat(buffer, offset, scalars + 2, avatar.getBlastStrength());
+        putFloat(buffer, offset, scalars + 3, avatar.canKick() ? 1 : 0);
+        putFloat(buffer, offset, scalars + 4, position.x);
+        putFloat(buffer, offset, scalars + 5, position.y);
+        ArrayList<GameObject> alive = model.getAliveAgents();
+        for (int p = 0; p < NUM_PLAYERS; p++) {
+            putFloat(buffer, offset, scalars + 6 + p, 0);
+        }
+        for (int i = 0; i < alive.size(); i++) {
+            int p = ((Avatar) alive.get(i)).getPlayerID() - Types.TILETYPE.AGENT0.getKey();
+            putFloat(buffer, offset, scalars + 6 + p, 1);
+        }
+    }
+
+    private static void putFloat(ByteBuffer buffer, int offset, int index, float value) {
+        buffer.putFloat(offset + index * Float.BYTES, value);
+    }
+}
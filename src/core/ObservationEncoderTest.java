@@ -0,0 +1,85 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import players.Player;
+import players.SimplePlayer;
+import utils.Types;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObservationEncoderTest {
+
+    /**
+     * Observations of players seeing only part of the board must hold what they see, in the documented layout, and
+     * read the same from a file mapped by another process.
+     */
+    @Test
+    void encodesObservations() throws Exception {
+        GameContext context = new GameContext(Types.getGameConfig(), 4, false);
+        Game game = new Game(93988, Types.BOARD_SIZE, Types.GAME_MODE.FFA, "", context);
+        ArrayList<Player> players = new ArrayList<>();
+        for (int i = 0; i < Types.NUM_PLAYERS; i++) {
+            players.add(new SimplePlayer(i, Types.TILETYPE.AGENT0.getKey() + i));
+        }
+        game.setPlayers(players);
+
+        ObservationEncoder encoder = new ObservationEncoder(Types.BOARD_SIZE);
+        ByteBuffer buffer = encoder.allocate(Types.NUM_PLAYERS);
+        File file = File.createTempFile("observations", ".bin");
+        file.deleteOnExit();
+        MappedByteBuffer mapped = encoder.map(file, Types.NUM_PLAYERS);
+
+        int size = Types.BOARD_SIZE, plane = size * size, scalars = ObservationEncoder.NUM_PLANES * plane;
+        boolean sawBombs = false, sawFlames = false;
+        for (int t = 0; t < 60 && !game.isEnded(); t++) {
+            game.tick(false);
+            for (int p = 0; p < Types.NUM_PLAYERS; p++) {
+                GameState gs = game.getObservation(p);
+                int offset = p * encoder.observationBytes();
+                encoder.encode(gs, p, buffer, offset);
+                encoder.encode(gs, p, mapped, offset);
+
+                Types.TILETYPE[][] board = gs.getBoard();
+                for (int y = 0; y < size; y++) {
+                    for (int x = 0; x < size; x++) {
+                        int cell = y * size + x;
+                        for (Types.TILETYPE type : Types.TILETYPE.values()) {
+                            float expected = board[y][x] == type ? 1 : 0;
+                            assertEquals(expected, get(buffer, offset, type.ordinal() * plane + cell));
+                        }
+                        assertEquals(gs.getBombLife()[y][x], get(buffer, offset, 14 * plane + cell));
+                        assertEquals(gs.getBombBlastStrength()[y][x], get(buffer, offset, 15 * plane + cell));
+                        if (board[y][x] == Types.TILETYPE.FLAMES) {
+                            assertTrue(get(buffer, offset, 16 * plane + cell) > 0);
+                            sawFlames = true;
+                        }
+                        sawBombs |= board[y][x] == Types.TILETYPE.BOMB;
+                    }
+                }
+                assertEquals(gs.getTick(), get(buffer, offset, scalars));
+                assertEquals(gs.getAmmo(), get(buffer, offset, scalars + 1));
+                assertEquals(gs.getBlastStrength(), get(buffer, offset, scalars + 2));
+                assertEquals(gs.getPosition().x, get(buffer, offset, scalars + 4));
+                assertEquals(gs.getPosition().y, get(buffer, offset, scalars + 5));
+                assertEquals(gs.winner() == Types.RESULT.INCOMPLETE ? 1 : 0, get(buffer, offset, scalars + 6 + p));
+            }
+        }
+        assertTrue(sawBombs && sawFlames);
+
+        mapped.force();
+        ByteBuffer read = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.clear();
+        assertEquals(buffer, read);
+    }
+
+    private static float get(ByteBuffer buffer, int offset, int index) {
+        return buffer.getFloat(offset + index * Float.BYTES);
+    }
+}
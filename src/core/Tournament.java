@@ -0,0 +1,418 @@
+package core;
+
+import players.Player;
+import utils.DecisionStats;
+import utils.GameLog;
+import utils.Types;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static utils.Types.NUM_PLAYERS;
+
+/**
+ * Plays a tournament between NUM_PLAYERS players in parallel: one game per (seed, repetition, seating) job, where a
+ * seating tells which player plays in each seat of the board. Jobs are shared among a pool of worker threads, each
+ * with its own Game, and every game is played by fresh copies of the players. Players are seeded from the job, so
+ * each game is the same whichever worker plays it and in whatever order, and results are aggregated in job order:
+ * the outcome of a tournament doesn't depend on thread scheduling or on the number of threads.
+ *
+ * A tournament can keep a journal of the games played (see setJournal()), so that if it's interrupted, running it
+ * again plays only the games missing, with the same results as a tournament run without interruption.
+ */
+public class Tournament {
+
+    private final Types.GAME_MODE gameMode;
+    private final GameContext context;
+    private final List<Player> players;
+    private int[][] seatings = {{0, 1, 2, 3}};
+    private boolean logGames;
+    private File journalFile;
+
+    // Game played by each thread playing jobs.
+    private final ThreadLocal<Game> games = new ThreadLocal<>();
+
+    /**
+     * Creates a tournament.
+     * @param gameMode mode of the games.
+     * @param context settings of the games, copied for each worker.
+     * @param players players taking part, which are copied (not used) to play the games.
+     */
+    public Tournament(Types.GAME_MODE gameMode, GameContext context, List<Player> players) {
+        if (players.size() != NUM_PLAYERS) {
+            throw new IllegalArgumentException("A tournament needs " + NUM_PLAYERS + " players, got " + players.size());
+        }
+        this.gameMode = gameMode;
+        this.context = context;
+        this.players = new ArrayList<>(players);
+    }
+
+    /**
+     * Sets the seatings played for every seed and repetition. By default players always play in the same seat.
+     * @param seatings array of seatings; seating[s] is the index of the player in seat s.
+     */
+    public void setSeatings(int[][] seatings) {
+        this.seatings = seatings;
+    }
+
+    /**
+     * Logs the actions of every game, to be returned in the results (see Results.getGameLog()). Logs are kept in
+     * memory only, and are not saved.
+     */
+    public void setLogGames(boolean logGames) {
+        this.logGames = logGames;
+    }
+
+    /**
+     * Keeps a journal of the games played in the given file (see TournamentJournal). If the file already has games of
+     * this tournament, they aren't played again.
+     * @param journal file of the journal, null for none.
+     */
+    public void setJournal(File journal) {
+        this.journalFile = journal;
+    }
+
+    /**
+     * @return the NUM_PLAYERS rotations of the players around the board.
+     */
+    public static int[][] rotations() {
+        int[][] seatings = new int[NUM_PLAYERS][NUM_PLAYERS];
+        for (int r = 0; r < NUM_PLAYERS; r++) {
+            for (int s = 0; s < NUM_PLAYERS; s++) {
+                seatings[r][s] = (s + r) % NUM_PLAYERS;
+            }
+        }
+        return seatings;
+    }
+
+    /**
+     * @return all permutations of the players in the seats, in lexicographic order.
+     */
+    public static int[][] permutations() {
+        ArrayList<int[]> seatings = new ArrayList<>();
+        permute(new int[NUM_PLAYERS], new boolean[NUM_PLAYERS], 0, seatings);
+        return seatings.toArray(new int[0][]);
+    }
+
+    private static void permute(int[] seating, boolean[] used, int seat, ArrayList<int[]> seatings) {
+        if (seat == seating.length) {
+            seatings.add(seating.clone());
+            return;
+        }
+        for (int p = 0; p < seating.length; p++) {
+            if (!used[p]) {
+                used[p] = true;
+                seating[seat] = p;
+                permute(seating, used, seat + 1, seatings);
+                used[p] = false;
+            }
+        }
+    }
+
+    /**
+     * @return number of games played for the given seeds and repetitions.
+     */
+    public int numGames(int numSeeds, int repetitions) {
+        return numSeeds * repetitions * seatings.length;
+    }
+
+    /**
+     * Plays the tournament.
+     * @param seeds seeds of the boards to play.
+     * @param repetitions number of games played on each board, for each seating.
+     * @param threads number of worker threads.
+     * @return results of all games.
+     */
+    public Results run(long[] seeds, int repetitions, int threads) {
+        int numGames = numGames(seeds.length, repetitions);
+        TournamentJournal journal = createJournal(seeds, repetitions);
+        Played[] played = journal == null ? new Played[numGames] : readJournal(journal, numGames);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Future<?>> jobs = new ArrayList<>(numGames);
+            for (int g = 0; g < numGames; g++) {
+                if (played[g] != null) {
+                    continue;  // Already in the journal
+                }
+                int job = g;
+                jobs.add(pool.submit(() -> {
+                    played[job] = play(seeds, repetitions, job);
+                    if (journal != null) {
+                        journal.append(job, played[job]);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> job : jobs) {
+                job.get();
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Tournament game failed", e);
+        } finally {
+            pool.shutdownNow();
+            closeJournal(journal);
+        }
+        return new Results(players, played);
+    }
+
+    /**
+     * @return the journal of this tournament, not opened yet, or null if it has none.
+     */
+    TournamentJournal createJournal(long[] seeds, int repetitions) {
+        return journalFile == null ? null : new TournamentJournal(journalFile, describe(seeds, repetitions));
+    }
+
+    /**
+     * Opens a journal, reading the games already played.
+     * @return outcome of every game in job order, null for those not played yet.
+     */
+    static Played[] readJournal(TournamentJournal journal, int numGames) {
+        try {
+            return journal.open(numGames);
+        } catch (IOException e) {
+            throw new RuntimeException("Can't open the tournament journal", e);
+        }
+    }
+
+    static void closeJournal(TournamentJournal journal) {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Describes this tournament for its journal: mode, settings, players, seatings, seeds and repetitions.
+     */
+    String describe(long[] seeds, int repetitions) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("mode ").append(gameMode)
+                .append(", config ").append(context.getGameConfig().getClass().getName())
+                .append(", vision ").append(context.getVisionRange())
+                .append(", engine ").append(context.getEngine())
+                .append(", deadline ").append(context.getActDeadline()).append(" ms ").append(context.getActTimer())
+                .append(" ").append(context.getOverrunPenalty())
+                .append(", fast-forward ").append(context.isFastForward());
+        for (Player p : players) {
+            sb.append(", player ").append(p.getClass().getName()).append(" ").append(p.getSeed())
+                    .append(" ").append(p.getPlayerID());
+        }
+        sb.append(", seatings ").append(Arrays.deepToString(seatings))
+                .append(", seeds ").append(Arrays.toString(seeds))
+                .append(", repetitions ").append(repetitions)
+                .append(", logs ").append(logGames);
+        return sb.toString();
+    }
+
+    /**
+     * Plays one game (job) of the tournament in the calling thread's game.
+     * @param seeds seeds of the boards of the tournament.
+     * @param repetitions number of games played on each board, for each seating.
+     * @param job index of the game, in job order.
+     * @return outcome of the game.
+     */
+    Played play(long[] seeds, int repetitions, int job) {
+        int[] seating = seatings[job % seatings.length];
+        int rep = (job / seatings.length) % repetitions;
+        long seed = seeds[job / seatings.length / repetitions];
+
+        Game game = games.get();
+        if (game == null) {
+            game = new Game(seed, Types.BOARD_SIZE, gameMode, "", context.copy());
+            games.set(game);
+        } else {
+            game.reset(seed);
+        }
+        game.setKeepLog(logGames);
+
+        ArrayList<Player> seated = new ArrayList<>(NUM_PLAYERS);
+        for (int s = 0; s < NUM_PLAYERS; s++) {
+            Player p = players.get(seating[s]);
+            seated.add(p.copy(playerSeed(p.getSeed(), seed, rep, s), Types.TILETYPE.AGENT0.getKey() + s));
+        }
+        game.setPlayers(seated);
+        Types.RESULT[] bySeat = game.run(false);
+
+        Played played = new Played(logGames ? game.getGameLog() : null);
+        for (int s = 0; s < NUM_PLAYERS; s++) {
+            played.results[seating[s]] = bySeat[s];
+            played.decisions[seating[s]] = game.getDecisionStats()[s];
+        }
+        return played;
+    }
+
+    /**
+     * Seed of a player for one game, so that repetitions on the same board aren't played the same way.
+     */
+    static long playerSeed(long playerSeed, long seed, int rep, int seat) {
+        long h = playerSeed * 0x9E3779B97F4A7C15L + seed;
+        h = h * 0x9E3779B97F4A7C15L + rep;
+        return h * 0x9E3779B97F4A7C15L + seat;
+    }
+
+    /**
+     * Outcome of one game: results and timing of the decisions of the players, indexed by player (not by seat), and
+     * log of the game if games are logged. Outcomes can be sent between processes (see WorkerFarm).
+     */
+    static class Played {
+        final Types.RESULT[] results = new Types.RESULT[NUM_PLAYERS];
+        final DecisionStats[] decisions = new DecisionStats[NUM_PLAYERS];
+        final GameLog log;
+
+        Played(GameLog log) {
+            this.log = log;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            for (int p = 0; p < NUM_PLAYERS; p++) {
+                out.writeByte(results[p].ordinal());
+                decisions[p].writeTo(out);
+            }
+            out.writeBoolean(log != null);
+            if (log != null) {
+                out.writeLong(log.getSeed());
+                out.writeInt(log.getSize());
+                out.writeByte(log.getGameMode().ordinal());
+                out.writeInt(log.getActions().size());
+                for (Types.ACTIONS[] actions : log.getActions()) {
+                    for (Types.ACTIONS action : actions) {
+                        out.writeByte(action.ordinal());
+                    }
+                }
+            }
+        }
+
+        static Played readFrom(DataInputStream in) throws IOException {
+            Types.RESULT[] results = new Types.RESULT[NUM_PLAYERS];
+            DecisionStats[] decisions = new DecisionStats[NUM_PLAYERS];
+            for (int p = 0; p < NUM_PLAYERS; p++) {
+                results[p] = Types.RESULT.values()[in.readByte()];
+                decisions[p] = DecisionStats.readFrom(in);
+            }
+            GameLog log = null;
+            if (in.readBoolean()) {
+                log = new GameLog(in.readLong(), in.readInt(), Types.GAME_MODE.values()[in.readByte()]);
+                int ticks = in.readInt();
+                for (int t = 0; t < ticks; t++) {
+                    Types.ACTIONS[] actions = new Types.ACTIONS[NUM_PLAYERS];
+                    for (int p = 0; p < NUM_PLAYERS; p++) {
+                        actions[p] = Types.ACTIONS.values()[in.readByte()];
+                    }
+                    log.addActions(actions);
+                }
+            }
+            Played played = new Played(log);
+            System.arraycopy(results, 0, played.results, 0, NUM_PLAYERS);
+            System.arraycopy(decisions, 0, played.decisions, 0, NUM_PLAYERS);
+            return played;
+        }
+    }
+
+    /**
+     * Results of a tournament: the result of every player in every game, in job order (seed, then repetition, then
+     * seating), win/tie/loss counts per player, timing of the decisions of each player over all games, and the log
+     * of every game if games were logged.
+     */
+    public static class Results {
+        private final List<Player> players;
+        private final Types.RESULT[][] games;
+        private final GameLog[] logs;
+        private final int[] wins = new int[NUM_PLAYERS];
+        private final int[] ties = new int[NUM_PLAYERS];
+        private final int[] losses = new int[NUM_PLAYERS];
+        private final DecisionStats[] decisions = new DecisionStats[NUM_PLAYERS];
+
+        Results(List<Player> players, Played[] played) {
+            this.players = players;
+            this.games = new Types.RESULT[played.length][];
+            this.logs = new GameLog[played.length];
+            for (int g = 0; g < played.length; g++) {
+                games[g] = played[g].results;
+                logs[g] = played[g].log;
+            }
+            for (int p = 0; p < NUM_PLAYERS; p++) {
+                decisions[p] = new DecisionStats();
+                for (Played game : played) {
+                    decisions[p].add(game.decisions[p]);
+                }
+            }
+            for (Types.RESULT[] game : games) {
+                for (int p = 0; p < NUM_PLAYERS; p++) {
+                    switch (game[p]) {
+                        case WIN: wins[p]++; break;
+                        case TIE: ties[p]++; break;
+                        case LOSS: losses[p]++; break;
+                    }
+                }
+            }
+        }
+
+        public int numGames() {
+            return games.length;
+        }
+
+        /**
+         * @return results of the players in a game, indexed by player.
+         */
+        public Types.RESULT[] getGame(int g) {
+            return games[g].clone();
+        }
+
+        /**
+         * @return log of a game, null if games weren't logged.
+         */
+        public GameLog getGameLog(int g) {
+            return logs[g];
+        }
+
+        public int getWins(int player) {
+            return wins[player];
+        }
+
+        public int getTies(int player) {
+            return ties[player];
+        }
+
+        public int getLosses(int player) {
+            return losses[player];
+        }
+
+        /**
+         * @return timing of the decisions of a player over all games, including overruns of the deadline.
+         */
+        public DecisionStats getDecisionStats(int player) {
+            return decisions[player];
+        }
+
+        /**
+         * @return a table with the percentage of wins, ties and losses of each player, followed by the timing of
+         * their decisions, as printed by Run.
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("N \tWin \tTie \tLoss \tPlayer\n");
+            int n = games.length;
+            for (int p = 0; p < NUM_PLAYERS; p++) {
+                String player = players.get(p).getClass().toString().replaceFirst("class ", "");
+                sb.append(n).append("\t").append(wins[p] * 100.0 / n).append("%\t")
+                        .append(ties[p] * 100.0 / n).append("%\t")
+                        .append(losses[p] * 100.0 / n).append("%\t").append(player).append("\n");
+            }
+            for (int p = 0; p < NUM_PLAYERS; p++) {
+                sb.append("Player ").append(p).append(": ").append(decisions[p]).append("\n");
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package core;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Durable journal of the games of a tournament, so that a tournament interrupted (i.e. by a crash of the JVM) can be
+ * resumed, playing only the games which aren't in the journal yet. Each game played is appended to the journal and
+ * synced to disk before the next one is recorded; a record cut short by a crash is detected by its length and
+ * checksum, and dropped when the journal is opened again.
+ *
+ * The journal starts with a description of the tournament (see Tournament.describe()), and can only be resumed by
+ * the same tournament: same mode, settings, players, seatings, seeds and repetitions. Parameters of the players
+ * other than their class, seed and ID are not part of the description.
+ */
+class TournamentJournal implements Closeable {
+
+    private static final int MAGIC = 0x504A4E31;  // "PJN1"
+    private static final int RECORD_HEADER = 16;  // Job, length and checksum of a record
+
+    private final File file;
+    private final String description;
+    private FileChannel channel;
+
+    /**
+     * @param file file of the journal, created if it doesn't exist.
+     * @param description description of the tournament.
+     */
+    TournamentJournal(File file, String description) {
+        this.file = file;
+        this.description = description;
+    }
+
+    /**
+     * Reads the games already in the journal, and opens it to append the next ones.
+     * @param numGames number of games of the tournament.
+     * @return outcome of every game in job order, null for those not played yet.
+     */
+    Tournament.Played[] open(int numGames) throws IOException {
+        Tournament.Played[] played = new Tournament.Played[numGames];
+        long end = 0;
+        if (file.length() > 0) {
+            end = read(played);
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(end);  // Drops a record cut short, if any
+        channel.position(end);
+        if (end == 0) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            byte[] text = description.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(MAGIC);
+            out.writeInt(text.length);
+            out.write(text);
+            write(bytes.toByteArray());
+        }
+        return played;
+    }
+
+    /**
+     * Reads the records of the journal.
+     * @return position after the last complete record.
+     */
+    private long read(Tournament.Played[] played) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            long length = file.length();
+            if (length < 4) {
+                return 0;  // Cut short while writing the header
+            }
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a tournament journal");
+            }
+            int textLength = length < 8 ? 0 : in.readInt();
+            if (textLength < 0) {
+                throw new IOException(file + " is not a tournament journal");
+            }
+            if (length < 8 || length < 8 + textLength) {
+                return 0;
+            }
+            byte[] text = new byte[textLength];
+            in.readFully(text);
+            String journalDescription = new String(text, StandardCharsets.UTF_8);
+            if (!journalDescription.equals(description)) {
+                throw new IOException(file + " is the journal of another tournament: " + journalDescription);
+            }
+            long end = 8 + textLength;
+            while (length - end >= RECORD_HEADER) {
+                int job = in.readInt();
+                int size = in.readInt();
+                long checksum = in.readLong();
+                if (size < 0 || length - end - RECORD_HEADER < size || job < 0 || job >= played.length) {
+                    break;
+                }
+                byte[] record = new byte[size];
+                in.readFully(record);
+                CRC32 crc = new CRC32();
+                crc.update(record);
+                if (crc.getValue() != checksum) {
+                    break;
+                }
+                played[job] = Tournament.Played.readFrom(new DataInputStream(new ByteArrayInputStream(record)));
+                end += RECORD_HEADER + size;
+            }
+            return end;
+        }
+    }
+
+    /**
+     * Appends a game to the journal, and syncs it to disk.
+     * @param job index of the game, in job order.
+     * @param played outcome of the game.
+     */
+    synchronized void append(int job, Tournament.Played played) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        played.writeTo(new DataOutputStream(bytes));
+        byte[] record = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(record);
+
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER + record.length);
+        buffer.putInt(job).putInt(record.length).putLong(crc.getValue()).put(record);
+        write(buffer.array());
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import players.Player;
+import players.RandomPlayer;
+import players.SimplePlayer;
+import utils.Types;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TournamentTest {
+
+    /**
+     * Results must be the same whatever the number of threads, game by game.
+     */
+    @Test
+    void resultsDontDependOnThreads() {
+        ArrayList<Player> players = new ArrayList<>();
+        for (int i = 0; i < Types.NUM_PLAYERS; i++) {
+            int id = Types.TILETYPE.AGENT0.getKey() + i;
+            players.add(i % 2 == 0 ? new SimplePlayer(i, id) : new RandomPlayer(i, id));
+        }
+        Tournament tournament = new Tournament(Types.GAME_MODE.FFA, new GameContext(), players);
+        tournament.setSeatings(Tournament.rotations());
+        long[] seeds = {93988, 19067};
+
+        Tournament.Results sequential = tournament.run(seeds, 2, 1);
+        Tournament.Results parallel = tournament.run(seeds, 2, 4);
+
+        assertEquals(tournament.numGames(seeds.length, 2), sequential.numGames());
+        for (int g = 0; g < sequential.numGames(); g++) {
+            assertArrayEquals(sequential.getGame(g), parallel.getGame(g));
+        }
+        for (int p = 0; p < Types.NUM_PLAYERS; p++) {
+            assertEquals(sequential.numGames(), sequential.getWins(p) + sequential.getTies(p) + sequential.getLosses(p));
+        }
+    }
+
+    /**
+     * A tournament interrupted in the middle of writing a game to its journal, and run again, must give the same
+     * results as if it had not been interrupted.
+     */
+    @Test
+    void resumedRunMatches() throws IOException {
+        ArrayList<Player> players = new ArrayList<>();
+        for (int i = 0; i < Types.NUM_PLAYERS; i++) {
+            int id = Types.TILETYPE.AGENT0.getKey() + i;
+            players.add(i % 2 == 0 ? new SimplePlayer(i, id) : new RandomPlayer(i, id));
+        }
+        Tournament tournament = new Tournament(Types.GAME_MODE.FFA, new GameContext(), players);
+        tournament.setSeatings(Tournament.rotations());
+        tournament.setLogGames(true);
+        long[] seeds = {93988, 19067};
+        Tournament.Results expected = tournament.run(seeds, 1, 2);
+
+        File journal = File.createTempFile("tournament", ".journal");
+        journal.deleteOnExit();
+        tournament.setJournal(journal);
+        tournament.run(seeds, 1, 2);
+        try (RandomAccessFile file = new RandomAccessFile(journal, "rw")) {
+            file.setLength(file.length() * 2 / 3);  // Cuts a game short
+        }
+        Tournament.Results resumed = tournament.run(seeds, 1, 2);
+
+        for (int g = 0; g < expected.numGames(); g++) {
+            assertArrayEquals(expected.getGame(g), resumed.getGame(g));
+            assertEquals(expected.getGameLog(g), resumed.getGameLog(g));
+        }
+        for (int p = 0; p < Types.NUM_PLAYERS; p++) {
+            assertEquals(expected.getDecisionStats(p).getDecisions(), resumed.getDecisionStats(p).getDecisions());
+        }
+    }
+
+    @Test
+    void seatings() {
+        assertEquals(24, Tournament.permutations().length);
+        assertArrayEquals(new int[]{1, 2, 3, 0}, Tournament.rotations()[1]);
+    }
+}
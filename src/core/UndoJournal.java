@@ -0,0 +1,259 @@
+package core;
+
+import objects.GameObject;
+import utils.Types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Journal of the changes applied to a ForwardModel, used to roll it back to a previous checkpoint instead of
+ * copying it (make/unmake). Board and power-up tiles are recorded one by one as they are modified; the state of
+ * agents, bombs and flames is saved at each checkpoint into shadow objects which are reused between checkpoints,
+ * so pushing and popping doesn't allocate once the journal has grown to the size needed by a search.
+ */
+class UndoJournal {
+
+    // Tiles modified since the first checkpoint: row of the board (or power-ups array), column and previous value.
+    private Types.TILETYPE[][] tileRows = new Types.TILETYPE[64][];
+    private int[] tileCols = new int[64];
+    private Types.TILETYPE[] tileOld = new Types.TILETYPE[64];
+    private int nTiles;
+
+    // Bomb grid cells modified since the first checkpoint: row of the grid, column and previous value.
+    private int[][] gridRows = new int[64][];
+    private int[] gridCols = new int[64];
+    private int[] gridOld = new int[64];
+    private int nGrid;
+
+    // Stack of checkpoints. Checkpoints above 'depth' are kept to be reused.
+    private Checkpoint[] checkpoints = new Checkpoint[8];
+    private int depth;
+
+    /**
+     * @return true if there's at least one checkpoint, so changes need to be recorded.
+     */
+    boolean isRecording() {
+        return depth > 0;
+    }
+
+    /**
+     * @return number of checkpoints in the journal.
+     */
+    int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Discards all checkpoints and recorded changes, without undoing them.
+     */
+    void clear() {
+        Arrays.fill(tileRows, 0, nTiles, null);
+        nTiles = 0;
+        Arrays.fill(gridRows, 0, nGrid, null);
+        nGrid = 0;
+        depth = 0;
+    }
+
+    /**
+     * Records the current value of a tile, before it's modified.
+     * @param row row of the board (or power-ups array) containing the tile.
+     * @param x column of the tile.
+     */
+    void recordTile(Types.TILETYPE[] row, int x) {
+        if (nTiles == tileCols.length) {
+            int capacity = nTiles * 2;
+            tileRows = Arrays.copyOf(tileRows, capacity);
+            tileCols = Arrays.copyOf(tileCols, capacity);
+            tileOld = Arrays.copyOf(tileOld, capacity);
+        }
+        tileRows[nTiles] = row;
+        tileCols[nTiles] = x;
+        tileOld[nTiles] = row[x];
+        nTiles++;
+    }
+
+    /**
+     * Records the current value of a cell of a bomb grid, before it's modified.
+     * @param row row of the grid containing the cell.
+     * @param x column of the cell.
+     */
+    void recordGrid(int[] row, int x) {
+        if (nGrid == gridCols.length) {
+            int capacity = nGrid * 2;
+            gridRows = Arrays.copyOf(gridRows, capacity);
+            gridCols = Arrays.copyOf(gridCols, capacity);
+            gridOld = Arrays.copyOf(gridOld, capacity);
+        }
+        gridRows[nGrid] = row;
+        gridCols[nGrid] = x;
+        gridOld[nGrid] = row[x];
+        nGrid++;
+    }
+
+    /**
+     * Opens a new checkpoint. The caller must save the state of the model into the checkpoint returned.
+     * @return checkpoint to fill.
+     */
+    Checkpoint push() {
+        if (depth == checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, depth * 2);
+        }
+        if (checkpoints[depth] == null) {
+            checkpoints[depth] = new Checkpoint();
+        }
+        Checkpoint checkpoint = checkpoints[depth++];
+        checkpoint.tileMark = nTiles;
+        checkpoint.gridMark = nGrid;
+        return checkpoint;
+    }
+
+    /**
+     * Closes the last checkpoint, undoing all tile and grid changes recorded after it was opened. The caller must restore the
+     * rest of the state from the checkpoint returned.
+     * @return checkpoint to restore the model from.
+     */
+    Checkpoint pop() {
+        if (depth == 0) {
+            throw new IllegalStateException("pop() called without a matching push().");
+        }
+        Checkpoint checkpoint = checkpoints[--depth];
+
+        // Undo tile changes in reverse order, so the oldest value of each tile is the one left
+        while (nTiles > checkpoint.tileMark) {
+            nTiles--;
+            tileRows[nTiles][tileCols[nTiles]] = tileOld[nTiles];
+            tileRows[nTiles] = null;
+        }
+        while (nGrid > checkpoint.gridMark) {
+            nGrid--;
+            gridRows[nGrid][gridCols[nGrid]] = gridOld[nGrid];
+            gridRows[nGrid] = null;
+        }
+        return checkpoint;
+    }
+
+    /**
+     * State of a model saved when a checkpoint was opened.
+     */
+    static class Checkpoint {
+        int tileMark;
+        int gridMark;
+        int tick;
+        int wallClock;
+        int wallLayer;
+        long tileHash;
+        boolean tileHashValid;
+        int[] bombGridCells = new int[16];
+        int nBombGridCells;
+        final Snapshot agents = new Snapshot();
+        final Snapshot aliveAgents = new Snapshot();
+        final Snapshot bombs = new Snapshot();
+        final Snapshot flames = new Snapshot();
+
+        /**
+         * Saves the list of cells written in the bomb grids.
+         */
+        void saveBombGridCells(int[] cells, int n) {
+            if (n > bombGridCells.length) {
+                bombGridCells = new int[cells.length];
+            }
+            if (n > 0) {
+                System.arraycopy(cells, 0, bombGridCells, 0, n);
+            }
+            nBombGridCells = n;
+        }
+
+        /**
+         * Copies the saved list of cells written in the bomb grids into the given array, or a larger one if needed.
+         * @return the array holding the cells.
+         */
+        int[] restoreBombGridCells(int[] cells) {
+            if (nBombGridCells > cells.length) {
+                cells = new int[bombGridCells.length];
+            }
+            if (nBombGridCells > 0) {
+                System.arraycopy(bombGridCells, 0, cells, 0, nBombGridCells);
+            }
+            return cells;
+        }
+    }
+
+    /**
+     * Saved contents of a list of game objects: which objects were in it, and (optionally) the state of each one.
+     */
+    static class Snapshot {
+        private GameObject[] objects = new GameObject[16];
+        private GameObject[] shadows = new GameObject[16];
+        private int n;
+
+        /**
+         * Saves the state of all objects in an array.
+         * @param array objects to save.
+         */
+        void save(GameObject[] array) {
+            ensureCapacity(array.length);
+            n = array.length;
+            for (int i = 0; i < n; i++) {
+                store(i, array[i], true);
+            }
+        }
+
+        /**
+         * Saves which objects are in a list, and the state of each of them if requested.
+         * @param list objects to save.
+         * @param withState true if the fields of the objects should be saved too.
+         */
+        void save(ArrayList<GameObject> list, boolean withState) {
+            ensureCapacity(list.size());
+            n = list.size();
+            for (int i = 0; i < n; i++) {
+                store(i, list.get(i), withState);
+            }
+        }
+
+        private void store(int i, GameObject o, boolean withState) {
+            objects[i] = o;
+            if (withState) {
+                if (shadows[i] == null || shadows[i].getClass() != o.getClass()) {
+                    shadows[i] = o.copy();
+                } else {
+                    o.copyInto(shadows[i]);
+                }
+            }
+        }
+
+        private void ensureCapacity(int size) {
+            if (size > objects.length) {
+                objects = Arrays.copyOf(objects, size * 2);
+                shadows = Arrays.copyOf(shadows, size * 2);
+            }
+        }
+
+        /**
+         * Puts the saved state back into the saved objects.
+         */
+        void restoreState() {
+            for (int i = 0; i < n; i++) {
+                shadows[i].copyInto(objects[i]);
+                objects[i] = null;
+            }
+        }
+
+        /**
+         * Puts the saved objects (and their state, if it was saved) back into a list.
+         * @param list list to restore, its current contents are lost.
+         * @param withState true if the fields of the objects were saved and should be restored.
+         */
+        void restore(ArrayList<GameObject> list, boolean withState) {
+            list.clear();
+            for (int i = 0; i < n; i++) {
+                if (withState) {
+                    shadows[i].copyInto(objects[i]);
+                }
+                list.add(objects[i]);
+                objects[i] = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package core;
+
+import objects.Avatar;
+import objects.GameObject;
+import utils.Types;
+
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
+
+import static utils.Types.NUM_PLAYERS;
+
+/**
+ * Vectorized environment for reinforcement learning: several independent games, all advanced with a single call to
+ * step() taking the actions of all players of all games, in this process. Games which end are reset right away on
+ * a new board, so every call to step() advances all games.
+ *
+ * Observations, rewards and end-of-game flags are written to primitive arrays allocated once by the caller, instead
+ * of being returned as new objects on every step. The observation of each player is made of NUM_PLANES planes of
+ * size x size ints (row by row), followed by NUM_SCALARS ints:
+ *   - plane 0: tiles of the board as seen by the player, as keys of Types.TILETYPE (FOG where it can't see).
+ *   - plane 1: blast strength of the bombs.
+ *   - plane 2: ticks left before the bombs explode.
+ *   - scalars: ammo, blast strength, 1 if the player can kick and 1 if the player is still playing.
+ * Observations of game i and player p start at index (i * NUM_PLAYERS + p) * observationSize().
+ *
+ * Rewards are given by the game configuration (see IGameConfig.getRewards()) at the end of each game, and are 0
+ * while games are being played. As in BatchForwardModel, games may be split in chunks stepped in different threads.
+ */
+public class VecEnv {
+
+    // Planes and scalars of each observation.
+    public static final int NUM_PLANES = 3;
+    public static final int NUM_SCALARS = 4;
+
+    // Minimum number of games stepped by each thread when running in parallel.
+    private static final int CHUNK_SIZE = 4;
+
+    private static final Types.ACTIONS[] ACTIONS = Types.ACTIONS.values();
+
+    private final Game[] games;
+    private final Types.ACTIONS[][] gameActions;
+    private final int[] episodes;
+    private final long seed;
+    private final int size;
+    private final boolean parallel;
+
+    /**
+     * Creates the environment, with all games at their first tick.
+     * @param numGames number of games.
+     * @param seed random seed the boards of all games are generated from.
+     * @param gameMode mode of the games.
+     * @param context settings of the games, copied for each game.
+     * @param parallel true if games should be stepped in several threads.
+     */
+    public VecEnv(int numGames, long seed, Types.GAME_MODE gameMode, GameContext context, boolean parallel) {
+        this.games = new Game[numGames];
+        this.gameActions = new Types.ACTIONS[numGames][NUM_PLAYERS];
+        this.episodes = new int[numGames];
+        this.seed = seed;
+        this.size = Types.BOARD_SIZE;
+        this.parallel = parallel;
+        for (int i = 0; i < numGames; i++) {
+            games[i] = new Game(boardSeed(i, 0), size, gameMode, "", context.copy());
+            games[i].setGlobalLog(false);  // Logs would grow from one episode to the next
+        }
+    }
+
+    /**
+     * Resets all games on new boards.
+     * @param observations buffer receiving the observations of all players of all games, of numObservations() ints.
+     */
+    public void reset(int[] observations) {
+        checkLength("observations", observations.length, numObservations());
+        for (int i = 0; i < games.length; i++) {
+            games[i].reset(boardSeed(i, ++episodes[i]));
+            observe(i, observations);
+        }
+    }
+
+    /**
+     * Advances all games by one tick. Games which end are reset on a new board: their observations are the first
+     * of the new game, while their rewards and end flag are those of the game which ended.
+     * @param actions actions of all players of all games, as indices in Types.ACTIONS.values(), by game and player.
+     * @param observations buffer receiving the observations of all players of all games, of numObservations() ints.
+     * @param rewards buffer receiving the reward of all players of all games, of numGames() * NUM_PLAYERS values.
+     * @param ended buffer receiving, for each game, true if it ended in this step.
+     */
+    public void step(int[][] actions, int[] observations, double[] rewards, boolean[] ended) {
+        checkLength("actions", actions.length, games.length);
+        checkLength("observations", observations.length, numObservations());
+        checkLength("rewards", rewards.length, games.length * NUM_PLAYERS);
+        checkLength("ended", ended.length, games.length);
+
+        int nChunks = (games.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (parallel && nChunks > 1) {
+            IntStream.range(0, nChunks).parallel().forEach(c -> stepChunk(c, actions, observations, rewards, ended));
+        } else {
+            for (int c = 0; c < nChunks; c++) {
+                stepChunk(c, actions, observations, rewards, ended);
+            }
+        }
+    }
+
+    private void stepChunk(int chunk, int[][] actions, int[] observations, double[] rewards, boolean[] ended) {
+        int end = Math.min(games.length, (chunk + 1) * CHUNK_SIZE);
+        for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+            ended[i] = step(i, actions[i], rewards, i * NUM_PLAYERS);
+            observe(i, observations);
+        }
+    }
+
+    /**
+     * Advances one game by one tick, resetting it on a new board if it ends, without observing it (see encode()).
+     * Games may be stepped at different paces this way, i.e. when actions for each game come separately.
+     * @param i index of the game.
+     * @param actions actions of all players of the game, as indices in Types.ACTIONS.values().
+     * @param rewards buffer receiving the reward of all players of the game, from index 0.
+     * @return true if the game ended in this step.
+     */
+    public boolean step(int i, int[] actions, double[] rewards) {
+        checkLength("actions", actions.length, NUM_PLAYERS);
+        checkLength("rewards", rewards.length, NUM_PLAYERS);
+        return step(i, actions, rewards, 0);
+    }
+
+    private boolean step(int i, int[] actions, double[] rewards, int offset) {
+        Game game = games[i];
+        Types.ACTIONS[] stepActions = gameActions[i];
+        for (int p = 0; p < NUM_PLAYERS; p++) {
+            stepActions[p] = ACTIONS[actions[p]];
+        }
+        game.tick(stepActions);
+
+        if (game.isEnded()) {
+            double[] gameRewards = game.getContext().getGameConfig().getRewards(game.getTick(), game.getResults());
+            System.arraycopy(gameRewards, 0, rewards, offset, NUM_PLAYERS);
+            game.reset(boardSeed(i, ++episodes[i]));
+            return true;
+        }
+        for (int p = 0; p < NUM_PLAYERS; p++) {
+            rewards[offset + p] = 0;
+        }
+        return false;
+    }
+
+    /**
+     * Encodes the observations of all players of a game as feature planes, one after the other.
+     * @param i index of the game.
+     * @param encoder encoder of the observations.
+     * @param buffer buffer to write to, with room for NUM_PLAYERS observations (see ObservationEncoder).
+     * @param offset index in the buffer, in bytes, where the observation of the first player starts.
+     */
+    public void encode(int i, ObservationEncoder encoder, ByteBuffer buffer, int offset) {
+        Game game = games[i];
+        boolean fullObservability = game.getContext().getVisionRange() == -1;
+        for (int p = 0; p < NUM_PLAYERS; p++) {
+            GameState gs = fullObservability ? game.getGameState() : game.getObservation(p);
+            encoder.encode(gs, p, buffer, offset + p * encoder.observationBytes());
+        }
+    }
+
+    /**
+     * Writes the observations of all players of a game.
+     */
+    private void observe(int i, int[] observations) {
+        Game game = games[i];
+        boolean fullObservability = game.getContext().getVisionRange() == -1;
+        GameObject[] agents = game.getGameState().getAgents();
+        int pos = i * NUM_PLAYERS * observationSize();
+        for (int p = 0; p < NUM_PLAYERS; p++) {
+            // Observations of the whole board don't need the view of the player, which would copy the state
+            GameState gs = fullObservability ? game.getGameState() : game.getObservation(p);
+            Types.TILETYPE[][] board = gs.getBoard();
+            int[][] blastStrength = gs.getBombBlastStrength();
+            int[][] bombLife = gs.getBombLife();
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    observations[pos] = board[y][x].getKey();
+                    observations[pos + size * size] = blastStrength[y][x];
+                    observations[pos + 2 * size * size] = bombLife[y][x];
+                    pos++;
+                }
+            }
+            pos += (NUM_PLANES - 1) * size * size;
+
+            Avatar avatar = (Avatar) agents[p];
+            observations[pos++] = avatar.getAmmo();
+            observations[pos++] = avatar.getBlastStrength();
+            observations[pos++] = avatar.canKick() ? 1 : 0;
+            observations[pos++] = avatar.getWinner() == Types.RESULT.INCOMPLETE ? 1 : 0;
+        }
+    }
+
+    /**
+     * Seed of the board of a game, so that boards don't depend on the order games end in.
+     */
+    private long boardSeed(int game, int episode) {
+        long h = seed * 0x9E3779B97F4A7C15L + game;
+        return h * 0x9E3779B97F4A7C15L + episode;
+    }
+
+    private static void checkLength(String name, int length, int expected) {
+        if (length < expected) {
+            throw new IllegalArgumentException("Expected " + expected + " " + name + ", received " + length);
+        }
+    }
+
+    /**
+     * @return number of ints of the observation of one player.
+     */
+    public int observationSize() {
+        return NUM_PLANES * size * size + NUM_SCALARS;
+    }
+
+    /**
+     * @return number of ints of the observations of all players of all games.
+     */
+    public int numObservations() {
+        return games.length * NUM_PLAYERS * observationSize();
+    }
+
+    /**
+     * @return number of games.
+     */
+    public int numGames() {
+        return games.length;
+    }
+
+    /**
+     * @param i index of the game.
+     * @return game i, as being played. Changes made to it affect the environment.
+     */
+    public Game getGame(int i) {
+        return games[i];
+    }
+
+    /**
+     * @param i index of the game.
+     * @return number of games played to their end, or reset, in place of game i.
+     */
+    public int getEpisodes(int i) {
+        return episodes[i];
+    }
+}
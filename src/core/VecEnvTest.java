@@ -0,0 +1,95 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import utils.Types;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VecEnvTest {
+
+    /**
+     * Games stepped sequentially and in parallel must be played the same, reset when they end, and observed as the
+     * games being played.
+     */
+    @Test
+    void stepsAndResetsGames() {
+        int n = 6;
+        GameContext context = new GameContext(Types.getGameConfig(), -1, false);
+        VecEnv env = new VecEnv(n, 42, Types.GAME_MODE.FFA, context, false);
+        VecEnv parallelEnv = new VecEnv(n, 42, Types.GAME_MODE.FFA, context, true);
+        int[] observations = new int[env.numObservations()];
+        int[] parallelObservations = new int[env.numObservations()];
+        double[] rewards = new double[n * Types.NUM_PLAYERS];
+        double[] parallelRewards = new double[n * Types.NUM_PLAYERS];
+        boolean[] ended = new boolean[n];
+        boolean[] parallelEnded = new boolean[n];
+        env.reset(observations);
+        parallelEnv.reset(parallelObservations);
+        assertArrayEquals(observations, parallelObservations);
+
+        Random rnd = new Random(42);
+        int[][] actions = new int[n][Types.NUM_PLAYERS];
+        int resets = 0;
+        for (int t = 0; t < Types.MAX_GAME_TICKS + 10; t++) {
+            for (int[] gameActions : actions) {
+                for (int p = 0; p < Types.NUM_PLAYERS; p++) {
+                    gameActions[p] = rnd.nextInt(Types.ACTIONS.values().length);
+                }
+            }
+            int[] episodes = new int[n];
+            for (int i = 0; i < n; i++) {
+                episodes[i] = env.getEpisodes(i);
+            }
+            env.step(actions, observations, rewards, ended);
+            parallelEnv.step(actions, parallelObservations, parallelRewards, parallelEnded);
+            assertArrayEquals(observations, parallelObservations);
+            assertArrayEquals(rewards, parallelRewards);
+            assertArrayEquals(ended, parallelEnded);
+
+            for (int i = 0; i < n; i++) {
+                Game game = env.getGame(i);
+                if (ended[i]) {
+                    resets++;
+                    assertEquals(episodes[i] + 1, env.getEpisodes(i));
+                    assertEquals(0, game.getTick());
+                } else {
+                    for (int p = 0; p < Types.NUM_PLAYERS; p++) {
+                        assertEquals(0, rewards[i * Types.NUM_PLAYERS + p]);
+                    }
+                }
+                Types.TILETYPE[][] board = game.getGameState().getBoard();
+                int pos = i * Types.NUM_PLAYERS * env.observationSize();
+                for (int y = 0; y < board.length; y++) {
+                    for (int x = 0; x < board.length; x++) {
+                        assertEquals(board[y][x].getKey(), observations[pos + y * board.length + x]);
+                    }
+                }
+            }
+        }
+        assertTrue(resets >= n);
+    }
+
+    /**
+     * Games must not be logged, even if games are logged globally, as logs would grow over all episodes.
+     */
+    @Test
+    void ignoresGlobalLog() {
+        boolean logGame = Game.LOG_GAME;
+        try {
+            Game.LOG_GAME = true;
+            VecEnv env = new VecEnv(2, 42, Types.GAME_MODE.FFA, new GameContext(Types.getGameConfig(), -1, false),
+                    false);
+            int[] observations = new int[env.numObservations()];
+            env.reset(observations);
+            int[][] actions = new int[2][Types.NUM_PLAYERS];
+            for (int t = 0; t < 10; t++) {
+                env.step(actions, observations, new double[2 * Types.NUM_PLAYERS], new boolean[2]);
+            }
+            assertNull(env.getGame(0).getGameLog());
+        } finally {
+            Game.LOG_GAME = logGame;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package core;
+
+import players.Player;
+import players.PlayerFactory;
+import utils.Types;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static utils.Types.NUM_PLAYERS;
+
+/**
+ * Plays a tournament in separate worker JVMs on this machine, for agents heavy enough to benefit from a process
+ * (and heap, and garbage collector) of their own. Each worker is a FarmWorker process connected to this coordinator
+ * by a loopback socket, which sets up the same tournament as the coordinator and plays the jobs (games) it's sent,
+ * one at a time, sending back their outcomes and logs.
+ *
+ * Jobs are first split in contiguous chunks, one per worker. A worker takes its next job from the front of its own
+ * chunk, and when it has none left it steals the last job of the worker with most jobs left. If a worker crashes,
+ * its current job is queued again and its remaining jobs are left to be stolen by the others; a job crashing
+ * MAX_ATTEMPTS workers fails the tournament. As in Tournament, outcomes are aggregated in job order, so results
+ * don't depend on the number of workers or on which worker played each game.
+ *
+ * Players are created by type number (see PlayerFactory), so that workers can create the same players. A farm
+ * can keep a journal of the games played, as a Tournament (see setJournal()), which both can resume.
+ */
+public class WorkerFarm {
+
+    // Number of workers a game may crash before the tournament fails.
+    private static final int MAX_ATTEMPTS = 3;
+
+    // Milliseconds a worker has to connect back to the coordinator after being started.
+    private static final int CONNECT_TIMEOUT = 60000;
+
+    private final Types.GAME_MODE gameMode;
+    private final GameContext context;
+    private final int[] agentTypes;
+    private final long playerSeed;
+    private int[][] seatings = {{0, 1, 2, 3}};
+    private boolean logGames;
+    private File journalFile;
+    private List<String> jvmOptions = new ArrayList<>();
+    private Class<?> workerClass = FarmWorker.class;
+
+    /**
+     * Creates a farm.
+     * @param gameMode mode of the games.
+     * @param context settings of the games, sent to the workers.
+     * @param agentTypes type number of each player (see PlayerFactory).
+     * @param playerSeed random seed the players are created with.
+     */
+    public WorkerFarm(Types.GAME_MODE gameMode, GameContext context, int[] agentTypes, long playerSeed) {
+        if (agentTypes.length != NUM_PLAYERS) {
+            throw new IllegalArgumentException("A tournament needs " + NUM_PLAYERS + " players, got " + agentTypes.length);
+        }
+        this.gameMode = gameMode;
+        this.context = context;
+        this.agentTypes = agentTypes.clone();
+        this.playerSeed = playerSeed;
+    }
+
+    /**
+     * Sets the seatings played for every seed and repetition (see Tournament.setSeatings()).
+     */
+    public void setSeatings(int[][] seatings) {
+        this.seatings = seatings;
+    }
+
+    /**
+     * Logs the actions of every game, to be returned in the results (see Tournament.setLogGames()).
+     */
+    public void setLogGames(boolean logGames) {
+        this.logGames = logGames;
+    }
+
+    /**
+     * Keeps a journal of the games played in the given file (see Tournament.setJournal()).
+     * @param journal file of the journal, null for none.
+     */
+    public void setJournal(File journal) {
+        this.journalFile = journal;
+    }
+
+    /**
+     * Sets options of the worker JVMs, i.e. heap size or "-XX:+UseNUMA".
+     */
+    public void setJvmOptions(String... options) {
+        this.jvmOptions = Arrays.asList(options);
+    }
+
+    /**
+     * Sets the main class of the worker processes, FarmWorker unless testing workers that misbehave.
+     */
+    void setWorkerClass(Class<?> workerClass) {
+        this.workerClass = workerClass;
+    }
+
+    /**
+     * Creates the players of the tournament.
+     */
+    static List<Player> createPlayers(int[] agentTypes, long playerSeed) {
+        ArrayList<Player> players = new ArrayList<>(NUM_PLAYERS);
+        for (int i = 0; i < NUM_PLAYERS; i++) {
+            Player p = PlayerFactory.create(agentTypes[i], playerSeed, Types.TILETYPE.AGENT0.getKey() + i);
+            if (p == null) {
+                throw new IllegalArgumentException("Invalid agent type: " + agentTypes[i]);
+            }
+            players.add(p);
+        }
+        return players;
+    }
+
+    /**
+     * Plays the tournament.
+     * @param seeds seeds of the boards to play.
+     * @param repetitions number of games played on each board, for each seating.
+     * @param workers number of worker processes.
+     * @return results of all games, as returned by Tournament.run().
+     */
+    public Tournament.Results run(long[] seeds, int repetitions, int workers) {
+        List<Player> players = createPlayers(agentTypes, playerSeed);
+        Tournament tournament = new Tournament(gameMode, context, players);
+        tournament.setSeatings(seatings);
+        tournament.setLogGames(logGames);
+        tournament.setJournal(journalFile);
+        int numGames = tournament.numGames(seeds.length, repetitions);
+        TournamentJournal journal = tournament.createJournal(seeds, repetitions);
+        Tournament.Played[] played = journal == null ? new Tournament.Played[numGames]
+                : Tournament.readJournal(journal, numGames);
+
+        ArrayList<Integer> missing = new ArrayList<>();
+        for (int g = 0; g < numGames; g++) {
+            if (played[g] == null)
+                missing.add(g);
+        }
+        Jobs jobs = new Jobs(missing, numGames, workers);
+
+        Thread[] threads = new Thread[workers];
+        for (int w = 0; w < workers; w++) {
+            int worker = w;
+            threads[w] = new Thread(() -> serve(worker, jobs, played, seeds, repetitions, journal), "farm-" + w);
+            threads[w].start();
+        }
+        try {
+            for (Thread t : threads) {
+                t.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for workers", e);
+        } finally {
+            Tournament.closeJournal(journal);
+        }
+
+        if (jobs.failure != null) {
+            throw new RuntimeException(jobs.failure);
+        }
+        if (jobs.completed < missing.size()) {
+            throw new RuntimeException("All workers crashed, " + (missing.size() - jobs.completed)
+                    + " games not played");
+        }
+        return new Tournament.Results(players, played);
+    }
+
+    /**
+     * Starts a worker and sends it jobs until there are none left, or it crashes.
+     */
+    private void serve(int w, Jobs jobs, Tournament.Played[] played, long[] seeds, int repetitions,
+                       TournamentJournal journal) {
+        Process process = null;
+        int job = -1;
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            process = startWorker(server.getLocalPort());
+            server.setSoTimeout(CONNECT_TIMEOUT);
+            try (Socket socket = server.accept()) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                writeSetup(out, seeds, repetitions);
+
+                while ((job = jobs.take(w)) >= 0) {
+                    out.writeInt(job);
+                    out.flush();
+                    if (in.readInt() != job) {
+                        throw new IOException("Worker " + w + " answered another job than " + job);
+                    }
+                    played[job] = Tournament.Played.readFrom(in);
+                    if (journal != null) {
+                        try {
+                            journal.append(job, played[job]);
+                        } catch (IOException e) {
+                            jobs.fail("Can't write the tournament journal: " + e);
+                        }
+                    }
+                    jobs.done();
+                }
+                out.writeInt(-1);
+                out.flush();
+            }
+            process.waitFor(10, TimeUnit.SECONDS);
+        } catch (IOException | RuntimeException e) {
+            // Runtime exceptions come from answers that can't be read, i.e. a result out of range
+            System.err.println("Worker " + w + " crashed: " + e);
+            if (job >= 0) {
+                jobs.crashed(w, job, e.toString());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * Starts a worker JVM, with the classpath of this one, which connects to the given port.
+     */
+    private Process startWorker(int port) throws IOException {
+        ArrayList<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(workerClass.getName());
+        command.add(String.valueOf(port));
+        return new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)  // Games print their results
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    /**
+     * Sends a worker what it needs to set up the tournament (read by FarmWorker.readSetup()).
+     */
+    private void writeSetup(DataOutputStream out, long[] seeds, int repetitions) throws IOException {
+        out.writeUTF(gameMode.name());
+        out.writeUTF(context.getGameConfig().getClass().getName());
+        out.writeInt(context.getVisionRange());
+        out.writeUTF(context.getEngine().name());
+        out.writeLong(context.getActDeadline());
+        out.writeUTF(context.getActTimer().name());
+        out.writeUTF(context.getOverrunPenalty().name());
+        out.writeBoolean(context.isFastForward());
+        for (int type : agentTypes) {
+            out.writeInt(type);
+        }
+        out.writeLong(playerSeed);
+        out.writeInt(seatings.length);
+        for (int[] seating : seatings) {
+            for (int p : seating) {
+                out.writeInt(p);
+            }
+        }
+        out.writeInt(seeds.length);
+        for (long seed : seeds) {
+            out.writeLong(seed);
+        }
+        out.writeInt(repetitions);
+        out.writeBoolean(logGames);
+    }
+
+    /**
+     * Jobs left to each worker, shared by the threads serving the workers.
+     */
+    private static class Jobs {
+        private final List<ArrayDeque<Integer>> queues;
+        private final int[] attempts;
+        private final int total;
+        private int completed;
+        private int running;
+        private String failure;
+
+        /**
+         * @param jobs jobs to play, in job order.
+         * @param numGames number of games of the tournament.
+         * @param workers number of workers.
+         */
+        Jobs(List<Integer> jobs, int numGames, int workers) {
+            this.total = jobs.size();
+            this.attempts = new int[numGames];
+            this.queues = new ArrayList<>(workers);
+            for (int w = 0; w < workers; w++) {
+                queues.add(new ArrayDeque<>(jobs.subList(total * w / workers, total * (w + 1) / workers)));
+            }
+        }
+
+        /**
+         * Takes the next job of a worker: its own first, otherwise one stolen from the worker with most jobs left.
+         * Waits while there are none left to take, but jobs still running may be queued again.
+         * @return the job, or -1 if there are no more jobs for the worker.
+         */
+        synchronized int take(int w) {
+            while (failure == null && completed < total) {
+                Integer job = queues.get(w).pollFirst();
+                if (job == null) {
+                    ArrayDeque<Integer> victim = queues.get(w);
+                    for (ArrayDeque<Integer> queue : queues) {
+                        if (queue.size() > victim.size())
+                            victim = queue;
+                    }
+                    job = victim.pollLast();
+                }
+                if (job != null) {
+                    running++;
+                    return job;
+                }
+                if (running == 0) {
+                    break;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return -1;
+        }
+
+        synchronized void done() {
+            running--;
+            completed++;
+            notifyAll();
+        }
+
+        /**
+         * Stops the tournament: workers aren't given more jobs.
+         */
+        synchronized void fail(String reason) {
+            failure = reason;
+            notifyAll();
+        }
+
+        /**
+         * Queues again the job of a crashed worker, unless it has crashed too many workers already.
+         */
+        synchronized void crashed(int w, int job, String reason) {
+            running--;
+            if (++attempts[job] >= MAX_ATTEMPTS) {
+                failure = "Game " + job + " crashed " + MAX_ATTEMPTS + " workers, last: " + reason;
+            } else {
+                queues.get(w).addFirst(job);
+            }
+            notifyAll();
+        }
+    }
+}
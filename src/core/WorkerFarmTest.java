@@ -0,0 +1,96 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import utils.Types;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkerFarmTest {
+
+    /**
+     * Games played by worker processes must be played as in a tournament in this process, and logged the same.
+     */
+    @Test
+    void workersPlaySameGames() {
+        int[] agentTypes = {3, 1, 3, 1};
+        long[] seeds = {93988, 19067};
+        GameContext context = new GameContext(Types.getGameConfig(), -1, false);
+
+        Tournament tournament = new Tournament(Types.GAME_MODE.FFA, context,
+                WorkerFarm.createPlayers(agentTypes, 1234));
+        tournament.setSeatings(Tournament.rotations());
+        tournament.setLogGames(true);
+        Tournament.Results expected = tournament.run(seeds, 1, 1);
+
+        WorkerFarm farm = new WorkerFarm(Types.GAME_MODE.FFA, context, agentTypes, 1234);
+        farm.setSeatings(Tournament.rotations());
+        farm.setLogGames(true);
+        Tournament.Results results = farm.run(seeds, 1, 3);
+
+        assertEquals(expected.numGames(), results.numGames());
+        for (int g = 0; g < results.numGames(); g++) {
+            assertArrayEquals(expected.getGame(g), results.getGame(g));
+            assertEquals(expected.getGameLog(g), results.getGameLog(g));
+        }
+        for (int p = 0; p < Types.NUM_PLAYERS; p++) {
+            assertEquals(expected.getDecisionStats(p).getDecisions(), results.getDecisionStats(p).getDecisions());
+        }
+    }
+
+    /**
+     * Workers must play with the settings of the coordinator: here, games left to passive players are played to
+     * their end tick by tick, asking the players for all decisions.
+     */
+    @Test
+    void workersUseContext() {
+        int[] agentTypes = {0, 0, 0, 1};
+        long[] seeds = {93988};
+        GameContext context = new GameContext(Types.getGameConfig(), -1, false);
+        context.setFastForward(!Types.DEFAULT_FAST_FORWARD);
+
+        Tournament.Results expected = new Tournament(Types.GAME_MODE.FFA, context,
+                WorkerFarm.createPlayers(agentTypes, 1234)).run(seeds, 1, 1);
+        Tournament.Results results = new WorkerFarm(Types.GAME_MODE.FFA, context, agentTypes, 1234).run(seeds, 1, 1);
+        for (int p = 0; p < Types.NUM_PLAYERS; p++) {
+            assertEquals(expected.getDecisionStats(p).getDecisions(), results.getDecisionStats(p).getDecisions());
+        }
+    }
+
+    /**
+     * Workers answering with results that can't be read must count as crashed, failing the tournament instead of
+     * leaving the other workers waiting for the job forever.
+     */
+    @Test
+    void unreadableResultsCrashWorkers() {
+        WorkerFarm farm = new WorkerFarm(Types.GAME_MODE.FFA, new GameContext(Types.getGameConfig(), -1, false),
+                new int[]{3, 1, 3, 1}, 1234);
+        farm.setWorkerClass(BadResultWorker.class);
+        assertTimeoutPreemptively(Duration.ofSeconds(120),
+                () -> assertThrows(RuntimeException.class, () -> farm.run(new long[]{93988}, 1, 2)));
+    }
+
+    /**
+     * Worker answering every job with a result that doesn't exist.
+     */
+    static class BadResultWorker {
+        public static void main(String[] args) throws Exception {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]))) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                new FarmWorker().readSetup(in);
+
+                int job;
+                while ((job = in.readInt()) >= 0) {
+                    out.writeInt(job);
+                    out.writeByte(Types.RESULT.values().length);
+                    out.flush();
+                }
+            }
+        }
+    }
+}
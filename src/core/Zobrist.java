@@ -0,0 +1,70 @@
+package core;
+
+import utils.Types;
+
+/**
+ * Zobrist keys used to hash game states. Keys are derived from a fixed seed with a mixing function instead of being
+ * stored in random tables, so they don't depend on the board size and are the same in every process.
+ * Tiles are combined with XOR, so a tile can be updated by XORing out its old key and XORing in the new one.
+ * Game objects are combined by addition, as several equal objects (i.e. flames) may share a position and
+ * would cancel each other out with XOR.
+ */
+final class Zobrist {
+
+    private static final long SEED = 0x5DEECE66DL;
+
+    // Salts for each kind of element hashed.
+    private static final long BOARD = 1, POWERUP = 2, BOMB = 3, FLAME = 4, AVATAR = 5;
+
+    private Zobrist() {}
+
+    /**
+     * Key of a tile of the board.
+     * @param type tile type, may be null (no key).
+     * @param cell index of the cell, y * size + x.
+     */
+    static long board(Types.TILETYPE type, int cell) {
+        return type == null ? 0 : mix(mix(BOARD, type.getKey()), cell);
+    }
+
+    /**
+     * Key of a hidden power-up.
+     * @param type power-up type, may be null (no key).
+     * @param cell index of the cell, y * size + x.
+     */
+    static long powerup(Types.TILETYPE type, int cell) {
+        return type == null ? 0 : mix(mix(POWERUP, type.getKey()), cell);
+    }
+
+    static long bomb(int cell, int life, int blastStrength, int velocityX, int velocityY, int diffusionCounter) {
+        long h = mix(BOMB, cell);
+        h = mix(h, life);
+        h = mix(h, blastStrength);
+        h = mix(h, velocityX);
+        h = mix(h, velocityY);
+        return mix(h, diffusionCounter);
+    }
+
+    static long flame(int cell, int life) {
+        return mix(mix(FLAME, cell), life);
+    }
+
+    static long avatar(int playerId, int cell, int ammo, int blastStrength, boolean canKick, Types.RESULT winner) {
+        long h = mix(AVATAR, playerId);
+        h = mix(h, cell);
+        h = mix(h, ammo);
+        h = mix(h, blastStrength);
+        h = mix(h, canKick ? 1 : 0);
+        return mix(h, winner == null ? -1 : winner.ordinal());
+    }
+
+    /**
+     * Combines a hash with a value (SplitMix64 finalizer).
+     */
+    private static long mix(long h, long value) {
+        long z = (h ^ SEED) * 0x9E3779B97F4A7C15L + value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
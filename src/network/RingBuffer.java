@@ -0,0 +1,185 @@
+package network;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ring of fixed-size messages in a memory-mapped file, passed from one producer to one consumer, which may be
+ * different processes on the same host (i.e. a Java game server and a Python learner). There are no locks: messages
+ * are ordered by sequence numbers, written with release and read with acquire semantics.
+ *
+ * Layout of the file, all values little-endian:
+ *   - header, HEADER_BYTES bytes: int MAGIC at 0, int capacity (number of slots) at 4, int slot size at 8, int
+ *     payload size at 12; long sequence number of the last message consumed at CONSUMED (64, on a cache line of its
+ *     own), written by the consumer only.
+ *   - capacity slots of slot size bytes (a multiple of 8): a long sequence number, then the payload.
+ *
+ * Messages are numbered from 1. The producer writes message n in slot (n - 1) % capacity, once the consumer has
+ * consumed message n - capacity: it writes the payload first, and then the sequence number n. The consumer waits
+ * for the sequence number of the slot to be n, reads the payload, and then sets the consumed sequence number to n.
+ */
+public class RingBuffer implements Closeable {
+
+    public static final int MAGIC = 0x50524E47;  // "PRNG"
+    public static final int HEADER_BYTES = 128;
+    public static final int CONSUMED = 64;
+
+    // Spins while waiting for the other side before parking the thread between checks.
+    private static final int SPINS = 1000;
+    private static final long PARK_NANOS = 20000;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int slotSize;
+    private final int payloadSize;
+
+    // Sequence number of the next message written (by the producer) or read (by the consumer).
+    private long next = 1;
+
+    private RingBuffer(RandomAccessFile file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a ring buffer");
+        }
+        this.capacity = buffer.getInt(4);
+        this.slotSize = buffer.getInt(8);
+        this.payloadSize = buffer.getInt(12);
+    }
+
+    /**
+     * Creates a ring in a file, replacing its contents.
+     * @param file file of the ring.
+     * @param capacity number of messages the ring can hold.
+     * @param payloadSize size of each message, in bytes.
+     * @return the ring.
+     */
+    public static RingBuffer create(File file, int capacity, int payloadSize) throws IOException {
+        int slotSize = (Long.BYTES + payloadSize + 7) / 8 * 8;
+        long length = HEADER_BYTES + (long) capacity * slotSize;
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);  // Clears the sequence numbers of a previous ring
+            raf.setLength(length);
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(4, capacity);
+            buffer.putInt(8, slotSize);
+            buffer.putInt(12, payloadSize);
+            buffer.putInt(0, MAGIC);
+            return new RingBuffer(raf, buffer);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a ring created by another process (or thread), from its first message.
+     * @param file file of the ring.
+     * @return the ring.
+     */
+    public static RingBuffer open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            return new RingBuffer(raf, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length()));
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for room for the next message, as the producer.
+     * @return index in buffer() where the payload of the message is to be written, before calling publish().
+     */
+    public int claim() {
+        for (int spins = 0; next - (long) LONGS.getAcquire(buffer, CONSUMED) > capacity; spins++) {
+            idle(spins);
+        }
+        return slot(next) + Long.BYTES;
+    }
+
+    /**
+     * Makes the message claimed visible to the consumer.
+     */
+    public void publish() {
+        LONGS.setRelease(buffer, slot(next), next);
+        next++;
+    }
+
+    /**
+     * Checks if the next message has arrived, as the consumer.
+     * @return index in buffer() where the payload of the message can be read until release() is called, or -1 if
+     * it hasn't arrived yet.
+     */
+    public int poll() {
+        int slot = slot(next);
+        return (long) LONGS.getAcquire(buffer, slot) == next ? slot + Long.BYTES : -1;
+    }
+
+    /**
+     * Waits for the next message, as the consumer.
+     * @return index in buffer() where the payload of the message can be read until release() is called.
+     */
+    public int take() {
+        int payload;
+        for (int spins = 0; (payload = poll()) < 0; spins++) {
+            idle(spins);
+        }
+        return payload;
+    }
+
+    /**
+     * Gives the slot of the message read back to the producer.
+     */
+    public void release() {
+        LONGS.setRelease(buffer, CONSUMED, next);
+        next++;
+    }
+
+    private int slot(long sequence) {
+        return HEADER_BYTES + (int) ((sequence - 1) % capacity) * slotSize;
+    }
+
+    private static void idle(int spins) {
+        if (spins < SPINS) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    /**
+     * @return the mapped file, to read and write payloads at the indices given by claim(), poll() and take().
+     */
+    public MappedByteBuffer buffer() {
+        return buffer;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getPayloadSize() {
+        return payloadSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,123 @@
+package network;
+
+import core.GameContext;
+import core.ObservationEncoder;
+import core.VecEnv;
+import utils.Types;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+
+import static utils.Types.NUM_PLAYERS;
+
+/**
+ * Serves games to a learner on the same host through two rings in memory-mapped files (see RingBuffer), instead of
+ * JSON over HTTP as Server does: the server publishes observations of the games in OBSERVATIONS, and plays the
+ * actions the learner sends in ACTIONS. Each game waits for its actions on its own, so the learner can drive many
+ * games at their own pace, and games are reset on a new board when they end (see VecEnv).
+ *
+ * Messages of OBSERVATIONS, all values little-endian:
+ *   - int game index at 0, int tick at 4 (0 for a game just reset), int 1 at 8 if the game ended in this step and
+ *     was reset, 0 otherwise.
+ *   - NUM_PLAYERS float rewards from 16, 0 until a game ends (see IGameConfig.getRewards()).
+ *   - NUM_PLAYERS observations from OBSERVATION_OFFSET, one after the other, as written by ObservationEncoder.
+ * Messages of ACTIONS: int game index at 0, or -1 to stop the server, then NUM_PLAYERS int actions from 4, as
+ * indices in Types.ACTIONS.values().
+ *
+ * When started, the server publishes the first observation of every game, and then answers each message of actions
+ * with the next observation of the same game. Both rings hold a message per game, so neither side ever waits for
+ * room. Usage: java network.RingServer [directory of the rings] [number of games] [seed]
+ */
+public class RingServer implements Closeable {
+
+    public static final String OBSERVATIONS = "observations.ring";
+    public static final String ACTIONS = "actions.ring";
+    public static final int OBSERVATION_OFFSET = 16 + NUM_PLAYERS * Float.BYTES;
+
+    private final VecEnv env;
+    private final ObservationEncoder encoder;
+    private final RingBuffer observations;
+    private final RingBuffer actions;
+
+    /**
+     * Creates the rings, replacing any previous ones in the directory, and the games.
+     * @param directory directory of the rings.
+     * @param numGames number of games.
+     * @param seed random seed the boards of all games are generated from.
+     * @param gameMode mode of the games.
+     * @param context settings of the games.
+     */
+    public RingServer(File directory, int numGames, long seed, Types.GAME_MODE gameMode, GameContext context)
+            throws IOException {
+        this.env = new VecEnv(numGames, seed, gameMode, context, false);
+        this.encoder = new ObservationEncoder(Types.BOARD_SIZE);
+        this.observations = RingBuffer.create(new File(directory, OBSERVATIONS), numGames,
+                OBSERVATION_OFFSET + NUM_PLAYERS * encoder.observationBytes());
+        this.actions = RingBuffer.create(new File(directory, ACTIONS), numGames, (1 + NUM_PLAYERS) * Integer.BYTES);
+    }
+
+    /**
+     * Serves the games until the learner sends game -1.
+     */
+    public void run() {
+        double[] rewards = new double[NUM_PLAYERS];
+        for (int g = 0; g < env.numGames(); g++) {
+            publish(g, false, rewards);
+        }
+
+        int[] gameActions = new int[NUM_PLAYERS];
+        MappedByteBuffer in = actions.buffer();
+        while (true) {
+            int message = actions.take();
+            int game = in.getInt(message);
+            for (int p = 0; p < NUM_PLAYERS; p++) {
+                gameActions[p] = in.getInt(message + (1 + p) * Integer.BYTES);
+            }
+            actions.release();
+            if (game < 0) {
+                break;
+            }
+            boolean ended = env.step(game, gameActions, rewards);
+            publish(game, ended, rewards);
+        }
+    }
+
+    /**
+     * Publishes the current observation of a game.
+     */
+    private void publish(int game, boolean ended, double[] rewards) {
+        MappedByteBuffer out = observations.buffer();
+        int message = observations.claim();
+        out.putInt(message, game);
+        out.putInt(message + 4, env.getGame(game).getTick());
+        out.putInt(message + 8, ended ? 1 : 0);
+        for (int p = 0; p < NUM_PLAYERS; p++) {
+            out.putFloat(message + 16 + p * Float.BYTES, (float) rewards[p]);
+        }
+        env.encode(game, encoder, out, message + OBSERVATION_OFFSET);
+        observations.publish();
+    }
+
+    public VecEnv getEnv() {
+        return env;
+    }
+
+    @Override
+    public void close() throws IOException {
+        observations.close();
+        actions.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        File directory = new File(args.length > 0 ? args[0] : ".");
+        int numGames = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.currentTimeMillis();
+        try (RingServer server = new RingServer(directory, numGames, seed, Types.GAME_MODE.FFA,
+                new GameContext())) {
+            System.out.println("Serving " + numGames + " games in " + directory.getAbsolutePath());
+            server.run();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package network;
+
+import core.GameContext;
+import core.ObservationEncoder;
+import core.VecEnv;
+import org.junit.jupiter.api.Test;
+import utils.Types;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingServerTest {
+
+    /**
+     * A learner driving games through the rings, in any order, must observe the games as played in this process
+     * with the same actions, and stop the server.
+     */
+    @Test
+    void learnerDrivesGames() throws Exception {
+        int numGames = 3;
+        File directory = Files.createTempDirectory("rings").toFile();
+        directory.deleteOnExit();
+        GameContext context = new GameContext(Types.getGameConfig(), -1, false);
+        RingServer server = new RingServer(directory, numGames, 7, Types.GAME_MODE.FFA, context);
+        Thread serving = new Thread(server::run);
+        serving.setDaemon(true);
+        serving.start();
+
+        VecEnv expected = new VecEnv(numGames, 7, Types.GAME_MODE.FFA, context, false);
+        ObservationEncoder encoder = new ObservationEncoder(Types.BOARD_SIZE);
+        int observationBytes = Types.NUM_PLAYERS * encoder.observationBytes();
+        ByteBuffer expectedObservation = encoder.allocate(Types.NUM_PLAYERS);
+        double[][] rewards = new double[numGames][Types.NUM_PLAYERS];
+        boolean[] ended = new boolean[numGames];
+
+        Random rnd = new Random(7);
+        try (RingBuffer observations = RingBuffer.open(new File(directory, RingServer.OBSERVATIONS));
+             RingBuffer actions = RingBuffer.open(new File(directory, RingServer.ACTIONS))) {
+            MappedByteBuffer in = observations.buffer();
+            MappedByteBuffer out = actions.buffer();
+            int resets = 0;
+            for (int m = 0; m < Types.MAX_GAME_TICKS * numGames + numGames; m++) {
+                int message = observations.take();
+                int game = in.getInt(message);
+                assertEquals(expected.getGame(game).getTick(), in.getInt(message + 4));
+                assertEquals(ended[game] ? 1 : 0, in.getInt(message + 8));
+                for (int p = 0; p < Types.NUM_PLAYERS; p++) {
+                    assertEquals((float) rewards[game][p], in.getFloat(message + 16 + 4 * p));
+                }
+                expected.encode(game, encoder, expectedObservation, 0);
+                int start = message + RingServer.OBSERVATION_OFFSET;
+                assertEquals(expectedObservation.clear(), in.duplicate().position(start).limit(start + observationBytes));
+                observations.release();
+                resets += ended[game] ? 1 : 0;
+
+                int[] gameActions = new int[Types.NUM_PLAYERS];
+                message = actions.claim();
+                out.putInt(message, game);
+                for (int p = 0; p < Types.NUM_PLAYERS; p++) {
+                    gameActions[p] = rnd.nextInt(Types.ACTIONS.values().length);
+                    out.putInt(message + 4 * (1 + p), gameActions[p]);
+                }
+                actions.publish();
+                ended[game] = expected.step(game, gameActions, rewards[game]);
+            }
+            assertTrue(resets > 0);
+
+            // Skips the observations answering the last actions, and stops the server
+            for (int g = 0; g < numGames; g++) {
+                observations.take();
+                observations.release();
+            }
+            int message = actions.claim();
+            out.putInt(message, -1);
+            actions.publish();
+            serving.join(10000);
+            assertFalse(serving.isAlive());
+        } finally {
+            server.close();
+            new File(directory, RingServer.OBSERVATIONS).delete();
+            new File(directory, RingServer.ACTIONS).delete();
+        }
+    }
+}
@@ -4,123 +4,224 @@ import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
-import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import core.GameState;
 import players.Player;
-import players.SimplePlayer;
 import players.mcts.MCTSParams;
 import players.mcts.MCTSPlayer;
-import players.rhea.RHEAPlayer;
 import utils.Types;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
-
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Serves agents to Python-side Pommerman matches (HttpAgent) over HTTP. Each agent plays in its own session, named
+ * by the "session" parameter of the query string of every request (i.e. "/action?session=match7-seat2"), so that one
+ * server can play all seats of many matches at the same time. Requests without a session use session "default".
+ *
+ * Requests are handled by a bounded pool of threads. When all threads are busy and QUEUE_SIZE requests are waiting,
+ * the thread accepting connections handles the next request itself, so no more are accepted until it's done.
+ * Requests of the same session are handled one at a time, as agents aren't thread-safe. Connections are kept alive
+ * between requests.
+ * Usage: java network.Server [port] [number of threads] [number of requests waiting]
+ */
 public class Server {
-    static int id = -1;
-    static int game_type = -1;
-    static Player agent;
 
+    // Default port, number of threads and of requests waiting for a thread.
+    public static final int PORT = 12345;
+    public static final int THREADS = Runtime.getRuntime().availableProcessors();
+    public static final int QUEUE_SIZE = 64;
+
+    private static final String DEFAULT_SESSION = "default";
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    private final IntFunction<Player> agents;
+    private final Map<String, Player> sessions = new ConcurrentHashMap<>();  // Agent of each session
+
+    /**
+     * Creates a server, not started yet.
+     * @param port port to listen to, 0 for any free port.
+     * @param threads number of threads handling requests.
+     * @param queueSize number of requests waiting for a thread before no more are accepted.
+     * @param agents creates the agent of a session, given its player ID.
+     */
+    public Server(int port, int threads, int queueSize, IntFunction<Player> agents) throws IOException {
+        this.agents = agents;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread t = new Thread(r, "server-" + threadCount.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handleRequest);
+        server.createContext("/action", handler(this::getAction));
+        server.createContext("/init_agent", handler(this::initAgent));
+        server.createContext("/episode_end", handler(this::episodeEnd));
+        server.createContext("/shutdown", handler(this::shutdown));
+    }
 
     public static void main(String[] args) throws IOException {
-        // todo remove static keyword and maybe from this out from the main function
-        HttpServer server = HttpServer.create(new InetSocketAddress(12345), 0);
-        HttpContext context = server.createContext("/");
-        HttpContext actionContext = server.createContext("/action");
-        HttpContext initContext = server.createContext("/init_agent");
-        HttpContext episodeEndContext = server.createContext("/episode_end");
-        HttpContext shutdownContext = server.createContext("/shutdown");
-        context.setHandler(Server::handleRequest);
-        actionContext.setHandler(Server::getAction);
-        initContext.setHandler(Server::initAgent);
-        episodeEndContext.setHandler(Server::episodeEnd);
-        shutdownContext.setHandler(Server::shutdown);
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : PORT;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : THREADS;
+        int queueSize = args.length > 2 ? Integer.parseInt(args[2]) : QUEUE_SIZE;
+        new Server(port, threads, queueSize, id -> new MCTSPlayer(0, id, new MCTSParams())).start();
+    }
+
+    public void start() {
         server.start();
     }
 
-    private static void handleRequest(HttpExchange exchange) throws IOException {
-        // httpagent calls this first, maybe initialize agents here?
-        System.out.println("default");
-        String response = "";
-        exchange.sendResponseHeaders(200, response.getBytes().length);//response code and length
-        OutputStream os = exchange.getResponseBody();
-        os.write(response.getBytes());
-        os.close();
+    /**
+     * Stops accepting requests, waiting for those being handled for up to the given time, and ends all sessions.
+     * @param delay seconds to wait for requests being handled.
+     */
+    public void stop(int delay) {
+        server.stop(delay);
+        executor.shutdown();
+        sessions.clear();
+    }
+
+    /**
+     * @return the port the server listens to.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return number of sessions started and not shut down.
+     */
+    public int numSessions() {
+        return sessions.size();
     }
 
-    private static void getAction(HttpExchange exchange) throws IOException {
-        String state = getMessageBody(exchange);
+    /**
+     * Handler of requests of a session.
+     */
+    private interface SessionHandler {
+        /**
+         * @param session name of the session.
+         * @param body body of the request.
+         * @return body of the response.
+         */
+        String handle(String session, String body);
+    }
+
+    /**
+     * Reads the request, passes it to a session handler and sends its response. Failures are answered with status
+     * 500, and requests for sessions not started with status 404.
+     */
+    private HttpHandler handler(SessionHandler sessionHandler) {
+        return exchange -> {
+            try {
+                String body = getMessageBody(exchange);
+                String response;
+                int status = 200;
+                try {
+                    response = sessionHandler.handle(getSession(exchange), body);
+                    if (response == null) {
+                        status = 404;
+                        response = "No session " + getSession(exchange);
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    status = 500;
+                    response = e.toString();
+                }
+                sendResponse(exchange, status, response);
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    private void handleRequest(HttpExchange exchange) throws IOException {
+        // httpagent calls this first
+        getMessageBody(exchange);
+        sendResponse(exchange, 200, "");
+        exchange.close();
+    }
+
+    private String getAction(String session, String state) {
+        Player agent = sessions.get(session);
+        if (agent == null) {
+            return null;
+        }
         GameState gs = new GameState(state);
-        try {
-            Types.ACTIONS action = agent.act(gs);
-            //System.out.println("selected action = " + action);
-
-            String response = "{\"action\": " + action.getKey() + "}";
-            exchange.sendResponseHeaders(200, response.getBytes().length);//response code and length
-            OutputStream os = exchange.getResponseBody();
-            os.write(response.getBytes());
-            os.close();
-        } catch (Exception e){
-            e.printStackTrace();
+        Types.ACTIONS action;
+        synchronized (agent) {
+            action = agent.act(gs);
         }
-
+        return "{\"action\": " + action.getKey() + "}";
     }
 
-    private static void initAgent(HttpExchange exchange) throws IOException {
+    private String initAgent(String session, String value) {
         // httpagent calls this second
-        System.out.println("initAgent");
-
         Gson gson = new Gson();
-        String value = getMessageBody(exchange);
-        System.out.println(value);
-        JsonParser parser = new JsonParser();
-        JsonElement e = parser.parse(value);
+        JsonElement e = new JsonParser().parse(value);
         JsonObject obj = e.getAsJsonObject();
-        id = gson.fromJson(obj.get("id"), int.class) + 10; // todo pommerman agent starts from 0
-        game_type = gson.fromJson(obj.get("game_type"), int.class);
-        agent = new MCTSPlayer(0, id, new MCTSParams());
-
-        System.out.println("id = " + id);
-        System.out.println("game_type = " + game_type);
-
-        String response = "";
-        exchange.sendResponseHeaders(200, response.getBytes().length);//response code and length
-        OutputStream os = exchange.getResponseBody();
-        os.write(response.getBytes());
-        os.close();
-    }
-
-    private static void episodeEnd(HttpExchange exchange) throws IOException {
-        System.out.println("episodeend");
-        String message = getMessageBody(exchange);
-        System.out.println(message);
-        String response = "";
-        exchange.sendResponseHeaders(200, response.getBytes().length);//response code and length
-        OutputStream os = exchange.getResponseBody();
-        os.write(response.getBytes());
-        os.close();
-    }
-
-    private static void shutdown(HttpExchange exchange) throws IOException {
-        System.out.println("shutdown");
-        String message = getMessageBody(exchange);
-        System.out.println(message);
-        String response = "";
-        exchange.sendResponseHeaders(200, response.getBytes().length);//response code and length
-        OutputStream os = exchange.getResponseBody();
-        os.write(response.getBytes());
-        os.close();
+        int id = gson.fromJson(obj.get("id"), int.class) + 10; // todo pommerman agent starts from 0
+        int gameType = gson.fromJson(obj.get("game_type"), int.class);
+        sessions.put(session, agents.apply(id));
+
+        System.out.println("initAgent " + session + ": id = " + id + ", game_type = " + gameType);
+        return "";
     }
 
-    public static String getMessageBody(HttpExchange exchange) throws IOException {
-        InputStreamReader isr =  new InputStreamReader(exchange.getRequestBody(),"utf-8");
-        BufferedReader br = new BufferedReader(isr);
-        return br.readLine();
+    private String episodeEnd(String session, String message) {
+        return sessions.containsKey(session) ? "" : null;
     }
 
+    private String shutdown(String session, String message) {
+        return sessions.remove(session) != null ? "" : null;
+    }
+
+    private static void sendResponse(HttpExchange exchange, int status, String response) throws IOException {
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        // A response of known length lets the client send its next request on the same connection
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * @return name of the session of a request, from the "session" parameter of its query string.
+     */
+    private static String getSession(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.startsWith("session=")) {
+                    return URLDecoder.decode(param.substring("session=".length()), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        return DEFAULT_SESSION;
+    }
+
+    /**
+     * Reads the whole body of a request, which must be read for the connection to be reused.
+     */
+    public static String getMessageBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+    }
 }
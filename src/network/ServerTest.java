@@ -0,0 +1,114 @@
+package network;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import core.Game;
+import core.GameState;
+import org.junit.jupiter.api.Test;
+import players.Player;
+import utils.Types;
+import utils.Vector2d;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerTest {
+
+    /**
+     * Sessions must have agents of their own, asked for actions at the same time, until they're shut down.
+     */
+    @Test
+    void sessionsActConcurrently() throws Exception {
+        // Both agents must be acting at the same time to get past the barrier
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        Server server = new Server(0, 4, 4, id -> new Player(0, id) {
+            @Override
+            public Types.ACTIONS act(GameState gs) {
+                try {
+                    barrier.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                return Types.ACTIONS.values()[getPlayerID() - Types.TILETYPE.AGENT0.getKey() + 1];
+            }
+
+            @Override
+            public Player copy() {
+                return this;
+            }
+        });
+        server.start();
+        HttpClient client = HttpClient.newHttpClient();
+        String url = "http://localhost:" + server.getPort();
+        try {
+            for (int id = 0; id < 2; id++) {
+                assertEquals(200, post(client, url + "/init_agent?session=s" + id,
+                        "{\"id\": " + id + ", \"game_type\": 1}").join().statusCode());
+            }
+            assertEquals(2, server.numSessions());
+
+            GameState gs = new Game(3, Types.BOARD_SIZE, Types.GAME_MODE.FFA, "").getGameState();
+            CompletableFuture<HttpResponse<String>> first = post(client, url + "/action?session=s0", state(gs, 0));
+            CompletableFuture<HttpResponse<String>> second = post(client, url + "/action?session=s1", state(gs, 1));
+            assertEquals("{\"action\": 1}", first.get(20, TimeUnit.SECONDS).body());
+            assertEquals("{\"action\": 2}", second.get(20, TimeUnit.SECONDS).body());
+
+            assertEquals(200, post(client, url + "/shutdown?session=s0", "").join().statusCode());
+            assertEquals(1, server.numSessions());
+            assertEquals(404, post(client, url + "/action?session=s0", state(gs, 0)).join().statusCode());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static CompletableFuture<HttpResponse<String>> post(HttpClient client, String url, String body) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * @return the observation of a player, as sent by the Python framework.
+     */
+    private static String state(GameState gs, int playerIdx) {
+        Gson gson = new Gson();
+        int size = gs.getBoard().length;
+        int[][] board = new int[size][size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                board[y][x] = gs.getBoard()[y][x].getKey();
+            }
+        }
+        Vector2d position = null;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (board[y][x] == Types.TILETYPE.AGENT0.getKey() + playerIdx) {
+                    position = new Vector2d(y, x);  // Rows first, as in the Python framework
+                }
+            }
+        }
+        JsonObject obs = new JsonObject();
+        obs.add("alive", gson.toJsonTree(new int[]{10, 11, 12, 13}));
+        obs.add("board", gson.toJsonTree(board));
+        obs.add("bomb_blast_strength", gson.toJsonTree(gs.getBombBlastStrength()));
+        obs.add("bomb_life", gson.toJsonTree(gs.getBombLife()));
+        obs.addProperty("game_type", 1);
+        obs.addProperty("game_env", "pommerman.envs.v0:Pomme");
+        obs.add("position", gson.toJsonTree(new int[]{position.x, position.y}));
+        obs.addProperty("blast_strength", 2);
+        obs.addProperty("can_kick", false);
+        obs.addProperty("ammo", 1);
+        obs.addProperty("step_count", 0);
+        JsonObject state = new JsonObject();
+        state.add("obs", obs);
+        state.addProperty("action_space", 6);
+        return state.toString();
+    }
+}
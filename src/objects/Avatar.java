@@ -1,5 +1,6 @@
 package objects;
 
+import core.gameConfig.IGameConfig;
 import utils.Types;
 import utils.Vector2d;
 
@@ -22,14 +23,26 @@ public class Avatar extends GameObject {
     private int team; // Only relevant in non-FFA games
 
     public Avatar(int pId, Types.GAME_MODE gameMode) {
+        this(pId, gameMode, getGameConfig(), DEFAULT_VISION_RANGE);
+    }
+
+    /**
+     * Creates an avatar for a game with its own configuration (see core.GameContext).
+     * @param pId id of the player (AGENT0 to AGENT3).
+     * @param gameMode game mode being played, may be null to skip setting up teams.
+     * @param gameConfig game configuration which determines teams.
+     * @param visionRange vision range of the avatar, -1 for full observability.
+     */
+    public Avatar(int pId, Types.GAME_MODE gameMode, IGameConfig gameConfig, int visionRange) {
         super(Types.TILETYPE.values()[pId]);
         playerID = pId;
+        this.visionRange = visionRange;
 
         if(gameMode != null) {
             // Setup team, enemies and teammates
-            team = getGameConfig().getTeam(gameMode, playerID);
-            enemies = getGameConfig().getEnemies(gameMode, playerID);
-            teammates = getGameConfig().getTeammates(gameMode, playerID);
+            team = gameConfig.getTeam(gameMode, playerID);
+            enemies = gameConfig.getEnemies(gameMode, playerID);
+            teammates = gameConfig.getTeammates(gameMode, playerID);
         }
     }
     public Avatar(int pId, int x, int y, boolean canKick, int ammo, int blastStrength, Types.GAME_MODE gameMode){
@@ -77,6 +90,28 @@ public class Avatar extends GameObject {
         return copy;
     }
 
+    @Override
+    public void copyInto(GameObject target) {
+        super.copyInto(target);
+        Avatar avatar = (Avatar) target;
+        avatar.canKick = canKick;
+        avatar.ammo = ammo;
+        avatar.blastStrength = blastStrength;
+        avatar.winner = winner;
+        avatar.visionRange = visionRange;
+        avatar.team = team;
+        avatar.enemies = copyTypes(enemies, avatar.enemies);
+        avatar.teammates = copyTypes(teammates, avatar.teammates);
+    }
+
+    private static Types.TILETYPE[] copyTypes(Types.TILETYPE[] source, Types.TILETYPE[] target) {
+        if (target == null || target.length != source.length) {
+            return source.clone();
+        }
+        System.arraycopy(source, 0, target, 0, source.length);
+        return target;
+    }
+
     public int getBlastStrength() {
         return blastStrength;
     }
@@ -32,7 +32,7 @@ public class Bomb extends GameObject {
     @Override
     public void tick() {
         life--;
-        desiredCoordinate = position.add(velocity);
+        setDesiredCoordinate(position.x + velocity.x, position.y + velocity.y);
     }
 
     @Override
@@ -46,6 +46,16 @@ public class Bomb extends GameObject {
         return copy;
     }
 
+    @Override
+    public void copyInto(GameObject target) {
+        super.copyInto(target);
+        Bomb bomb = (Bomb) target;
+        bomb.blastStrength = blastStrength;
+        bomb.playerIdx = playerIdx;
+        bomb.velocity = copyVector(velocity, bomb.velocity);
+        bomb.diffusion_counter = diffusion_counter;
+    }
+
     public boolean diffused()
     {
         return this.diffusion_counter >= BOMB_DIFFUSION_THRESHOLD;
@@ -134,6 +144,24 @@ public class Bomb extends GameObject {
         this.velocity = vel;
     }
 
+    /**
+     * Sets the velocity, reusing the velocity vector of this bomb.
+     */
+    public void setVelocity(int x, int y) {
+        if (velocity == null) {
+            velocity = new Vector2d(x, y);
+        } else {
+            velocity.set(x, y);
+        }
+    }
+
+    /**
+     * Stops this bomb, reusing its velocity vector.
+     */
+    public void stop() {
+        setVelocity(0, 0);
+    }
+
     public int getBlastStrength() {
         return blastStrength;
     }
@@ -16,7 +16,7 @@ public class Flame extends GameObject {
     @Override
     public void tick(){
         this.life--;
-        desiredCoordinate = position.copy();
+        setDesiredCoordinate(position);
     }
 
     @Override
@@ -30,4 +30,10 @@ public class Flame extends GameObject {
         copy.id = hashCode();
         return copy;
     }
+
+    @Override
+    public void copyInto(GameObject target) {
+        super.copyInto(target);
+        ((Flame) target).playerIdx = playerIdx;
+    }
 }
@@ -1,16 +1,15 @@
 package objects;
 
-import javafx.beans.binding.ObjectBinding;
 import utils.Types;
 import utils.Vector2d;
 
-import java.awt.Image;
 import java.util.List;
 
 /**
  * The superclass for game objects.
  * Models directly all game objects that do not contain special features.
  * Examples of game objects modeled directly by this class is walls, empty corridor and fog.
+ * Game objects hold no sprites, so the engine runs headless: views get them from the object type when painting.
  */
 public class GameObject {
 
@@ -20,28 +19,21 @@ public class GameObject {
     private utils.Types.TILETYPE type = Types.TILETYPE.PASSAGE;
     int id;
 
-    private Image img;
-
-
     public GameObject(utils.Types.TILETYPE type, int x, int y){
         this.type = type;
-        this.img = type.getImage();
         this.desiredCoordinate = new Vector2d(x, y);
     }
 
     public GameObject(utils.Types.TILETYPE type){
         this.type = type;
-        this.img = type.getImage();
         this.desiredCoordinate = new Vector2d();
     }
 
     public GameObject(int x, int y){
-        this.img = type.getImage();
         this.desiredCoordinate = new Vector2d(x, y);
     }
 
     public GameObject(){
-        this.img = type.getImage();
         this.desiredCoordinate = new Vector2d();
     }
 
@@ -90,7 +82,7 @@ public class GameObject {
      * Update the current state of this object
      */
     public void tick(){
-        desiredCoordinate = position.copy();
+        setDesiredCoordinate(position);
     }
 
     /**
@@ -107,7 +99,19 @@ public class GameObject {
 
     public void setDesiredCoordinate(Vector2d desiredCoordinate) {
         if (desiredCoordinate != null) {
-            this.desiredCoordinate = desiredCoordinate.copy();
+            setDesiredCoordinate(desiredCoordinate.x, desiredCoordinate.y);
+        }
+    }
+
+    /**
+     * Sets the desired coordinate, overwriting the current vector instead of allocating a new one. Vectors returned
+     * by getDesiredCoordinate() before see the change.
+     */
+    public void setDesiredCoordinate(int x, int y) {
+        if (desiredCoordinate == null) {
+            desiredCoordinate = new Vector2d(x, y);
+        } else {
+            desiredCoordinate.set(x, y);
         }
     }
 
@@ -140,7 +144,35 @@ public class GameObject {
         return copy;
     }
 
-    public Image getImage() { return img;}
+    /**
+     * Copies the state of this object into another object of the same type, reusing the target's vectors instead
+     * of allocating new ones. Object.equals() considers the target equal to this object afterwards, as with copy().
+     * @param target object to overwrite.
+     */
+    public void copyInto(GameObject target){
+        target.life = life;
+        target.desiredCoordinate = copyVector(desiredCoordinate, target.desiredCoordinate);
+        target.position = copyVector(position, target.position);
+        target.id = hashCode();
+    }
+
+    /**
+     * Copies a vector into another one, allocating only if there is nothing to copy into.
+     * @param source vector to copy, may be null.
+     * @param target vector to overwrite, may be null.
+     * @return the vector holding the copy, or null if source is null.
+     */
+    protected static Vector2d copyVector(Vector2d source, Vector2d target){
+        if (source == null) {
+            return null;
+        }
+        if (target == null) {
+            return source.copy();
+        }
+        target.set(source);
+        return target;
+    }
+
 
     /**
      * If this object is a copy, the id has been set to a non 0 value, the hashCode of the original
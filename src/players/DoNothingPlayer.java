@@ -13,8 +13,18 @@ public class DoNothingPlayer extends Player {
         return Types.ACTIONS.ACTION_STOP;
     }
 
+    @Override
+    public boolean isPassive() {
+        return true;
+    }
+
     @Override
     public Player copy() {
-        return new DoNothingPlayer(playerID);
+        return copy(seed, playerID);
+    }
+
+    @Override
+    public Player copy(long seed, int pId) {
+        return new DoNothingPlayer(pId);
     }
 }
@@ -27,6 +27,11 @@ public class HumanPlayer extends Player {
 
     @Override
     public Player copy() {
-        return new HumanPlayer(getKeyAdapter().copy(), playerID);
+        return copy(seed, playerID);
+    }
+
+    @Override
+    public Player copy(long seed, int pId) {
+        return new HumanPlayer(getKeyAdapter().copy(), pId);
     }
 }
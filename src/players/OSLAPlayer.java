@@ -75,7 +75,12 @@ public class OSLAPlayer extends Player {
      */
     @Override
     public Player copy() {
-        return new OSLAPlayer(seed, playerID);
+        return copy(seed, playerID);
+    }
+
+    @Override
+    public Player copy(long seed, int pId) {
+        return new OSLAPlayer(seed, pId);
     }
 
     /**
@@ -53,4 +53,30 @@ public abstract class Player {
     }
 
     public abstract Player copy();
+
+    /**
+     * Tells whether this player always plays ACTION_STOP, whatever the game state. Games where only passive players
+     * are left, and nothing else can happen, are fast-forwarded to their end without asking them for actions.
+     * Passive players must not read the game states they're given, which aren't kept once the game advances.
+     * @return - true if this player always stops.
+     */
+    public boolean isPassive() {
+        return false;
+    }
+
+    /**
+     * Creates a copy of this player with another seed and ID, i.e. to play in another seat of a tournament. This
+     * player isn't changed, so several threads may copy it at the same time, but not while it's playing.
+     * The default copy is made by copy(), and then given the seed and ID. Players whose state depends on their seed
+     * or ID when created (i.e. their random generator) override this method to create the copy with them instead.
+     * @param seed - random seed for the copy.
+     * @param pId - ID of the copy.
+     * @return a copy of this player.
+     */
+    public Player copy(long seed, int pId) {
+        Player copy = copy();
+        copy.seed = seed;
+        copy.playerID = pId;
+        return copy;
+    }
 }
@@ -0,0 +1,74 @@
+package players;
+
+import players.mcts.MCTSParams;
+import players.mcts.MCTSPlayer;
+import players.rhea.RHEAPlayer;
+import players.rhea.utils.Constants;
+import players.rhea.utils.RHEAParams;
+
+/**
+ * Creates the agents available from the command line (see Run), by type number, so that other processes (i.e.
+ * the workers of core.WorkerFarm) can create the same agents from their type alone.
+ */
+public class PlayerFactory {
+
+    // Names of the agent types, indexed by type number.
+    private static final String[] NAMES = {"DoNothing", "Random", "OSLA", "SimplePlayer", "RHEA-Custom",
+            "RHEA-Advanced", "MCTS-Custom", "MCTS-ADVANCED"};
+
+    /**
+     * @param agentType type number of the agent.
+     * @return short name of the agent type.
+     */
+    public static String name(int agentType) {
+        return NAMES[agentType];
+    }
+
+    /**
+     * Creates an agent.
+     * @param agentType type number of the agent:
+     *                  0 DoNothing,
+     *                  1 Random,
+     *                  2 OSLA,
+     *                  3 SimplePlayer,
+     *                  4 RHEA 200 iterations, shift buffer, pop size 1, random init, length: 12, custom heuristic,
+     *                  5 RHEA 200 iterations, shift buffer, pop size 1, random init, length: 12, advanced heuristic,
+     *                  6 MCTS 200 iterations, length: 12, custom heuristic,
+     *                  7 MCTS 200 iterations, length: 12, advanced heuristic.
+     * @param seed random seed of the agent.
+     * @param playerID ID of the agent.
+     * @return the agent, or null if the type is not valid.
+     */
+    public static Player create(int agentType, long seed, int playerID) {
+        RHEAParams rheaParams = new RHEAParams();
+
+        MCTSParams mctsParams = new MCTSParams();
+        mctsParams.stop_type = mctsParams.STOP_ITERATIONS;
+        mctsParams.rollout_depth = 12;
+
+        switch(agentType) {
+            case 0:
+                return new DoNothingPlayer(playerID);
+            case 1:
+                return new RandomPlayer(seed, playerID);
+            case 2:
+                return new OSLAPlayer(seed, playerID);
+            case 3:
+                return new SimplePlayer(seed, playerID);
+            case 4:
+                rheaParams.heurisic_type = Constants.CUSTOM_HEURISTIC;
+                return new RHEAPlayer(seed, playerID, rheaParams);
+            case 5:
+                rheaParams.heurisic_type = Constants.CUSTOM_HEURISTIC;//Constants.ADVANCED_HEURISTIC;
+                return new RHEAPlayer(seed, playerID, rheaParams);
+            case 6:
+                mctsParams.heuristic_method = mctsParams.CUSTOM_HEURISTIC;
+                return new MCTSPlayer(seed, playerID, mctsParams);
+            case 7:
+                mctsParams.heuristic_method = mctsParams.CUSTOM_HEURISTIC;//mctsParams.ADVANCED_HEURISTIC;
+                return new MCTSPlayer(seed, playerID, mctsParams);
+            default:
+                return null;
+        }
+    }
+}
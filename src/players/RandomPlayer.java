@@ -22,6 +22,11 @@ public class RandomPlayer extends Player {
 
     @Override
     public Player copy() {
-        return new RandomPlayer(seed, playerID);
+        return copy(seed, playerID);
+    }
+
+    @Override
+    public Player copy(long seed, int pId) {
+        return new RandomPlayer(seed, pId);
     }
 }
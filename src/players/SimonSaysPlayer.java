@@ -46,9 +46,14 @@ public class SimonSaysPlayer extends Player {
 
     @Override
     public Player copy() {
+        return copy(seed, playerID);
+    }
+
+    @Override
+    public Player copy(long seed, int pId) {
         Queue<Types.ACTIONS> copyActionQueue = new ArrayDeque<>(actionsQueue.size());
         copyActionQueue.addAll(actionsQueue);
-        SimonSaysPlayer copy = new SimonSaysPlayer(playerID, copyActionQueue);
+        SimonSaysPlayer copy = new SimonSaysPlayer(pId, copyActionQueue);
         return copy;
     }
 
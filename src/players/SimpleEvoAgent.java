@@ -279,7 +279,12 @@ public class SimpleEvoAgent extends Player {
      */
     @Override
     public Player copy() {
-        return new SimpleEvoAgent(seed, playerID);
+        return copy(seed, playerID);
+    }
+
+    @Override
+    public Player copy(long seed, int pId) {
+        return new SimpleEvoAgent(seed, pId);
     }
 
 
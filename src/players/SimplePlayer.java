@@ -36,7 +36,12 @@ public class SimplePlayer extends Player {
      */
     @Override
     public Player copy() {
-        SimplePlayer player = new SimplePlayer(seed,playerID);
+        return copy(seed, playerID);
+    }
+
+    @Override
+    public Player copy(long seed, int pId) {
+        SimplePlayer player = new SimplePlayer(seed, pId);
         player.recentlyVisitedPositions = new ArrayList<>();
         recentlyVisitedPositions.forEach(e -> player.recentlyVisitedPositions.add(e.copy()));
         player.recentlyVisitedLength = recentlyVisitedLength;
@@ -260,7 +265,7 @@ public class SimplePlayer extends Player {
     private Container dijkstra(Types.TILETYPE[][] board, Vector2d myPosition, ArrayList<Bomb> bombs,
                                ArrayList<GameObject> enemies, int depth){
 
-        HashMap<Types.TILETYPE, ArrayList<Vector2d> > items = new HashMap<>();
+        HashMap<Types.TILETYPE, ArrayList<Vector2d> > items = new LinkedHashMap<>();
         HashMap<Vector2d, Integer> dist = new HashMap<>();
         HashMap<Vector2d, Vector2d> prev = new HashMap<>();
 
@@ -358,7 +363,7 @@ public class SimplePlayer extends Player {
      */
     private HashMap<Types.DIRECTIONS, Integer> directionsInRangeOfBomb(Vector2d myPosition, ArrayList<Bomb> bombs,
             HashMap<Vector2d, Integer> dist) {
-        HashMap<Types.DIRECTIONS, Integer> ret = new HashMap<>();
+        HashMap<Types.DIRECTIONS, Integer> ret = new LinkedHashMap<>();
 
         for(Bomb bomb : bombs){
             Vector2d position = bomb.getPosition();
@@ -231,7 +231,7 @@ public class AdvancedHeuristic extends StateHeuristic {
 
         private HashMap<Types.DIRECTIONS, Integer> computeDirectionsInRangeOfBomb(Vector2d myPosition, ArrayList<Bomb> bombs,
                                                                                   HashMap<Vector2d, Integer> dist) {
-            HashMap<Types.DIRECTIONS, Integer> ret = new HashMap<>();
+            HashMap<Types.DIRECTIONS, Integer> ret = new LinkedHashMap<>();
 
             for(Bomb bomb : bombs){
                 Vector2d position = bomb.getPosition();
@@ -518,7 +518,7 @@ public class AdvancedHeuristic extends StateHeuristic {
         private Container dijkstra(Types.TILETYPE[][] board, Vector2d myPosition, ArrayList<Bomb> bombs,
                                    ArrayList<GameObject> enemies, int depth){
 
-            HashMap<Types.TILETYPE, ArrayList<Vector2d> > items = new HashMap<>();
+            HashMap<Types.TILETYPE, ArrayList<Vector2d> > items = new LinkedHashMap<>();
             HashMap<Vector2d, Integer> dist = new HashMap<>();
             HashMap<Vector2d, Vector2d> prev = new HashMap<>();
 
@@ -95,12 +95,15 @@ public class SingleTreeNode
         int numIters = 0;
         int remainingLimit = 2; //Safe time threshold for time budget.
 
+        //All iterations work on the same copy of the game state, which is brought back to the root after each one.
+        GameState state = rootState.copy();
+
         //Run MCTS in a loop until termination condition.
         boolean stop = false;
         while(!stop){
 
-            //Start from a copy of the game state
-            GameState state = rootState.copy();
+            //Start from the root state
+            state.push();
 
             //1. Selection and 2. Expansion are executed in treePolicy(state)
             SingleTreeNode selected = treePolicy(state);
@@ -108,6 +111,7 @@ public class SingleTreeNode
             double delta = selected.rollOut(state);
             //4. Back-propagation
             backUp(selected, delta);
+            state.pop();
 
             //Stopping condition: it can be time, number of iterations or uses of the forward model.
             //For each case, update counts to determine if we must stop.
@@ -1,6 +1,7 @@
 package players.rhea;
 
 import core.GameState;
+import core.GameStatePool;
 import gnu.trove.set.hash.TIntHashSet;
 import players.heuristics.*;
 import players.rhea.evo.Individual;
@@ -98,9 +99,10 @@ public class GameInterface {
                 int nActions = actions.size();
                 for (int j = 0; j < nActions; j++) {
                     Types.ACTIONS action = actions.get(j);
-                    GameState stCopy = so.copy();
+                    GameState stCopy = GameStatePool.copy(so);
                     advanceState(stCopy, action);
                     double Q = evaluateState(stCopy);
+                    GameStatePool.release(stCopy);
                     Q = Utils.noise(Q, epsilon, random.nextDouble());
 
                     //System.out.println("Action:" + action + " score:" + Q);
@@ -152,7 +154,7 @@ public class GameInterface {
     @SuppressWarnings("UnusedReturnValue")
     public double evaluate(Individual individual, Mutation mutation, int evaluation_update) {
         double[] values = new double[individual.get_length() + 1];
-        GameState stateObsCopy = rootState.copy();
+        GameState stateObsCopy = GameStatePool.copy(rootState);
         values[0] = evaluateState(stateObsCopy);  // Evaluate current state
 
         // Evaluate subsequent states obtained by rolling through the actions
@@ -170,6 +172,7 @@ public class GameInterface {
         if (params.mc_rollouts && !stateObsCopy.isTerminal()) {
             state_value = MCrollouts(stateObsCopy, values);
         }
+        GameStatePool.release(stateObsCopy);
 
         // Update value according to update rule
         double update_value;
@@ -295,7 +298,7 @@ public class GameInterface {
 
         // We may average over multiple repetitions of rollouts
         for (int k = 0; k < params.mc_rollouts_repeat; k++) {
-            GameState first = start.copy();
+            GameState first = GameStatePool.copy(start);
 
             // Save values of states we pass through in values array
             double[] values = new double[params.mc_rollouts_length + 1];
@@ -311,6 +314,7 @@ public class GameInterface {
 
             // Use both individual values and rollout values to determine reward
             double thisReward = combineAndNormalize(ind_values, values);
+            GameStatePool.release(first);
 
             reward += thisReward;
         }
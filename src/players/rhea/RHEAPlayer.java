@@ -62,6 +62,11 @@ public class RHEAPlayer extends ParameterizedPlayer {
 
     @Override
     public Player copy() {
-        return new RHEAPlayer(seed, playerID, params);
+        return copy(seed, playerID);
+    }
+
+    @Override
+    public Player copy(long seed, int pId) {
+        return new RHEAPlayer(seed, pId, params);
     }
 }
@@ -66,7 +66,7 @@ public class AvatarView extends JComponent {
 
                     // Draw this avatar image
                     Rectangle rect = new Rectangle(x + cellSize/4, y, cellSize, cellSize);
-                    Image objImage = o.getImage();
+                    Image objImage = o.getType().getImage();
                     drawImage(g, objImage, rect);
 
                     // Return to full opacity
@@ -0,0 +1,118 @@
+package utils;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * A micro-benchmark: an operation that is run repeatedly and timed. Operations are run in batches, and before each
+ * batch prepare() is called (untimed) so that operations that change their input (i.e. advancing a game state) can
+ * be given fresh inputs for every run.
+ *
+ * measure() runs warmup iterations first, so that the JIT compiles the code being measured, and then measured
+ * iterations of a fixed duration. It reports operations per second (mean and standard error over iterations) and
+ * the bytes allocated per operation by the measuring thread, which is what creates pressure on the garbage collector.
+ */
+public abstract class Benchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Results of the operations are kept here so that the JIT can't remove them as dead code.
+    private static Object sink;
+
+    private final String name;
+    private final int batch;
+
+    /**
+     * @param name name of the benchmark, shown in the results.
+     * @param batch number of operations prepared and run at once.
+     */
+    protected Benchmark(String name, int batch) {
+        this.name = name;
+        this.batch = batch;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Prepares the inputs of the next batch of operations. Not timed.
+     * @param batch number of operations that will be run.
+     */
+    protected void prepare(int batch) {}
+
+    /**
+     * Runs one operation.
+     * @param i index of the operation in its batch.
+     * @return result of the operation, if any.
+     */
+    protected abstract Object op(int i);
+
+    /**
+     * Runs this benchmark.
+     * @param warmup number of warmup iterations, not reported.
+     * @param iterations number of measured iterations.
+     * @param iterationMillis minimum duration of each iteration, in milliseconds.
+     * @return results of the measured iterations.
+     */
+    public Result measure(int warmup, int iterations, long iterationMillis) {
+        Result result = new Result(name);
+        for (int it = 0; it < warmup + iterations; it++) {
+            long ops = 0, nanos = 0, bytes = 0;
+            long deadline = System.nanoTime() + iterationMillis * 1_000_000L;
+            while (System.nanoTime() < deadline) {
+                prepare(batch);
+                long bytesBefore = THREADS.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                for (int i = 0; i < batch; i++) {
+                    sink = op(i);
+                }
+                nanos += System.nanoTime() - start;
+                bytes += THREADS.getCurrentThreadAllocatedBytes() - bytesBefore;
+                ops += batch;
+            }
+            if (it >= warmup) {
+                result.add(ops, nanos, bytes);
+            }
+        }
+        sink = null;
+        return result;
+    }
+
+    /**
+     * Results of a benchmark.
+     */
+    public static class Result {
+        private final String name;
+        private final StatSummary opsPerSecond = new StatSummary();
+        private long ops, bytes;
+
+        Result(String name) {
+            this.name = name;
+        }
+
+        void add(long ops, long nanos, long bytes) {
+            opsPerSecond.add(ops * 1e9 / nanos);
+            this.ops += ops;
+            this.bytes += bytes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getOpsPerSecond() {
+            return opsPerSecond.mean();
+        }
+
+        public double getBytesPerOp() {
+            return ops == 0 ? 0 : (double) bytes / ops;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-40s %14.1f ops/s  +- %10.1f  %12.1f B/op",
+                    name, opsPerSecond.mean(), opsPerSecond.stdErr(), getBytesPerOp());
+        }
+    }
+}
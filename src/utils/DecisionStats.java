@@ -0,0 +1,97 @@
+package utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Timing of the decisions of an agent: how long each act() call took, and how many overran the deadline.
+ * Unlike StatSummary, all latencies are kept, so that percentiles can be computed.
+ */
+public class DecisionStats {
+
+    private long[] latencies = new long[256];  // Nanoseconds, in the order decisions were made
+    private int n;
+    private int overruns;
+
+    /**
+     * Records a decision.
+     * @param nanos time the decision took, in nanoseconds.
+     * @param overrun true if the decision overran the deadline.
+     */
+    public void add(long nanos, boolean overrun) {
+        if (n == latencies.length) {
+            latencies = Arrays.copyOf(latencies, n * 2);
+        }
+        latencies[n++] = nanos;
+        if (overrun) {
+            overruns++;
+        }
+    }
+
+    /**
+     * Records all decisions of another agent (or game) in this one.
+     */
+    public void add(DecisionStats other) {
+        if (n + other.n > latencies.length) {
+            latencies = Arrays.copyOf(latencies, Math.max(n + other.n, latencies.length * 2));
+        }
+        System.arraycopy(other.latencies, 0, latencies, n, other.n);
+        n += other.n;
+        overruns += other.overruns;
+    }
+
+    public int getDecisions() {
+        return n;
+    }
+
+    public int getOverruns() {
+        return overruns;
+    }
+
+    /**
+     * @param p percentile, between 0 and 100.
+     * @return latency of the decisions at the given percentile (nearest rank), in milliseconds, 0 if there are none.
+     */
+    public double percentileMillis(double p) {
+        if (n == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencies, n);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(p / 100.0 * n);
+        return sorted[Math.min(n, Math.max(1, rank)) - 1] / 1000000.0;
+    }
+
+    /**
+     * Writes these stats to a stream, i.e. to send them to another process.
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(n);
+        out.writeInt(overruns);
+        for (int i = 0; i < n; i++) {
+            out.writeLong(latencies[i]);
+        }
+    }
+
+    /**
+     * Reads stats written by writeTo().
+     */
+    public static DecisionStats readFrom(DataInputStream in) throws IOException {
+        DecisionStats stats = new DecisionStats();
+        stats.n = in.readInt();
+        stats.overruns = in.readInt();
+        stats.latencies = new long[Math.max(stats.n, 1)];
+        for (int i = 0; i < stats.n; i++) {
+            stats.latencies[i] = in.readLong();
+        }
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d decisions, %d overruns, p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms",
+                n, overruns, percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(100));
+    }
+}
@@ -10,6 +10,14 @@ import java.lang.management.ThreadMXBean;
 
 public class ElapsedCpuTimer {
 
+    /**
+     * What a timer measures: wall-clock time, or CPU time of the thread that created it (wall-clock time on Windows).
+     */
+    public enum TimerType {
+        WALL_TIME,
+        CPU_TIME
+    }
+
     private static final boolean OS_WIN = System.getProperty("os.name").contains("Windows");
 
     // allows for easy reporting of elapsed time
@@ -17,15 +25,21 @@ public class ElapsedCpuTimer {
     private long oldTime;
     private long maxTime;
     private int nIters;
+    private TimerType type;
 
     public ElapsedCpuTimer() {
+        this(TimerType.CPU_TIME);
+    }
+
+    public ElapsedCpuTimer(TimerType type) {
+        this.type = type;
         oldTime = getTime();
         nIters = 0;
     }
 
     public ElapsedCpuTimer copy()
     {
-        ElapsedCpuTimer newCpuTimer = new ElapsedCpuTimer();
+        ElapsedCpuTimer newCpuTimer = new ElapsedCpuTimer(type);
         newCpuTimer.maxTime = this.maxTime;
         newCpuTimer.oldTime = this.oldTime;
         newCpuTimer.bean = this.bean;
@@ -67,6 +81,8 @@ public class ElapsedCpuTimer {
     }
 
     private long getTime() {
+        if (type == TimerType.WALL_TIME)
+            return System.nanoTime();
         return getCpuTime();
     }
 
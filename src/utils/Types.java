@@ -6,6 +6,7 @@ import core.gameConfig.OriginalGameConfig;
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 public class Types {
 
@@ -16,14 +17,17 @@ public class Types {
     public static int FLAME_LIFE = 5;               //Ticks until a flame dissappears.
     public static int WALL_LIFE = MAX_GAME_TICKS;   //infinite wall time
     public static int WALL_SPEED = 100000;              //TODO do the math to implement it depending on the board size
-    public static int WALL_LAYER = 0;
-    public static int WALL_CLOCK = 0;               //internal wall clock
     public static int DEFAULT_BOMB_BLAST = 2;       //Default bombs create flames with this range.
     public static int DEFAULT_BOMB_AMMO = 1;        //Default number of simultaneous bombs an agent can put.
     public static boolean DEFAULT_BOMB_KICK = false;//Can agents kick bomb by default?
-    public static int DEFAULT_VISION_RANGE = -1;    //-1 for full observability, >1 for PO.
-
-    //Game configuration to use in the game, which determines victory conditions.
+    public static int DEFAULT_VISION_RANGE = -1;    //-1 for full observability, >1 for PO. Default for new games.
+    public static ENGINE DEFAULT_ENGINE = ENGINE.REFERENCE; //Engine advancing the true state of new games.
+    public static long DEFAULT_ACT_DEADLINE = 100;  //Milliseconds agents have to act (see core.GameContext).
+    public static ElapsedCpuTimer.TimerType DEFAULT_ACT_TIMER = ElapsedCpuTimer.TimerType.WALL_TIME; //How decisions are timed.
+    public static OVERRUN_PENALTY DEFAULT_OVERRUN_PENALTY = OVERRUN_PENALTY.NONE; //What agents acting late are given.
+    public static boolean DEFAULT_FAST_FORWARD = true;  //Fast-forward games which can only end by timeout (see core.Game).
+
+    //Game configuration to use by default in new games (see core.GameContext), which determines victory conditions.
     private static IGameConfig gameConfig = new OriginalGameConfig();
 
     //Board configuration constants.
@@ -46,7 +50,7 @@ public class Types {
     // General variables for logging and debugging.
     public static boolean VERBOSE = false;
     public static boolean VERBOSE_FM_DEBUG = false;
-    public static boolean VISUALS = true;
+    public static boolean VISUALS = true;           //Default for new games, see core.GameContext.
     public static boolean LOGGING_STATISTICS = false;
 
     public final static int NUM_PLAYERS = 4;  //Changing this is NOT going to work (Forward Model assumes 4 players).
@@ -107,11 +111,11 @@ public class Types {
         }
 
         /**
-         * Returns all agent types.
+         * Returns all agent types, iterated in the order of the agents.
          * @return all agent types.
          */
         public static HashSet<TILETYPE> getAgentTypes() {
-            HashSet<TILETYPE> types = new HashSet<>();
+            HashSet<TILETYPE> types = new LinkedHashSet<>();
             types.add(AGENT0);
             types.add(AGENT1);
             types.add(AGENT2);
@@ -120,11 +124,13 @@ public class Types {
         }
 
         /**
-         * Returns all power up types.
+         * Returns all power up types. They are always iterated in the same order (the order they are added here), as
+         * the level generator picks them by position: a plain HashSet of enums would be iterated in an order that
+         * changes from one JVM to another, and so would the boards generated from the same seed.
          * @return all power up types.
          */
         public static HashSet<TILETYPE> getPowerUpTypes() {
-            HashSet<TILETYPE> types = new HashSet<>();
+            HashSet<TILETYPE> types = new LinkedHashSet<>();
             types.add(EXTRABOMB);
             types.add(INCRRANGE);
             types.add(KICK);
@@ -265,6 +271,31 @@ public class Types {
         public int getKey() {return this.key;}
     }
 
+    /**
+     * Engines that can advance the true state of a game (see core.IForwardModel).
+     * REFERENCE is core.ForwardModel, BITBOARD is core.BitboardForwardModel, and LOCKSTEP runs both, reporting the
+     * first tick at which they diverge.
+     */
+    public enum ENGINE {
+        REFERENCE,
+        BITBOARD,
+        LOCKSTEP
+    }
+
+    /**
+     * Penalties for agents overrunning the decision deadline (see core.GameContext).
+     * NONE only counts overruns (agents playing in separate threads still play ACTION_STOP when they don't answer
+     * in time), DEFAULT_ACTION replaces the late action by ACTION_STOP, SKIP also makes the agent skip its next
+     * decision (playing ACTION_STOP), and DISQUALIFY makes the agent play ACTION_STOP for the rest of the game,
+     * which it loses.
+     */
+    public enum OVERRUN_PENALTY {
+        NONE,
+        DEFAULT_ACTION,
+        SKIP,
+        DISQUALIFY
+    }
+
     /**
      * Results of the game.
      */
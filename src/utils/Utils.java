@@ -5,6 +5,7 @@ import objects.Bomb;
 import objects.GameObject;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Random;
@@ -14,6 +15,10 @@ import static utils.Types.FLAME_LIFE;
 @SuppressWarnings({"unused", "WeakerAccess"})
 public class Utils
 {
+    // Types of tiles objects can't move into, unless told otherwise
+    private static final ArrayList<Types.TILETYPE> DEFAULT_COLLISIONS =
+            new ArrayList<>(Arrays.asList(Types.TILETYPE.RIGID, Types.TILETYPE.WOOD));
+
     // Takes an object from an array at random
     public static Object choice(Object[] elements, Random rnd)
     {
@@ -144,10 +149,50 @@ public class Utils
      * @return true if new position set successfully, false otherwise
      */
     public static boolean setDesiredCoordinate(GameObject gameObject, Vector2d pos, Types.TILETYPE[][] board) {
-        ArrayList<Types.TILETYPE> defaultCollisions = new ArrayList<>();
-        defaultCollisions.add(Types.TILETYPE.RIGID);
-        defaultCollisions.add(Types.TILETYPE.WOOD);
-        return setDesiredCoordinate(gameObject, pos, board, defaultCollisions);
+        return setDesiredCoordinate(gameObject, pos, board, DEFAULT_COLLISIONS);
+    }
+
+    /**
+     * As setDesiredCoordinate(gameObject, pos, board), taking the coordinates of the new position, which avoids
+     * allocating a vector for it.
+     * @param gameObject - game object to check
+     * @param x - x coordinate of the new position
+     * @param y - y coordinate of the new position
+     * @param board - board state to check legal positions on
+     * @return true if new position set successfully, false otherwise
+     */
+    public static boolean setDesiredCoordinate(GameObject gameObject, int x, int y, Types.TILETYPE[][] board) {
+        return setDesiredCoordinate(gameObject, x, y, board, DEFAULT_COLLISIONS);
+    }
+
+    /**
+     * As setDesiredCoordinate(gameObject, x, y, board), specifying collisions.
+     * @param collisions - list of types which would make the position of a sprite illegal
+     */
+    public static boolean setDesiredCoordinate(GameObject gameObject, int x, int y, Types.TILETYPE[][] board,
+                                               ArrayList<Types.TILETYPE> collisions) {
+        if (x >= 0 && y >= 0 && y < board.length && x < board[0].length &&
+                (board[y][x] == null || !collisions.contains(board[y][x]))) {
+            gameObject.setDesiredCoordinate(x, y);
+            return true;
+        } else {
+            // Revert to current position if new position is illegal
+            if (gameObject.getPosition() != null) {
+                gameObject.setDesiredCoordinate(gameObject.getPosition());
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Packs a position into the index of its cell in a board, y * size + x, so positions can be compared and used
+     * to index arrays without Vector2d objects.
+     * @param pos - position, may be null
+     * @param size - size of the board
+     * @return the index of the cell, or -1 if the position is null
+     */
+    public static int cellIndex(Vector2d pos, int size) {
+        return pos == null ? -1 : pos.y * size + pos.x;
     }
 
     /**
@@ -207,26 +252,26 @@ public class Utils
      */
     public static void checkPositionSwap(ArrayList<GameObject> golist1, ArrayList<GameObject> golist2,
                                          Types.TILETYPE[][] board, boolean revertOnlySecond, boolean verbose) {
+        int size = board.length;
         for (GameObject g1: golist1) {
+            int position1 = cellIndex(g1.getPosition(), size);
             for (GameObject g2: golist2) {
-                if (!g1.equals(g2)) {
-                    if (!g1.getDesiredCoordinate().equals(g1.getPosition()) &&
-                            !g2.getDesiredCoordinate().equals(g2.getPosition())) {
-                        // The objects need to both have moved to count for a swap check.
-                        if (g1.getDesiredCoordinate().equals(g2.getPosition()) &&
-                                g2.getDesiredCoordinate().equals(g1.getPosition())) {
-                            if (!revertOnlySecond) {
-                                if (verbose) {
-                                    System.out.println("Reverting " + g1.getType() + " swap with " + g2.getType());
-                                }
-                                setDesiredCoordinate(g1, g1.getPosition(), board);
-                            }
-                            if (verbose) {
-                                System.out.println("Reverting " + g2.getType() + " swap with " + g1.getType());
-                            }
-                            setDesiredCoordinate(g2, g2.getPosition(), board);
+                // The objects need to both have moved to count for a swap check.
+                int desired1 = cellIndex(g1.getDesiredCoordinate(), size);
+                int desired2 = cellIndex(g2.getDesiredCoordinate(), size);
+                int position2 = cellIndex(g2.getPosition(), size);
+                if (desired1 != position1 && desired2 != position2 &&
+                        desired1 == position2 && desired2 == position1 && !g1.equals(g2)) {
+                    if (!revertOnlySecond) {
+                        if (verbose) {
+                            System.out.println("Reverting " + g1.getType() + " swap with " + g2.getType());
                         }
+                        setDesiredCoordinate(g1, g1.getPosition(), board);
                     }
+                    if (verbose) {
+                        System.out.println("Reverting " + g2.getType() + " swap with " + g1.getType());
+                    }
+                    setDesiredCoordinate(g2, g2.getPosition(), board);
                 }
             }
         }
@@ -237,18 +282,32 @@ public class Utils
      * @param golist - list of game objects to check.
      */
     public static void checkPositionOverlap(ArrayList<GameObject> golist, Types.TILETYPE[][] board, boolean verbose) {
+        checkPositionOverlap(golist, board, verbose, new int[board.length * board.length]);
+    }
+
+    /**
+     * As checkPositionOverlap(golist, board, verbose), counting objects in an array indexed by cell instead of a map,
+     * so that callers can reuse it.
+     * @param golist - list of game objects to check.
+     * @param occupancy - array with one counter per cell of the board, all 0. They are all 0 again on return.
+     */
+    public static void checkPositionOverlap(ArrayList<GameObject> golist, Types.TILETYPE[][] board, boolean verbose,
+                                            int[] occupancy) {
         // Count how many objects are in the same position.
-        HashMap<Vector2d, Integer> countList = checkOccupancy(golist);
+        int size = board.length;
+        countOccupancy(golist, size, occupancy);
 
         // If more than 1 object are at a position, revert all to previous position.
         for (GameObject g: golist) {
-            if (countList.get(g.getDesiredCoordinate()) > 1) {
+            int cell = cellIndex(g.getDesiredCoordinate(), size);
+            if (cell >= 0 && occupancy[cell] > 1) {
                 if (verbose) {
                     System.out.println("Reverting " + g.getType() + " overlap");
                 }
                 setDesiredCoordinate(g, g.getPosition(), board);
             }
         }
+        Arrays.fill(occupancy, 0);
     }
 
     /**
@@ -264,6 +323,21 @@ public class Utils
         return countList;
     }
 
+    /**
+     * Counts how many of the objects in the given list want to move to each cell of the board.
+     * @param golist - given list of game objects
+     * @param size - size of the board
+     * @param occupancy - array with one counter per cell, by cell index. Counts are added to its contents.
+     */
+    public static void countOccupancy(ArrayList<GameObject> golist, int size, int[] occupancy) {
+        for (GameObject g: golist) {
+            int cell = cellIndex(g.getDesiredCoordinate(), size);
+            if (cell >= 0) {
+                occupancy[cell]++;
+            }
+        }
+    }
+
     /**
      * Creates a deep copy of an ArrayList of game objects
      * @param arr - given list
@@ -278,16 +352,17 @@ public class Utils
     }
 
     /**
-     * Adds copies of game objects to a new list, given original list, where items are within a certain range from the
-     * given position.
+     * Adds copies of game objects to a list, given original list, where items are within a certain range from the
+     * given position. Objects already in the copy list are overwritten and reused, extra ones are removed.
      * @param originalList - original list of game objects to check.
-     * @param copyList - list which will contain the new objects.
+     * @param copyList - list which will contain the copied objects.
      * @param refPosition - position reference for range check.
      * @param range - range within which the objects should be included. May be -1, which means all objects
      *              should be included
      */
     public static void _reduceHiddenList(ArrayList<GameObject> originalList, ArrayList<GameObject> copyList,
                                          Vector2d refPosition, int range) {
+        int n = 0;
         for (GameObject g: originalList) {
 
             Vector2d posG = null;
@@ -298,16 +373,28 @@ public class Utils
 
             // Check if the object is in range. If it is, add a copy of the object to the copy list.
             if (range == -1 || posG != null && refPosition != null && refPosition.custom_dist(posG) <= range) {
-                GameObject ob = g.copy();
+                GameObject ob;
+                if (n < copyList.size()) {
+                    ob = copyList.get(n);
+                    g.copyInto(ob);
+                } else {
+                    ob = g.copy();
+                    copyList.add(ob);
+                }
+                n++;
+
                 if (ob.getType() == Types.TILETYPE.FLAMES) ob.setLife(FLAME_LIFE);
                 else if (ob.getType() == Types.TILETYPE.BOMB) {
                     Bomb b = (Bomb)ob;
-                    b.setVelocity(new Vector2d());
+                    if (b.getVelocity() != null) b.getVelocity().zero();
+                    else b.setVelocity(new Vector2d());
                     b.setPlayerIdx(-1);
                 }
-                copyList.add(ob);
             }
         }
+        if (n < copyList.size()) {
+            copyList.subList(n, copyList.size()).clear();
+        }
     }
 
     /**
@@ -325,6 +412,20 @@ public class Utils
         return alive;
     }
 
+    /**
+     * Replaces the contents of a list with the agents that are still alive (winning status is INCOMPLETE).
+     * @param allAgents - all agents of the game.
+     * @param alive - list to fill with the alive agents.
+     */
+    public static void findAliveAgents(GameObject[] allAgents, ArrayList<GameObject> alive) {
+        alive.clear();
+        for (GameObject go: allAgents) {
+            if (((Avatar)go).getWinner() == Types.RESULT.INCOMPLETE) {
+                alive.add(go);
+            }
+        }
+    }
+
     /**
      * Determines the direction of an adjacent position (nextPosition) in reference to a position (position).
      * @param position - given list of game objects